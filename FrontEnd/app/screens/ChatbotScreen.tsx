@@ -1,4 +1,4 @@
-import React, { useState, useCallback, useEffect } from 'react';
+import React, { useState, useCallback, useEffect, useRef } from 'react';
 import {
     StyleSheet,
     ActivityIndicator,
@@ -46,6 +46,8 @@ export default function ChatbotScreen() {
     // State now uses the new MessageType
     const [messages, setMessages] = useState<MessageType.Text[]>([]);
     const [isLoading, setIsLoading] = useState(false);
+    // Server-side conversation session; the backend keeps the history, so only new messages are sent
+    const sessionIdRef = useRef<string | null>(null);
     const { token, uid } = useAuth();
     const router = useRouter();
 
@@ -102,7 +104,7 @@ export default function ChatbotScreen() {
                         'Content-Type': 'application/json',
                         'Authorization': `Bearer ${token}`,
                     },
-                    body: JSON.stringify({ message: message.text }),
+                    body: JSON.stringify({ message: message.text, sessionId: sessionIdRef.current }),
                 });
 
                 const responseBody = await response.json();
@@ -111,6 +113,10 @@ export default function ChatbotScreen() {
                     throw new Error(errorMessage);
                 }
 
+                if (responseBody.sessionId) {
+                    sessionIdRef.current = responseBody.sessionId;
+                }
+
                 // 4. Create bot's response in the new format
                 const botMessage: MessageType.Text = {
                     type: 'text',
@@ -0,0 +1,66 @@
+package com.ClimateTrack.backend.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and Vector API kernels on one scan over a block of rows, for common
+ * embedding sizes (384: MiniLM, 768: nomic-embed-text, 1024: mxbai-embed-large).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SimilarityKernelBenchmark {
+
+    private static final int ROWS = 1024;
+
+    @Param({"384", "768", "1024"})
+    public int dimension;
+
+    @Param({"scalar", "vector"})
+    public String kernelName;
+
+    private SimilarityKernel kernel;
+    private float[] query;
+    private float[] matrix;
+    private byte[] codes;
+
+    @Setup
+    public void setUp() {
+        kernel = "vector".equals(kernelName) ? SimilarityKernels.vectorApi() : SimilarityKernels.scalar();
+        if (kernel == null) {
+            throw new IllegalStateException("Vector API not available; run with --add-modules jdk.incubator.vector");
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        query = new float[dimension];
+        matrix = new float[ROWS * dimension];
+        codes = new byte[ROWS * dimension];
+        for (int i = 0; i < dimension; i++) {
+            query[i] = (float) random.nextDouble(-1, 1);
+        }
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = (float) random.nextDouble(-1, 1);
+            codes[i] = (byte) random.nextInt(-128, 128);
+        }
+    }
+
+    @Benchmark
+    public float floatScan() {
+        float best = Float.NEGATIVE_INFINITY;
+        for (int row = 0; row < ROWS; row++) {
+            best = Math.max(best, kernel.dot(query, 0, matrix, row * dimension, dimension));
+        }
+        return best;
+    }
+
+    @Benchmark
+    public float int8Scan() {
+        float best = Float.NEGATIVE_INFINITY;
+        for (int row = 0; row < ROWS; row++) {
+            best = Math.max(best, kernel.dotInt8(query, codes, row * dimension, dimension));
+        }
+        return best;
+    }
+}
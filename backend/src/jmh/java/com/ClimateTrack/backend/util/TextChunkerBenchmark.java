@@ -0,0 +1,79 @@
+package com.ClimateTrack.backend.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming chunker with the previous approach: concatenating every page into one string
+ * and splitting it on blank lines with a regex. The corpus is synthetic manual-like text (short and long
+ * paragraphs, English and Korean) delivered as pages of about 3 KB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TextChunkerBenchmark {
+
+    private static final String[] WORDS = {
+            "emergency", "evacuation", "shelter", "earthquake", "flood", "contact", "the", "nearest",
+            "fire", "station", "and", "follow", "instructions", "from", "local", "authorities",
+            "대피", "소방서", "지진", "홍수", "안전", "119에", "신고하십시오", "주민센터"
+    };
+
+    @Param({"256", "4096"})
+    public int pages;
+
+    private List<String> pageTexts;
+    private TextChunker chunker;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(3);
+        pageTexts = new ArrayList<>(pages);
+        for (int p = 0; p < pages; p++) {
+            StringBuilder page = new StringBuilder(3200);
+            while (page.length() < 3000) {
+                int sentences = random.nextInt(1, 12);
+                for (int s = 0; s < sentences; s++) {
+                    int words = random.nextInt(4, 20);
+                    for (int w = 0; w < words; w++) {
+                        page.append(WORDS[random.nextInt(WORDS.length)]).append(w + 1 < words ? " " : ". ");
+                    }
+                    if (random.nextInt(4) == 0) {
+                        page.append("\n");
+                    }
+                }
+                page.append(random.nextBoolean() ? "\n\n" : "\n  \r\n");
+            }
+            pageTexts.add(page.toString());
+        }
+        chunker = new TextChunker(1500, 150, 20);
+    }
+
+    @Benchmark
+    public void regexParagraphSplit(Blackhole blackhole) {
+        StringBuilder all = new StringBuilder();
+        for (String page : pageTexts) {
+            all.append(page);
+        }
+        for (String paragraph : all.toString().split("(\\s*\\r?\\n\\s*){2,}")) {
+            String trimmed = paragraph.trim();
+            if (trimmed.length() > 20) {
+                blackhole.consume(trimmed);
+            }
+        }
+    }
+
+    @Benchmark
+    public void streamingChunker(Blackhole blackhole) {
+        TextChunker.Session session = chunker.start(blackhole::consume);
+        for (String page : pageTexts) {
+            session.accept(page);
+        }
+        session.finish();
+    }
+}
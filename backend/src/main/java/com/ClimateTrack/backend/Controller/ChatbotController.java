@@ -2,13 +2,18 @@ package com.ClimateTrack.backend.Controller;
 
 import com.ClimateTrack.backend.Entity.User;
 import com.ClimateTrack.backend.Repository.UserRepository;
+import com.ClimateTrack.backend.Service.ChatSessionService;
 import com.ClimateTrack.backend.Service.ChatbotService;
+import com.ClimateTrack.backend.Service.LlmAdmissionService;
+import org.springframework.http.HttpHeaders;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.security.Principal;
@@ -21,7 +26,9 @@ import java.util.Optional;
 public class ChatbotController {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatbotController.class);
+    private static final String SESSION_HEADER = "X-Chat-Session";
     private final ChatbotService chatbotService;
+    private final ChatSessionService chatSessionService;
 
     @Autowired // <-- 5. INJECT the UserRepository
     private UserRepository userRepository;
@@ -31,17 +38,24 @@ public class ChatbotController {
     // 2. DEFINE a new record for history messages
     public record ChatMessage(String role, String content) {}
 
-    // 3. UPDATE ChatRequest to include history
-    public record ChatRequest(String message, List<ChatMessage> history) {}
+    // 3. ChatRequest carries the new message and the id of the server-side session. 'history' is only
+    // read when a session is started, for clients that still send the whole conversation.
+    public record ChatRequest(String message, String sessionId, List<ChatMessage> history) {}
 
-    // 4. DEFINE the ChatResponse (was already here)
-    public record ChatResponse(String reply) {}
+    // 4. DEFINE the ChatResponse; sessionId is the session to send with the next message
+    public record ChatResponse(String reply, String sessionId) {
+
+        public ChatResponse(String reply) {
+            this(reply, null);
+        }
+    }
 
     // --- END CHANGES ---
 
     /**
      * Handles chatbot query requests from authenticated users.
-     * @param request ChatRequest DTO containing the user's message AND history.
+     * @param request ChatRequest DTO containing the user's message and session id; without a session id,
+     *                or with one that has expired, a new session is started and its id returned.
      * @param principal Authenticated user principal provided by Spring Security.
      * @return ResponseEntity containing the ChatResponse DTO or an error status.
      */
@@ -63,17 +77,25 @@ public class ChatbotController {
 
         logger.info("Received chatbot query from user {}: '{}'", username, request.message());
 
+        ChatSessionService.Session session = null;
         try {
-            // 3. Call Service (--- 5. PASS THE HISTORY ---)
+            // 3. Call Service with the user's conversation session
             Optional<User> userOptional = userRepository.findByUsername(username);
             User user = userOptional.orElse(null); // Get the user, or null if not found
+            session = chatSessionService.open(request.sessionId(), username, request.history());
 
-            String reply = chatbotService.getChatbotResponse(request.message(), request.history(), user);
+            String reply = chatbotService.getChatbotResponse(request.message(), session, user);
 
             // 4. Return Response
             logger.info("Sending chatbot reply to user {}.", username);
-            return ResponseEntity.ok(new ChatResponse(reply));
-
+            return ResponseEntity.ok(new ChatResponse(reply, session.getId()));
+
+        } catch (LlmAdmissionService.AdmissionRejectedException e) {
+            // The model is saturated; tell the client when to come back instead of holding the request.
+            // The session is the one opened above, which is new if the client's id was unknown or expired.
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new ChatResponse(ChatbotService.busyMessage(e), session.getId()));
         } catch (Exception e) {
             // Catch potential exceptions from the service layer (though service should handle most)
             logger.error("Unexpected error in ChatbotController for user {}: {}", username, e.getMessage(), e);
@@ -81,4 +103,37 @@ public class ChatbotController {
                     .body(new ChatResponse("An unexpected server error occurred."));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Streams the chatbot reply as Server-Sent Events ({@code token} events, then {@code done} or
+     * {@code error}), so the client can render it while it is being generated. The session id is sent in
+     * the {@code X-Chat-Session} header and in the {@code done} event.
+     * @param request ChatRequest DTO containing the user's message and session id.
+     * @param principal Authenticated user principal provided by Spring Security.
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChatbotReply(@RequestBody ChatRequest request, Principal principal) {
+        if (principal == null || principal.getName() == null) {
+            logger.warn("Unauthorized attempt to access chatbot stream endpoint.");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String username = principal.getName();
+        if (request == null || request.message() == null || request.message().trim().isEmpty()) {
+            logger.warn("Received empty message from user {}", username);
+            return ResponseEntity.badRequest().build();
+        }
+
+        logger.info("Received streamed chatbot query from user {}: '{}'", username, request.message());
+        User user = userRepository.findByUsername(username).orElse(null);
+        ChatSessionService.Session session = chatSessionService.open(request.sessionId(), username, request.history());
+        try {
+            SseEmitter emitter = chatbotService.streamChatbotResponse(request.message(), session, user);
+            return ResponseEntity.ok().header(SESSION_HEADER, session.getId()).body(emitter);
+        } catch (LlmAdmissionService.AdmissionRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .header(SESSION_HEADER, session.getId())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.ClimateTrack.backend.Controller;
+
+import com.ClimateTrack.backend.Service.FacilityDirectoryService;
+import com.ClimateTrack.backend.Service.FacilityDirectoryService.Facility;
+import com.ClimateTrack.backend.Service.FacilityDirectoryService.FacilityType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/facilities")
+@RequiredArgsConstructor
+public class FacilityController {
+
+    private final FacilityDirectoryService facilityDirectoryService;
+
+    /**
+     * Looks up emergency and administrative facilities, e.g.
+     * {@code /api/facilities?region=서울&district=강남구&type=fire}. All filters are optional.
+     */
+    @GetMapping
+    public ResponseEntity<List<Facility>> searchFacilities(
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) String district,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String phone,
+            @RequestParam(defaultValue = "20") int limit) {
+        FacilityType facilityType = null;
+        if (type != null && !type.isBlank()) {
+            try {
+                facilityType = FacilityType.valueOf(type.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        int boundedLimit = Math.max(1, Math.min(limit, 200));
+        return ResponseEntity.ok(facilityDirectoryService.search(region, district, facilityType, name, phone, boundedLimit));
+    }
+}
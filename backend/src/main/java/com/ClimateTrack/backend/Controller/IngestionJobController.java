@@ -0,0 +1,56 @@
+package com.ClimateTrack.backend.Controller;
+
+import com.ClimateTrack.backend.Service.IngestionJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/ingestion/jobs")
+@RequiredArgsConstructor
+public class IngestionJobController {
+
+    private final IngestionJobService ingestionJobService;
+
+    /**
+     * Starts a full rebuild of the vector store. 202 with the queued job, or 409 if a job is already
+     * queued or running.
+     */
+    @PostMapping
+    public ResponseEntity<IngestionJobService.JobStatus> startJob() {
+        return ingestionJobService.start()
+                .map(job -> ResponseEntity.status(HttpStatus.ACCEPTED).body(job))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    /**
+     * Recent jobs, most recent first.
+     */
+    @GetMapping
+    public ResponseEntity<List<IngestionJobService.JobStatus>> listJobs() {
+        return ResponseEntity.ok(ingestionJobService.listJobs());
+    }
+
+    /**
+     * Per-source progress, throughput and outcome of one job.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<IngestionJobService.JobStatus> getJob(@PathVariable long id) {
+        return ingestionJobService.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Cancels a queued or running job; a finished job is returned unchanged.
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<IngestionJobService.JobStatus> cancelJob(@PathVariable long id) {
+        return ingestionJobService.cancel(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,89 @@
+package com.ClimateTrack.backend.Controller;
+
+import com.ClimateTrack.backend.Service.ChatSessionService;
+import com.ClimateTrack.backend.Service.ChatbotService;
+import com.ClimateTrack.backend.Service.EmbeddingService;
+import com.ClimateTrack.backend.Service.IntentRouter;
+import com.ClimateTrack.backend.Service.LlmAdmissionService;
+import com.ClimateTrack.backend.Service.OllamaClient;
+import com.ClimateTrack.backend.Service.VectorStoreService;
+import com.ClimateTrack.backend.util.SemanticResponseCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final EmbeddingService embeddingService;
+    private final VectorStoreService vectorStoreService;
+    private final ChatbotService chatbotService;
+    private final IntentRouter intentRouter;
+    private final ChatSessionService chatSessionService;
+    private final LlmAdmissionService llmAdmissionService;
+    private final OllamaClient ollamaClient;
+
+    @GetMapping("/embedding-cache")
+    public ResponseEntity<EmbeddingService.CacheStats> getEmbeddingCacheStats() {
+        return ResponseEntity.ok(embeddingService.getCacheStats());
+    }
+
+    @GetMapping("/retrieval")
+    public ResponseEntity<VectorStoreService.RetrievalStats> getRetrievalStats() {
+        return ResponseEntity.ok(vectorStoreService.getRetrievalStats());
+    }
+
+    /**
+     * Time to first token and total time of streamed chatbot replies.
+     */
+    @GetMapping("/chat-stream")
+    public ResponseEntity<ChatbotService.StreamStats> getChatStreamStats() {
+        return ResponseEntity.ok(chatbotService.getStreamStats());
+    }
+
+    /**
+     * Hits and size of the semantic chatbot response cache.
+     */
+    @GetMapping("/response-cache")
+    public ResponseEntity<SemanticResponseCache.Stats> getResponseCacheStats() {
+        return ResponseEntity.ok(chatbotService.getResponseCacheStats());
+    }
+
+    /**
+     * Routing latency, and how often each chatbot intent was selected and its retrieval time.
+     */
+    @GetMapping("/intent-routing")
+    public ResponseEntity<IntentRouter.RouterStats> getIntentRoutingStats() {
+        return ResponseEntity.ok(intentRouter.getStats());
+    }
+
+    /**
+     * Active chatbot sessions and how often their history was compacted to fit the token budget.
+     */
+    @GetMapping("/chat-sessions")
+    public ResponseEntity<ChatSessionService.SessionStats> getChatSessionStats() {
+        return ResponseEntity.ok(chatSessionService.getStats());
+    }
+
+    /**
+     * Per chat model: slots in use, queue depth, wait and hold times, and rejected requests.
+     */
+    @GetMapping("/llm-admission")
+    public ResponseEntity<Map<String, LlmAdmissionService.ModelStats>> getLlmAdmissionStats() {
+        return ResponseEntity.ok(llmAdmissionService.getStats());
+    }
+
+    /**
+     * Ollama circuit breaker state, request and failure counts, and model load times at startup.
+     */
+    @GetMapping("/ollama")
+    public ResponseEntity<OllamaClient.OllamaStats> getOllamaStats() {
+        return ResponseEntity.ok(ollamaClient.getStats());
+    }
+}
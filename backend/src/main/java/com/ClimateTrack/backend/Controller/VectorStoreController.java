@@ -0,0 +1,111 @@
+package com.ClimateTrack.backend.Controller;
+
+import com.ClimateTrack.backend.Service.EmbeddingPipeline;
+import com.ClimateTrack.backend.Service.VectorStoreEvaluationService;
+import com.ClimateTrack.backend.Service.VectorStoreService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/vectorstore")
+@RequiredArgsConstructor
+public class VectorStoreController {
+
+    // Evaluations scan the whole corpus once per sample; larger requests are cut down to these
+    private static final int MAX_SAMPLES = 1000;
+    private static final int MAX_K = 100;
+
+    private final VectorStoreService vectorStoreService;
+    private final VectorStoreEvaluationService vectorStoreEvaluationService;
+    private final EmbeddingPipeline embeddingPipeline;
+
+    /**
+     * Readiness probe: 200 once the full index build has been published, 503 while it is still running
+     * or has failed. The body always carries the served generation and its chunk count.
+     */
+    @GetMapping("/status")
+    public ResponseEntity<VectorStoreService.IndexStatus> getStatus() {
+        VectorStoreService.IndexStatus status = vectorStoreService.getStatus();
+        return ResponseEntity.status(status.ready() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(status);
+    }
+
+    /**
+     * How many chunks the last build dropped as near-duplicates, per source file.
+     */
+    @GetMapping("/deduplication")
+    public ResponseEntity<VectorStoreService.DeduplicationReport> getDeduplicationReport() {
+        VectorStoreService.DeduplicationReport report = vectorStoreService.getDeduplicationReport();
+        return report == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(report);
+    }
+
+    /**
+     * Throughput and ETA of the current (or last) embedding run.
+     */
+    @GetMapping("/ingestion")
+    public ResponseEntity<EmbeddingPipeline.Progress> getIngestionProgress() {
+        EmbeddingPipeline.Progress progress = embeddingPipeline.currentProgress();
+        return progress == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(progress);
+    }
+
+    /**
+     * Recall-vs-latency report of the HNSW index against the exact scan on the currently indexed corpus.
+     * {@code samples} and {@code k} must be at least 1 and are capped at 1000 and 100.
+     */
+    @GetMapping("/evaluation")
+    public ResponseEntity<VectorStoreEvaluationService.IndexEvaluation> evaluateIndex(
+            @RequestParam(defaultValue = "200") int samples,
+            @RequestParam(defaultValue = "10") int k) {
+        if (samples < 1 || k < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(vectorStoreEvaluationService.evaluateApproximateIndex(
+                Math.min(samples, MAX_SAMPLES), Math.min(k, MAX_K)));
+    }
+
+    /**
+     * Recall and memory report of the int8 quantized scan against the exact float scan, with the same
+     * limits on {@code samples} and {@code k}.
+     */
+    @GetMapping("/evaluation/quantization")
+    public ResponseEntity<VectorStoreEvaluationService.QuantizationEvaluation> evaluateQuantization(
+            @RequestParam(defaultValue = "200") int samples,
+            @RequestParam(defaultValue = "10") int k) {
+        if (samples < 1 || k < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(vectorStoreEvaluationService.evaluateQuantization(
+                Math.min(samples, MAX_SAMPLES), Math.min(k, MAX_K)));
+    }
+
+    /**
+     * Recall@k, MRR and latency of each retrieval strategy over the configured golden set
+     * ({@code vectorstore.evaluation.golden-set}); 204 if none is configured.
+     */
+    @GetMapping("/evaluation/retrieval")
+    public ResponseEntity<VectorStoreEvaluationService.RetrievalEvaluation> evaluateRetrieval(
+            @RequestParam(defaultValue = "5") int k) {
+        if (k < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<VectorStoreEvaluationService.GoldenQuery> goldenSet = vectorStoreEvaluationService.loadGoldenSet();
+        return goldenSet == null ? ResponseEntity.noContent().build()
+                : ResponseEntity.ok(vectorStoreEvaluationService.evaluateRetrieval(goldenSet, Math.min(k, MAX_K)));
+    }
+
+    /**
+     * The same report for a golden set sent in the request body, of at most 1000 questions.
+     */
+    @PostMapping("/evaluation/retrieval")
+    public ResponseEntity<VectorStoreEvaluationService.RetrievalEvaluation> evaluateRetrieval(
+            @RequestBody List<VectorStoreEvaluationService.GoldenQuery> goldenSet,
+            @RequestParam(defaultValue = "5") int k) {
+        if (k < 1 || goldenSet == null || goldenSet.size() > MAX_SAMPLES) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(vectorStoreEvaluationService.evaluateRetrieval(goldenSet, Math.min(k, MAX_K)));
+    }
+}
@@ -1,14 +1,28 @@
 package com.ClimateTrack.backend.Repository;
 
 import com.ClimateTrack.backend.Entity.CommunityPost;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.geo.Distance;
 import org.springframework.data.geo.Point;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Date;
 import java.util.List;
 
 public interface CommunityPostRepository extends MongoRepository<CommunityPost, String> {
     List<CommunityPost> findByLocationNear(Point location, Distance distance);
     List<CommunityPost> findByLocationNear(GeoJsonPoint location, Distance distance);
+
+    /** The fields the chatbot puts in its prompt. */
+    interface PostSummary {
+        String getTitle();
+        String getPostedByUsername();
+        Date getPostedAt();
+    }
+
+    // Nearest first; only the summary fields are read, and the server gives up after maxExecutionTimeMs
+    @Meta(maxExecutionTimeMs = 2000)
+    List<PostSummary> findSummariesByLocationNear(GeoJsonPoint location, Distance distance, Limit limit);
 }
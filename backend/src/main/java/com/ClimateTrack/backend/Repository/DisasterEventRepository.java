@@ -1,10 +1,13 @@
 package com.ClimateTrack.backend.Repository;
 
 import com.ClimateTrack.backend.Entity.DisasterEvent;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.geo.Distance;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface DisasterEventRepository extends MongoRepository<DisasterEvent, String> {
@@ -13,4 +16,15 @@ public interface DisasterEventRepository extends MongoRepository<DisasterEvent,
 
     List<DisasterEvent> findBySource(String source);
     List<DisasterEvent> findByLocationNear(GeoJsonPoint location, Distance distance);
+
+    /** The fields the chatbot puts in its prompt. */
+    interface AlertSummary {
+        String getDisasterType();
+        String getLocationName();
+        Instant getReportedAt();
+    }
+
+    // Nearest first; only the summary fields are read, and the server gives up after maxExecutionTimeMs
+    @Meta(maxExecutionTimeMs = 2000)
+    List<AlertSummary> findSummariesByLocationNear(GeoJsonPoint location, Distance distance, Limit limit);
 }
@@ -1,7 +1,21 @@
 package com.ClimateTrack.backend.Repository;
 
 import com.ClimateTrack.backend.Entity.NewsArticle;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.List;
+
 public interface NewsArticleRepository extends MongoRepository<NewsArticle, String> {
+
+    /** The fields the chatbot puts in its prompt. */
+    interface HeadlineSummary {
+        String getTitle();
+        String getSourceName();
+    }
+
+    // Newest first, sorted and limited by the server
+    @Meta(maxExecutionTimeMs = 2000)
+    List<HeadlineSummary> findSummariesByOrderByPublishedAtDesc(Limit limit);
 }
@@ -1,10 +1,13 @@
 package com.ClimateTrack.backend.Repository;
 
 import com.ClimateTrack.backend.Entity.Report;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.geo.Distance;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface ReportRepository extends MongoRepository<Report, String> { // Corrected ID type to String
@@ -12,4 +15,16 @@ public interface ReportRepository extends MongoRepository<Report, String> { // C
     List<Report> findByPostedByUsernameOrderByReportedAtDesc(String username);
 
     List<Report> findByLocationNear(GeoJsonPoint location, Distance distance);
+
+    /** The fields the chatbot puts in its prompt. */
+    interface ReportSummary {
+        String getTitle();
+        String getDisasterType();
+        String getPostedByUsername();
+        Instant getReportedAt();
+    }
+
+    // Nearest first; only the summary fields are read, and the server gives up after maxExecutionTimeMs
+    @Meta(maxExecutionTimeMs = 2000)
+    List<ReportSummary> findSummariesByLocationNear(GeoJsonPoint location, Distance distance, Limit limit);
 }
@@ -3,12 +3,16 @@ package com.ClimateTrack.backend.Security;
 import com.ClimateTrack.backend.Entity.User;
 import com.ClimateTrack.backend.Repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -16,11 +20,19 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    // Accounts granted ROLE_ADMIN (ingestion jobs, index evaluations); none unless configured
+    @Value("${security.admin-users:}")
+    private List<String> adminUsers;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPasswordHash(), new ArrayList<>());
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        if (adminUsers.contains(user.getUsername())) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        }
+        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPasswordHash(), authorities);
     }
 }
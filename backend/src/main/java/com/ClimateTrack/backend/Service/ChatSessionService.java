@@ -0,0 +1,224 @@
+package com.ClimateTrack.backend.Service;
+
+import com.ClimateTrack.backend.Controller.ChatbotController.ChatMessage;
+import com.ClimateTrack.backend.util.TokenEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chatbot conversations kept on the server, so a client sends only its new message and a session id.
+ * Each session holds its turns within a token budget: when the estimated size of the history exceeds
+ * {@code token-budget}, the oldest turns are dropped until it is back under {@code compact-to} of the
+ * budget, and the questions of the dropped turns are kept as a short note. Compacting well below the
+ * budget means the history, and so the prompt prefix Ollama can reuse from its cache, only changes
+ * shape every few turns rather than on every one.
+ * <p>
+ * Sessions live in memory and expire after {@code idle-timeout-minutes} without a turn.
+ */
+@Service
+public class ChatSessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatSessionService.class);
+
+    // Longest excerpt of a dropped question kept in the note
+    private static final int NOTE_EXCERPT_CHARS = 160;
+
+    public record SessionStats(int activeSessions, long created, long expired, long compactions, long droppedTurns,
+                               int tokenBudget) {}
+
+    private final int tokenBudget;
+    private final int compactTarget;
+    private final int noteBudget;
+    private final long idleTimeoutMillis;
+    private final int maxSessions;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong droppedTurns = new AtomicLong();
+
+    public ChatSessionService(@Value("${chatbot.session.token-budget:1024}") int tokenBudget,
+                              @Value("${chatbot.session.compact-to:0.6}") double compactTo,
+                              @Value("${chatbot.session.idle-timeout-minutes:30}") long idleTimeoutMinutes,
+                              @Value("${chatbot.session.max-sessions:10000}") int maxSessions) {
+        this.tokenBudget = Math.max(64, tokenBudget);
+        this.compactTarget = (int) (this.tokenBudget * Math.min(1.0, Math.max(0.0, compactTo)));
+        this.noteBudget = this.tokenBudget / 4;
+        this.idleTimeoutMillis = TimeUnit.MINUTES.toMillis(idleTimeoutMinutes);
+        this.maxSessions = Math.max(1, maxSessions);
+    }
+
+    /**
+     * The session {@code sessionId} of {@code owner}, or a new one if the id is missing, has expired or
+     * belongs to someone else. A new session is seeded with {@code history}, for clients that still send
+     * the whole conversation.
+     */
+    public Session open(String sessionId, String owner, List<ChatMessage> history) {
+        if (sessionId != null) {
+            Session session = sessions.get(sessionId);
+            if (session != null && session.owner.equals(owner) && !session.isIdle(idleTimeoutMillis)) {
+                session.touch();
+                return session;
+            }
+        }
+        if (sessions.size() >= maxSessions) {
+            evictLeastRecentlyUsed();
+        }
+        Session session = new Session(UUID.randomUUID().toString(), owner);
+        if (history != null) {
+            for (ChatMessage message : history) {
+                if (message != null && message.content() != null
+                        && ("user".equals(message.role()) || "assistant".equals(message.role()))) {
+                    session.add(message);
+                }
+            }
+            compact(session);
+        }
+        sessions.put(session.id, session);
+        created.incrementAndGet();
+        return session;
+    }
+
+    /**
+     * Appends a completed turn to the session and compacts it if it is over budget.
+     */
+    public void recordTurn(Session session, String userMessage, String reply) {
+        synchronized (session) {
+            session.add(new ChatMessage("user", userMessage));
+            session.add(new ChatMessage("assistant", reply));
+            compact(session);
+            session.touch();
+        }
+    }
+
+    private void compact(Session session) {
+        synchronized (session) {
+            if (session.turnTokens <= tokenBudget) {
+                return;
+            }
+            int dropped = 0;
+            while (session.turnTokens > compactTarget && !session.turns.isEmpty()) {
+                ChatMessage message = session.turns.removeFirst();
+                session.turnTokens -= TokenEstimator.estimateMessage(message.content());
+                if ("user".equals(message.role())) {
+                    session.addNote(excerpt(message.content()), noteBudget);
+                    dropped++;
+                }
+            }
+            compactions.incrementAndGet();
+            droppedTurns.addAndGet(dropped);
+            logger.debug("Compacted chat session {}: dropped {} turns, {} tokens of history left.",
+                    session.id, dropped, session.turnTokens);
+        }
+    }
+
+    private static String excerpt(String text) {
+        String collapsed = text.strip().replaceAll("\\s+", " ");
+        return collapsed.length() <= NOTE_EXCERPT_CHARS ? collapsed : collapsed.substring(0, NOTE_EXCERPT_CHARS) + "...";
+    }
+
+    @Scheduled(fixedDelayString = "${chatbot.session.sweep-interval-ms:60000}")
+    public void expireIdleSessions() {
+        int before = sessions.size();
+        sessions.values().removeIf(session -> session.isIdle(idleTimeoutMillis));
+        int removed = before - sessions.size();
+        if (removed > 0) {
+            expired.addAndGet(removed);
+            logger.debug("Expired {} idle chat sessions.", removed);
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        sessions.values().stream()
+                .min((a, b) -> Long.compare(a.lastUsed, b.lastUsed))
+                .ifPresent(oldest -> {
+                    if (sessions.remove(oldest.id, oldest)) {
+                        expired.incrementAndGet();
+                    }
+                });
+    }
+
+    public SessionStats getStats() {
+        return new SessionStats(sessions.size(), created.get(), expired.get(), compactions.get(), droppedTurns.get(),
+                tokenBudget);
+    }
+
+    /**
+     * One conversation. Turns are only added through {@link ChatSessionService#recordTurn}.
+     */
+    public static final class Session {
+
+        private final String id;
+        private final String owner;
+        private final Deque<ChatMessage> turns = new ArrayDeque<>();
+        private final Deque<String> notes = new ArrayDeque<>();
+        private int turnTokens;
+        private int noteTokens;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private Session(String id, String owner) {
+            this.id = id;
+            this.owner = owner;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        /**
+         * Messages to send before the new one: a note on the compacted part of the conversation, if any,
+         * then the turns kept.
+         */
+        public synchronized List<ChatMessage> history() {
+            List<ChatMessage> history = new ArrayList<>(turns.size() + 1);
+            if (!notes.isEmpty()) {
+                history.add(new ChatMessage("system",
+                        "Earlier in this conversation the user asked: " + String.join(" | ", notes)));
+            }
+            history.addAll(turns);
+            return history;
+        }
+
+        public synchronized boolean isEmpty() {
+            return turns.isEmpty() && notes.isEmpty();
+        }
+
+        private void add(ChatMessage message) {
+            turns.addLast(message);
+            turnTokens += TokenEstimator.estimateMessage(message.content());
+        }
+
+        private void addNote(String note, int budget) {
+            notes.addLast(note);
+            noteTokens += TokenEstimator.estimate(note) + 1;
+            while (noteTokens > budget && notes.size() > 1) {
+                noteTokens -= TokenEstimator.estimate(notes.removeFirst()) + 1;
+            }
+        }
+
+        private void touch() {
+            lastUsed = System.currentTimeMillis();
+        }
+
+        private boolean isIdle(long idleTimeoutMillis) {
+            return System.currentTimeMillis() - lastUsed > idleTimeoutMillis;
+        }
+    }
+}
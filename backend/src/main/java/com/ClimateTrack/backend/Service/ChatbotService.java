@@ -4,26 +4,46 @@ import com.ClimateTrack.backend.Entity.*; // Import all entities
 import com.ClimateTrack.backend.Repository.*; // Import all repositories
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ClimateTrack.backend.util.ContentHash;
+import com.ClimateTrack.backend.util.LatencyStats;
+import com.ClimateTrack.backend.util.SemanticResponseCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.geo.Distance; // Import
 import org.springframework.data.geo.Metrics; // Import
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import com.ClimateTrack.backend.Controller.ChatbotController.ChatMessage;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,10 +52,14 @@ public class ChatbotService {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatbotService.class);
 
-    private final RestTemplate restTemplate;
+    private final OllamaClient ollamaClient;
     private final ObjectMapper objectMapper;
     private final VectorStoreService vectorStoreService;
     private final EmbeddingService embeddingService;
+    private final FacilityDirectoryService facilityDirectoryService;
+    private final IntentRouter intentRouter;
+    private final ChatSessionService chatSessionService;
+    private final LlmAdmissionService llmAdmissionService;
 
     // --- Inject all the repositories we need ---
     @Autowired
@@ -47,61 +71,125 @@ public class ChatbotService {
     @Autowired
     private CommunityPostRepository communityPostRepository;
 
-    @Value("${ollama.api.base.url}${ollama.api.chat.endpoint}")
-    private String ollamaChatUrl;
     @Value("${ollama.chat.model}")
     private String chatModel;
 
-    // --- Define our "intent" keywords ---
-    private static final List<String> NEAR_ME_KEYWORDS = List.of("near me", "nearby", "around me", "my location");
-    private static final List<String> HOW_TO_KEYWORDS = List.of("how to", "what is", "prepare", "manual", "guide");
-    private static final List<String> NEWS_KEYWORDS = List.of("news", "latest", "alert", "warning");
+    // Context sources are queried in parallel on their own pool, each bounded by a timeout.
+    @Value("${chatbot.context.timeout-ms:1500}")
+    private long contextTimeoutMillis;
+    @Value("${chatbot.context.threads:8}")
+    private int contextThreads;
+    @Value("${chatbot.context.item-limit:5}")
+    private int contextItemLimit;
+    private ExecutorService contextExecutor;
+
+    // Streaming replies are produced on their own pool so Tomcat threads are released right away.
+    @Value("${chatbot.stream.max-concurrent:16}")
+    private int streamMaxConcurrent;
+    @Value("${chatbot.stream.timeout-ms:180000}")
+    private long streamTimeoutMillis;
+
+    private ExecutorService streamExecutor;
+    private final LatencyStats timeToFirstToken = new LatencyStats();
+    private final LatencyStats streamDuration = new LatencyStats();
+    private final AtomicLong cancelledStreams = new AtomicLong();
+    private final AtomicLong failedStreams = new AtomicLong();
+
+    // Answers to first-turn questions, reused for paraphrases asked against the same retrieved context.
+    @Value("${chatbot.cache.enabled:true}")
+    private boolean responseCacheEnabled;
+    @Value("${chatbot.cache.similarity-threshold:0.95}")
+    private float responseCacheThreshold;
+    @Value("${chatbot.cache.ttl-seconds:600}")
+    private long responseCacheTtlSeconds;
+    @Value("${chatbot.cache.max-entries:2000}")
+    private int responseCacheMaxEntries;
+    private SemanticResponseCache responseCache;
+
+    /**
+     * Latency of streamed replies: from the request reaching the server to the first token sent to the
+     * client, and to the end of the reply. Cancelled streams are those whose client went away first.
+     */
+    public record StreamStats(LatencyStats.Snapshot timeToFirstToken, LatencyStats.Snapshot completion,
+                              long cancelled, long failed) {}
+
+    /**
+     * Context for one query: the user's location block, the blocks retrieved for the query's intent, and
+     * whether every source behind those blocks could be read.
+     */
+    private record QueryContext(String location, String retrieved, boolean complete) {}
+
+    /**
+     * Response cache key: the question's embedding and a fingerprint of the model and retrieved context.
+     */
+    private record CacheKey(float[] question, ContentHash context) {}
+
+    private static final String SYSTEM_PROMPT = "You are a helpful assistant for ClimateTrack. You answer user queries based on the CONTEXT given with each message. If no context is relevant, you have a normal conversation.";
+
+    @PostConstruct
+    void initExecutors() {
+        streamExecutor = Executors.newFixedThreadPool(Math.max(1, streamMaxConcurrent), daemonThreads("chat-stream-"));
+        contextExecutor = Executors.newFixedThreadPool(Math.max(1, contextThreads), daemonThreads("chat-context-"));
+    }
+
+    @PostConstruct
+    void initResponseCache() {
+        responseCache = new SemanticResponseCache(responseCacheThreshold,
+                TimeUnit.SECONDS.toMillis(responseCacheTtlSeconds), responseCacheMaxEntries);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    void shutdownExecutors() {
+        streamExecutor.shutdownNow();
+        contextExecutor.shutdownNow();
+    }
 
     /**
-     * Main method to get the chatbot response.
+     * Main method to get the chatbot response. The turn is added to {@code session} once answered.
+     * @throws LlmAdmissionService.AdmissionRejectedException if the model is too busy to take the request.
      */
-    public String getChatbotResponse(String userMessage, List<ChatMessage> history, User user) {
+    public String getChatbotResponse(String userMessage, ChatSessionService.Session session, User user) {
         if (userMessage == null || userMessage.trim().isEmpty()) {
             return "Please provide a message to the chatbot.";
         }
         logger.info("Processing chatbot query: '{}'", userMessage);
 
         try {
-            // 1. Build the context string based on query intent
-            String context = buildContextForQuery(userMessage, user);
-
-            // 2. Construct the prompt
-            String systemPrompt = "You are a helpful assistant for ClimateTrack. You answer user queries based on the provided context. If no context is relevant, you have a normal conversation.\n\n" +
-                    "CONTEXT:\n" +
-                    (context.isEmpty() ? "No relevant context found." : context);
-
-            logger.debug("Constructed system prompt. Sending to LLM.");
-
-            // 3. Call Ollama Chat API
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", chatModel);
-            requestBody.put("stream", false);
-
-            List<Map<String, String>> messageList = new ArrayList<>();
-            messageList.add(Map.of("role", "system", "content", systemPrompt));
-            if (history != null) {
-                for (ChatMessage msg : history) {
-                    messageList.add(Map.of("role", msg.role(), "content", msg.content()));
-                }
+            List<ChatMessage> history = session.history();
+
+            // 1. Build the context for the query's intent; a paraphrase of a question already answered
+            // from the same context is served from the cache
+            QueryContext context = buildContextForQuery(userMessage, user);
+            CacheKey cacheKey = responseCacheKey(userMessage, history, context);
+            String cached = cachedResponse(cacheKey);
+            if (cached != null) {
+                chatSessionService.recordTurn(session, userMessage, cached);
+                return cached;
             }
-            messageList.add(Map.of("role", "user", "content", userMessage));
-            requestBody.put("messages", messageList);
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(ollamaChatUrl, entity, String.class);
+            // 2. Build the prompt around the context
+            Map<String, Object> requestBody = buildChatRequest(userMessage, history, context, false);
+
+            // 3. Wait for a generation slot, then call Ollama Chat API; an overloaded model turns the
+            // request away here, before anything has been sent to the client
+            String response;
+            try (LlmAdmissionService.Ticket ticket = llmAdmissionService.enqueue(chatModel, session.getOwner())) {
+                ticket.await();
+                response = ollamaClient.chat(requestBody);
+            }
 
             // 4. Parse and return the response
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
+            if (response != null) {
+                JsonNode root = objectMapper.readTree(response);
                 String assistantResponse = root.path("message").path("content").asText();
 
                 if (assistantResponse.isEmpty()) {
@@ -109,14 +197,21 @@ public class ChatbotService {
                     return "Sorry, I received an empty response. Could you try rephrasing?";
                 }
                 logger.info("Successfully received chatbot response.");
+                cacheResponse(cacheKey, assistantResponse.trim());
+                chatSessionService.recordTurn(session, userMessage, assistantResponse.trim());
                 return assistantResponse.trim();
             } else {
-                logger.error("Ollama Chat API request failed with status {}: {}", response.getStatusCode(), response.getBody());
+                logger.error("Ollama Chat API returned an empty body.");
                 return "Sorry, there was an issue communicating with the AI service.";
             }
 
+        } catch (LlmAdmissionService.AdmissionRejectedException e) {
+            throw e;
+        } catch (OllamaClient.OllamaUnavailableException e) {
+            logger.warn("Chatbot query not sent: {}", e.getMessage());
+            return "Sorry, I couldn't reach the AI service due to a network issue.";
         } catch (RestClientException e) {
-            logger.error("Network or client error calling Ollama Chat API at {}: {}", ollamaChatUrl, e.getMessage(), e);
+            logger.error("Network or client error calling Ollama Chat API: {}", e.getMessage(), e);
             return "Sorry, I couldn't reach the AI service due to a network issue.";
         } catch (Exception e) {
             logger.error("Error processing chatbot request for message '{}': {}", userMessage, e.getMessage(), e);
@@ -125,103 +220,427 @@ public class ChatbotService {
     }
 
     /**
-     * Helper method to build the context string based on user intent.
+     * Streams the reply as Server-Sent Events: a {@code token} event per generated token, then
+     * {@code done} with the full reply, or {@code error} with a user-facing message. Ollama's NDJSON
+     * stream is relayed as it arrives; if the client disconnects or the emitter times out, the upstream
+     * request is closed so Ollama stops generating.
+     * <p>
+     * The admission ticket is taken here, on the request thread, so a full queue is turned away before the
+     * response is committed and every stream waiting for a worker counts against the queue. A stream
+     * answered from the response cache gives its ticket back without waiting for a slot.
+     * @throws LlmAdmissionService.AdmissionRejectedException if the model's queue, or the user's share of
+     *         it, is full; a stream that waits past the deadline gets an {@code error} event instead.
      */
-    private String buildContextForQuery(String userMessage, User user) {
-        String userMessageLower = userMessage.toLowerCase();
+    public SseEmitter streamChatbotResponse(String userMessage, ChatSessionService.Session session, User user) {
+        long receivedAt = System.nanoTime();
+        LlmAdmissionService.Ticket ticket = llmAdmissionService.enqueue(chatModel, session.getOwner());
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        StreamHandle handle = new StreamHandle();
+        emitter.onCompletion(handle::cancel);
+        emitter.onTimeout(handle::cancel);
+        emitter.onError(e -> handle.cancel());
+        try {
+            streamExecutor.execute(() -> relayStream(userMessage, session, user, ticket, emitter, handle, receivedAt));
+        } catch (RejectedExecutionException e) {
+            // Only when shutting down: the ticket caps how many streams can be waiting for a worker
+            ticket.close();
+            logger.warn("Chatbot stream rejected, the stream executor is shut down.");
+            sendError(emitter, Map.of("message", "Sorry, there was an issue communicating with the AI service."));
+        }
+        return emitter;
+    }
+
+    private void relayStream(String userMessage, ChatSessionService.Session session, User user,
+                             LlmAdmissionService.Ticket ticket, SseEmitter emitter, StreamHandle handle,
+                             long receivedAt) {
+        logger.info("Processing streamed chatbot query: '{}'", userMessage);
+        boolean[] first = {true};
+        try (ticket) {
+            List<ChatMessage> history = session.history();
+            QueryContext context = buildContextForQuery(userMessage, user);
+            CacheKey cacheKey = responseCacheKey(userMessage, history, context);
+            String cached = cachedResponse(cacheKey);
+            if (cached != null) {
+                ticket.close();
+                // The whole answer goes out as a single token
+                timeToFirstToken.record(System.nanoTime() - receivedAt);
+                send(emitter, handle, SseEmitter.event().name("token").data(Map.of("content", cached)));
+                send(emitter, handle, SseEmitter.event().name("done")
+                        .data(Map.of("reply", cached, "sessionId", session.getId())));
+                emitter.complete();
+                streamDuration.record(System.nanoTime() - receivedAt);
+                chatSessionService.recordTurn(session, userMessage, cached);
+                return;
+            }
+            ticket.await();
+            String reply = streamReply(buildChatRequest(userMessage, history, context, true), handle, token -> {
+                if (first[0]) {
+                    timeToFirstToken.record(System.nanoTime() - receivedAt);
+                    first[0] = false;
+                }
+                send(emitter, handle, SseEmitter.event().name("token").data(Map.of("content", token)));
+            });
+            ticket.close();
+            if (handle.isCancelled()) {
+                throw new IOException("Client disconnected");
+            }
+            send(emitter, handle, SseEmitter.event().name("done")
+                    .data(Map.of("reply", reply.trim(), "sessionId", session.getId())));
+            emitter.complete();
+            streamDuration.record(System.nanoTime() - receivedAt);
+            if (!reply.isBlank()) {
+                cacheResponse(cacheKey, reply.trim());
+                chatSessionService.recordTurn(session, userMessage, reply.trim());
+            }
+        } catch (Exception e) {
+            if (handle.isCancelled()) {
+                cancelledStreams.incrementAndGet();
+                logger.info("Chatbot stream cancelled after {} ms: {}", (System.nanoTime() - receivedAt) / 1_000_000,
+                        e.getMessage());
+                return;
+            }
+            failedStreams.incrementAndGet();
+            Map<String, Object> error;
+            if (e instanceof LlmAdmissionService.AdmissionRejectedException rejected) {
+                logger.warn("Chatbot stream not admitted: {}", e.getMessage());
+                error = Map.of("message", busyMessage(rejected), "retryAfterSeconds", rejected.getRetryAfterSeconds());
+            } else {
+                logger.error("Error streaming chatbot response for message '{}': {}", userMessage, e.getMessage(), e);
+                error = Map.of("message", "Sorry, there was an issue communicating with the AI service.");
+            }
+            sendError(emitter, error);
+        }
+    }
+
+    private static void sendError(SseEmitter emitter, Map<String, Object> error) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(error));
+            emitter.complete();
+        } catch (Exception sendFailure) {
+            emitter.completeWithError(sendFailure);
+        }
+    }
+
+    /**
+     * User-facing message for a request the model was too busy to take.
+     */
+    public static String busyMessage(LlmAdmissionService.AdmissionRejectedException rejected) {
+        return "The assistant is busy right now. Please try again in " + rejected.getRetryAfterSeconds() + " seconds.";
+    }
+
+    /**
+     * Sends one event; a failed send means the client has gone, so the upstream request is cancelled.
+     */
+    private static void send(SseEmitter emitter, StreamHandle handle, SseEmitter.SseEventBuilder event)
+            throws IOException {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            handle.cancel();
+            throw e;
+        }
+    }
+
+    private interface TokenListener {
+        void onToken(String token) throws IOException;
+    }
+
+    /**
+     * Posts a streaming chat request to Ollama and passes each token of its NDJSON response to
+     * {@code listener} as the line arrives.
+     * @return the whole reply, or what was generated before {@code handle} was cancelled.
+     */
+    private String streamReply(Map<String, Object> requestBody, StreamHandle handle, TokenListener listener)
+            throws IOException, InterruptedException {
+        OllamaClient.StreamResponse response = ollamaClient.streamChat(requestBody);
+        handle.attach(response.body());
+        StringBuilder reply = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            if (response.statusCode() != HttpStatus.OK.value()) {
+                throw new IOException("Ollama Chat API returned status " + response.statusCode() + ": " + reader.readLine());
+            }
+            String line;
+            while (!handle.isCancelled() && (line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode chunk = objectMapper.readTree(line);
+                if (chunk.hasNonNull("error")) {
+                    throw new IOException("Ollama Chat API error: " + chunk.path("error").asText());
+                }
+                String token = chunk.path("message").path("content").asText("");
+                if (!token.isEmpty()) {
+                    reply.append(token);
+                    listener.onToken(token);
+                }
+                if (chunk.path("done").asBoolean(false)) {
+                    break;
+                }
+            }
+        }
+        return reply.toString();
+    }
+
+    /**
+     * Cancellation of one streamed reply. Cancelling closes the upstream response body, which aborts
+     * the HTTP exchange with Ollama and unblocks a reader waiting for the next line.
+     */
+    private static final class StreamHandle {
+
+        private volatile boolean cancelled;
+        private volatile InputStream body;
+
+        void attach(InputStream body) {
+            this.body = body;
+            if (cancelled) {
+                closeQuietly(body);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            InputStream current = body;
+            if (current != null) {
+                closeQuietly(current);
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        private static void closeQuietly(InputStream stream) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                logger.debug("Error closing Ollama stream: {}", e.getMessage());
+            }
+        }
+    }
+
+    public StreamStats getStreamStats() {
+        return new StreamStats(timeToFirstToken.snapshot(), streamDuration.snapshot(), cancelledStreams.get(),
+                failedStreams.get());
+    }
+
+    public SemanticResponseCache.Stats getResponseCacheStats() {
+        return responseCache.stats();
+    }
+
+    /**
+     * The cache key of a reply, or null if the reply must not be cached: the cache is off, the question
+     * follows earlier turns (the answer depends on them), a context source was unavailable, or the
+     * question could not be embedded. The context fingerprint covers everything the prompt carries
+     * besides the question, the user's location block included, so an answer is only reused for the same
+     * location and never served to a user elsewhere.
+     */
+    private CacheKey responseCacheKey(String userMessage, List<ChatMessage> history, QueryContext context) {
+        if (!responseCacheEnabled || !history.isEmpty() || !context.complete()) {
+            return null;
+        }
+        try {
+            return new CacheKey(embeddingService.generateEmbedding(userMessage.trim()),
+                    ContentHash.of(chatModel, context.location(), context.retrieved()));
+        } catch (RuntimeException e) {
+            logger.warn("Could not embed the chatbot query for the response cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String cachedResponse(CacheKey key) {
+        if (key == null) {
+            return null;
+        }
+        String cached = responseCache.get(key.question(), key.context());
+        if (cached != null) {
+            logger.info("Answered chatbot query from the response cache.");
+        }
+        return cached;
+    }
+
+    private void cacheResponse(CacheKey key, String reply) {
+        if (key != null) {
+            responseCache.put(key.question(), key.context(), reply);
+        }
+    }
+
+    /**
+     * Request body for Ollama's chat API: the fixed system prompt, the session's history, and the user's
+     * message with the context for its intent. The context changes with every message, so it goes last:
+     * the system prompt and history then form a prefix that stays the same from one turn to the next
+     * (until the session is compacted), and Ollama can reuse its cached evaluation of it.
+     */
+    private Map<String, Object> buildChatRequest(String userMessage, List<ChatMessage> history,
+                                                 QueryContext queryContext, boolean stream) {
+        String context = queryContext.location() + queryContext.retrieved();
+        String userPrompt = "CONTEXT:\n" +
+                (context.isEmpty() ? "No relevant context found." : context) +
+                "\n\nMESSAGE:\n" + userMessage;
+        logger.debug("Constructed prompt. Sending to LLM.");
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", chatModel);
+        requestBody.put("stream", stream);
+
+        List<Map<String, String>> messageList = new ArrayList<>();
+        messageList.add(Map.of("role", "system", "content", SYSTEM_PROMPT));
+        for (ChatMessage msg : history) {
+            messageList.add(Map.of("role", msg.role(), "content", msg.content()));
+        }
+        messageList.add(Map.of("role", "user", "content", userPrompt));
+        requestBody.put("messages", messageList);
+        return requestBody;
+    }
+
+    /**
+     * Helper method to build the context based on user intent. The intent router may select several
+     * intents; their sources are queried together and appended in a fixed order.
+     */
+    private QueryContext buildContextForQuery(String userMessage, User user) {
         StringBuilder contextBuilder = new StringBuilder();
+        boolean complete = true;
         GeoJsonPoint userLocation = (user != null) ? user.getLastKnownLocation() : null;
 
         // --- Add User Location Context (Always helpful) ---
+        String locationContext = "";
         if (userLocation != null) {
-            contextBuilder.append("--- START USER LOCATION ---\n");
-            contextBuilder.append(String.format("The user's current location is: (Latitude: %f, Longitude: %f)\n",
-                    userLocation.getY(), userLocation.getX()));
-            contextBuilder.append("--- END USER LOCATION ---\n\n");
+            locationContext = "--- START USER LOCATION ---\n" +
+                    String.format("The user's current location is: (Latitude: %f, Longitude: %f)\n",
+                            userLocation.getY(), userLocation.getX()) +
+                    "--- END USER LOCATION ---\n\n";
         }
 
-        // --- Intent 1: "Near Me" ---
-        if (containsKeyword(userMessageLower, NEAR_ME_KEYWORDS) && userLocation != null) {
-            logger.info("Query matches 'Near Me' intent. Fetching local data.");
+        IntentRouter.Route route = intentRouter.route(userMessage);
+        boolean nearMe = route.has(IntentRouter.Intent.NEAR_ME) && userLocation != null;
+
+        // --- Start the database queries first; they run on the context pool while the rest is built ---
+        CompletableFuture<List<DisasterEventRepository.AlertSummary>> alerts = null;
+        CompletableFuture<List<ReportRepository.ReportSummary>> reports = null;
+        CompletableFuture<List<CommunityPostRepository.PostSummary>> posts = null;
+        CompletableFuture<List<NewsArticleRepository.HeadlineSummary>> news = null;
+        long start = System.nanoTime();
+        if (nearMe) {
             Distance distance = new Distance(20, Metrics.KILOMETERS); // 20km radius
+            Limit limit = Limit.of(contextItemLimit);
+            // The three sources are queried at once, each reading only the nearest few documents
+            alerts = fetchContext("nearby alerts",
+                    () -> disasterEventRepository.findSummariesByLocationNear(userLocation, distance, limit));
+            reports = fetchContext("nearby user reports",
+                    () -> reportRepository.findSummariesByLocationNear(userLocation, distance, limit));
+            posts = fetchContext("nearby community posts",
+                    () -> communityPostRepository.findSummariesByLocationNear(userLocation, distance, limit));
+        }
+        if (route.has(IntentRouter.Intent.NEWS)) {
+            news = fetchContext("latest news",
+                    () -> newsArticleRepository.findSummariesByOrderByPublishedAtDesc(Limit.of(contextItemLimit)));
+        }
 
-            // Fetch nearby alerts
-            List<DisasterEvent> alerts = disasterEventRepository.findByLocationNear(userLocation, distance);
-            if (!alerts.isEmpty()) {
-                contextBuilder.append("--- START NEARBY ALERTS ---\n");
-                alerts.stream().limit(5).forEach(alert -> {
-                    contextBuilder.append(String.format("Alert: %s at %s. (Reported: %s)\n",
-                            alert.getDisasterType(), alert.getLocationName(), alert.getReportedAt()));
-                });
-                contextBuilder.append("--- END NEARBY ALERTS ---\n\n");
-            }
+        // --- Intent 1: "Near Me" ---
+        if (nearMe) {
+            logger.info("Query matches 'Near Me' intent. Fetching local data.");
+            complete &= appendSection(contextBuilder, "NEARBY ALERTS", alerts.join(), alert -> String.format(
+                    "Alert: %s at %s. (Reported: %s)", alert.getDisasterType(), alert.getLocationName(), alert.getReportedAt()));
+            complete &= appendSection(contextBuilder, "NEARBY USER REPORTS", reports.join(), report -> String.format(
+                    "Report: '%s' (%s) by %s. (Reported: %s)", report.getTitle(), report.getDisasterType(),
+                    report.getPostedByUsername(), report.getReportedAt()));
+            complete &= appendSection(contextBuilder, "NEARBY COMMUNITY POSTS", posts.join(), post -> String.format(
+                    "Post: '%s' by %s. (Posted: %s)", post.getTitle(), post.getPostedByUsername(), post.getPostedAt()));
+            intentRouter.recordRetrieval(IntentRouter.Intent.NEAR_ME, System.nanoTime() - start);
+        }
 
-            // Fetch nearby user reports
-            List<Report> reports = reportRepository.findByLocationNear(userLocation, distance);
-            if (!reports.isEmpty()) {
-                contextBuilder.append("--- START NEARBY USER REPORTS ---\n");
-                reports.stream().limit(5).forEach(report -> {
-                    contextBuilder.append(String.format("Report: '%s' (%s) by %s. (Reported: %s)\n",
-                            report.getTitle(), report.getDisasterType(), report.getPostedByUsername(), report.getReportedAt()));
-                });
-                contextBuilder.append("--- END NEARBY USER REPORTS ---\n\n");
-            }
-
-            // Fetch nearby community posts
-            List<CommunityPost> posts = communityPostRepository.findByLocationNear(userLocation, distance);
-            if (!posts.isEmpty()) {
-                contextBuilder.append("--- START NEARBY COMMUNITY POSTS ---\n");
-                posts.stream().limit(5).forEach(post -> {
-                    contextBuilder.append(String.format("Post: '%s' by %s. (Posted: %s)\n",
-                            post.getTitle(), post.getPostedByUsername(), post.getPostedAt()));
-                });
-                contextBuilder.append("--- END NEARBY COMMUNITY POSTS ---\n\n");
+        // --- Intent 2: "Facility lookup" (e.g. "fire station in 강남구"), answered from the directory ---
+        List<FacilityDirectoryService.Facility> facilities = facilityDirectoryService.findForMessage(userMessage, 5);
+        if (!facilities.isEmpty()) {
+            logger.info("Query matches 'Facility' intent. {} facilities found in the directory.", facilities.size());
+            contextBuilder.append("--- START EMERGENCY FACILITIES ---\n");
+            for (FacilityDirectoryService.Facility facility : facilities) {
+                contextBuilder.append(String.format("%s (%s): %s%s\n", facility.name(), facility.category(),
+                        facility.address(), facility.phone() == null ? "" : ", phone " + facility.phone()));
             }
+            contextBuilder.append("--- END EMERGENCY FACILITIES ---\n\n");
+        }
 
-            // --- Intent 2: "How-To / Info" ---
-        } else if (containsKeyword(userMessageLower, HOW_TO_KEYWORDS)) {
+        // --- Intent 3: "How-To / Info" ---
+        if (route.has(IntentRouter.Intent.HOW_TO)) {
             logger.info("Query matches 'How-To' intent. Fetching from Vector Store.");
-            float[] queryEmbedding = embeddingService.generateEmbedding(userMessage);
-            List<String> relevantChunks = vectorStoreService.findSimilarChunks(queryEmbedding, 3);
-            if (!relevantChunks.isEmpty()) {
+            long retrievalStart = System.nanoTime();
+            List<VectorStoreService.Passage> passages = vectorStoreService.retrievePassages(userMessage.trim(), 3);
+            intentRouter.recordRetrieval(IntentRouter.Intent.HOW_TO, System.nanoTime() - retrievalStart);
+            if (!passages.isEmpty()) {
                 contextBuilder.append("--- START RELEVANT GUIDES ---\n");
-                contextBuilder.append(String.join("\n\n---\n\n", relevantChunks));
+                contextBuilder.append(passages.stream().map(ChatbotService::formatPassage)
+                        .collect(Collectors.joining("\n\n---\n\n")));
                 contextBuilder.append("\n--- END RELEVANT GUIDES ---\n\n");
             }
+        }
 
-            // --- Intent 3: "General News / Alerts" (but not "near me") ---
-        } else if (containsKeyword(userMessageLower, NEWS_KEYWORDS)) {
+        // --- Intent 4: "General News / Alerts" ---
+        if (news != null) {
             logger.info("Query matches 'General News' intent. Fetching latest articles.");
-            List<NewsArticle> news = newsArticleRepository.findAll(); // In a real app, sort by date and limit
-            if (!news.isEmpty()) {
-                contextBuilder.append("--- START LATEST NEWS ---\n");
-                news.stream()
-                        .sorted((a1, a2) -> a2.getPublishedAt().compareTo(a1.getPublishedAt())) // Sort newest first
-                        .limit(5)
-                        .forEach(article -> {
-                            contextBuilder.append(String.format("News: %s (Source: %s)\n",
-                                    article.getTitle(), article.getSourceName()));
-                        });
-                contextBuilder.append("--- END LATEST NEWS ---\n\n");
-            }
+            complete &= appendSection(contextBuilder, "LATEST NEWS", news.join(), article -> String.format(
+                    "News: %s (Source: %s)", article.getTitle(), article.getSourceName()));
+            intentRouter.recordRetrieval(IntentRouter.Intent.NEWS, System.nanoTime() - start);
         }
-        // --- Intent 4: "Greeting" ---
+        // --- Intent 5: "Greeting" ---
         // If no intent is matched, the contextBuilder remains (mostly) empty.
         // The LLM will just see the user's location and "No relevant context found."
         // This is fine and will result in a simple conversational reply.
 
-        return contextBuilder.toString();
+        return new QueryContext(locationContext, contextBuilder.toString(), complete);
     }
 
     /**
-     * Helper to check if a string contains any keyword from a list.
+     * A guide passage followed by the document and pages it was taken from, so the reply can cite them.
      */
-    private boolean containsKeyword(String message, List<String> keywords) {
-        for (String keyword : keywords) {
-            if (message.contains(keyword)) {
-                return true;
-            }
+    private static String formatPassage(VectorStoreService.Passage passage) {
+        if (passage.source() == null) {
+            return passage.text();
+        }
+        String pages = passage.firstPage() <= 0 ? ""
+                : passage.lastPage() > passage.firstPage()
+                        ? ", pages " + passage.firstPage() + "-" + passage.lastPage()
+                        : ", page " + passage.firstPage();
+        return passage.text() + "\n(Source: " + passage.source() + pages + ")";
+    }
+
+    /**
+     * Runs one context query on the context pool. The future completes with null if the query fails or
+     * takes longer than {@code contextTimeoutMillis}, so a slow source cannot hold up the reply.
+     */
+    private <T> CompletableFuture<List<T>> fetchContext(String name, Supplier<List<T>> query) {
+        long start = System.nanoTime();
+        return CompletableFuture.supplyAsync(query, contextExecutor)
+                .exceptionally(e -> {
+                    logger.warn("Failed to load {} for the chatbot context: {}", name, e.getMessage());
+                    return null;
+                })
+                .completeOnTimeout(null, contextTimeoutMillis, TimeUnit.MILLISECONDS)
+                .thenApply(result -> {
+                    if (result == null && System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(contextTimeoutMillis)) {
+                        logger.warn("Timed out loading {} for the chatbot context after {} ms.", name, contextTimeoutMillis);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Appends a START/END block with one line per item. A source that could not be loaded ({@code null})
+     * gets a one-line note instead, so the model does not take its absence as "nothing reported".
+     * @return false if the source could not be loaded.
+     */
+    private static <T> boolean appendSection(StringBuilder context, String title, List<T> items, Function<T, String> line) {
+        if (items == null) {
+            context.append("(").append(title).append(" are temporarily unavailable.)\n\n");
+            return false;
+        }
+        if (items.isEmpty()) {
+            return true;
+        }
+        context.append("--- START ").append(title).append(" ---\n");
+        for (T item : items) {
+            context.append(line.apply(item)).append('\n');
         }
-        return false;
+        context.append("--- END ").append(title).append(" ---\n\n");
+        return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,292 @@
+package com.ClimateTrack.backend.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Batched, concurrent embedding of ingestion items.
+ * <p>
+ * Producers hand items to a {@link Run} through a bounded queue and block when it is full.
+ * A dispatcher thread groups queued items into batches for Ollama's batch endpoint and keeps
+ * at most {@code concurrency} batch requests in flight, so cold-index time is bounded by what the
+ * Ollama server can process rather than by one network round-trip per chunk.
+ * <p>
+ * A batch that fails is retried up to {@code maxAttempts} times with jittered exponential backoff, so a
+ * restarting Ollama server stalls the run instead of dropping chunks; only batches that still fail are
+ * counted as failed and handed to the run's failure callback.
+ */
+@Service
+public class EmbeddingPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingPipeline.class);
+
+    private final EmbeddingService embeddingService;
+    private final int batchSize;
+    private final int concurrency;
+    private final int queueCapacity;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private volatile Run<?> currentRun;
+
+    /**
+     * Point-in-time view of a run. {@code etaSeconds} is -1 while the total is unknown or nothing has
+     * been embedded yet.
+     */
+    public record Progress(long queued, long embedded, long failed, long retried, long expectedTotal,
+                           double chunksPerSecond, long etaSeconds, boolean finished, boolean cancelled) {}
+
+    public EmbeddingPipeline(EmbeddingService embeddingService,
+                             @Value("${ingestion.embedding.batch-size:32}") int batchSize,
+                             @Value("${ingestion.embedding.concurrency:4}") int concurrency,
+                             @Value("${ingestion.embedding.queue-capacity:512}") int queueCapacity,
+                             @Value("${ingestion.embedding.max-attempts:4}") int maxAttempts,
+                             @Value("${ingestion.embedding.retry-backoff-ms:500}") long retryBackoffMillis,
+                             @Value("${ingestion.embedding.max-backoff-ms:10000}") long maxBackoffMillis) {
+        this.embeddingService = embeddingService;
+        this.batchSize = Math.max(1, batchSize);
+        this.concurrency = Math.max(1, concurrency);
+        this.queueCapacity = Math.max(this.batchSize, queueCapacity);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = Math.max(1, retryBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.retryBackoffMillis, maxBackoffMillis);
+    }
+
+    /**
+     * Starts a run. {@code sink} receives every successfully embedded item and is called from several
+     * worker threads at once, so it must be thread-safe.
+     */
+    public <T> Run<T> start(String name, Function<T, String> textOf, BiConsumer<T, float[]> sink) {
+        return start(name, textOf, sink, item -> {});
+    }
+
+    /**
+     * As {@link #start(String, Function, BiConsumer)}; {@code onFailure} receives every item whose batch
+     * still failed after the last retry, also from worker threads.
+     */
+    public <T> Run<T> start(String name, Function<T, String> textOf, BiConsumer<T, float[]> sink,
+                            Consumer<T> onFailure) {
+        Run<T> run = new Run<>(name, textOf, sink, onFailure);
+        currentRun = run;
+        return run;
+    }
+
+    /**
+     * Progress of the most recently started run, or null if none has been started.
+     */
+    public Progress currentProgress() {
+        Run<?> run = currentRun;
+        return run == null ? null : run.progress();
+    }
+
+    public final class Run<T> {
+
+        private final Object endOfInput = new Object();
+
+        private final String name;
+        private final Function<T, String> textOf;
+        private final BiConsumer<T, float[]> sink;
+        private final Consumer<T> onFailure;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final Semaphore inFlight = new Semaphore(concurrency);
+        private final ExecutorService workers;
+        private final Thread dispatcher;
+
+        private final AtomicLong queued = new AtomicLong();
+        private final AtomicLong embedded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong retried = new AtomicLong();
+        private volatile long expectedTotal = -1;
+        private volatile boolean finished;
+        private volatile boolean cancelled;
+        private final long startedAt = System.nanoTime();
+        private long lastLogAt = startedAt;
+
+        private Run(String name, Function<T, String> textOf, BiConsumer<T, float[]> sink, Consumer<T> onFailure) {
+            this.name = name;
+            this.textOf = textOf;
+            this.sink = sink;
+            this.onFailure = onFailure;
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+                Thread thread = new Thread(runnable, "embedding-" + name + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.dispatcher = new Thread(this::dispatch, "embedding-" + name + "-dispatcher");
+            this.dispatcher.setDaemon(true);
+            this.dispatcher.start();
+        }
+
+        /**
+         * Sets the number of items expected in total, used for the ETA. May be called at any time.
+         */
+        public void expectTotal(long total) {
+            this.expectedTotal = total;
+        }
+
+        /**
+         * Queues an item for embedding, blocking while the queue is full.
+         * @throws CancellationException if the run has been cancelled.
+         */
+        public void submit(T item) throws InterruptedException {
+            if (cancelled) {
+                throw new CancellationException("Embedding run '" + name + "' was cancelled");
+            }
+            queue.put(item);
+            queued.incrementAndGet();
+        }
+
+        /**
+         * Drops queued items and stops sending batches; batches already in flight still complete.
+         * {@link #finish()} must still be called to release the run's threads.
+         */
+        public void cancel() {
+            cancelled = true;
+            queue.clear();
+            logger.info("Embedding run '{}' cancelled.", name);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Signals that no more items will be submitted and waits until every queued item has been
+         * embedded or has failed.
+         */
+        public Progress finish() throws InterruptedException {
+            queue.put(endOfInput);
+            dispatcher.join();
+            inFlight.acquire(concurrency);
+            inFlight.release(concurrency);
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+            finished = true;
+            Progress progress = progress();
+            logger.info("Embedding run '{}' finished: {} embedded, {} failed, {} retried, {} chunks/sec.",
+                    name, progress.embedded(), progress.failed(), progress.retried(),
+                    String.format("%.1f", progress.chunksPerSecond()));
+            return progress;
+        }
+
+        public Progress progress() {
+            long done = embedded.get();
+            double elapsedSeconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+            double rate = elapsedSeconds > 0 ? done / elapsedSeconds : 0;
+            long total = expectedTotal;
+            long eta = -1;
+            if (total >= 0 && rate > 0) {
+                eta = (long) Math.ceil(Math.max(0, total - done - failed.get()) / rate);
+            }
+            return new Progress(queued.get(), done, failed.get(), retried.get(), total, rate, eta, finished, cancelled);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void dispatch() {
+            List<T> batch = new ArrayList<>(batchSize);
+            try {
+                while (true) {
+                    // Wait briefly for a full batch, but flush a partial one rather than stall the tail.
+                    Object next = batch.isEmpty() ? queue.take() : queue.poll(200, TimeUnit.MILLISECONDS);
+                    if (next == endOfInput || cancelled) {
+                        break;
+                    }
+                    if (next != null) {
+                        batch.add((T) next);
+                    }
+                    if (batch.size() >= batchSize || (next == null && !batch.isEmpty())) {
+                        send(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty() && !cancelled) {
+                    send(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Embedding run '{}' dispatcher interrupted.", name);
+            }
+        }
+
+        private void send(List<T> batch) throws InterruptedException {
+            inFlight.acquire();
+            workers.execute(() -> {
+                try {
+                    List<String> texts = new ArrayList<>(batch.size());
+                    for (T item : batch) {
+                        texts.add(textOf.apply(item));
+                    }
+                    List<float[]> embeddings = embedWithRetry(texts);
+                    for (int i = 0; i < batch.size(); i++) {
+                        sink.accept(batch.get(i), embeddings.get(i));
+                    }
+                    embedded.addAndGet(batch.size());
+                } catch (Exception e) {
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                    failed.addAndGet(batch.size());
+                    logger.error("Embedding run '{}' failed to embed a batch of {}: {}", name, batch.size(), e.getMessage());
+                    batch.forEach(onFailure);
+                } finally {
+                    inFlight.release();
+                    logProgressPeriodically();
+                }
+            });
+        }
+
+        /**
+         * Embeds one batch, sleeping {@code retryBackoffMillis * 2^(attempt-1)} (capped, half of it
+         * jittered) between failed attempts. Gives up early once the run is cancelled.
+         */
+        private List<float[]> embedWithRetry(List<String> texts) throws Exception {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return embeddingService.generateEmbeddings(texts, OllamaClient.Workload.BATCH);
+                } catch (RuntimeException e) {
+                    if (attempt >= maxAttempts || cancelled) {
+                        throw e;
+                    }
+                    long backoff = Math.min(maxBackoffMillis, retryBackoffMillis << Math.min(attempt - 1, 20));
+                    long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                    retried.addAndGet(texts.size());
+                    logger.warn("Embedding run '{}': attempt {} of {} for a batch of {} failed ({}); retrying in {} ms.",
+                            name, attempt, maxAttempts, texts.size(), e.getMessage(), delay);
+                    Thread.sleep(delay);
+                }
+            }
+        }
+
+        private synchronized void logProgressPeriodically() {
+            long now = System.nanoTime();
+            if (now - lastLogAt < TimeUnit.SECONDS.toNanos(10)) {
+                return;
+            }
+            lastLogAt = now;
+            Progress progress = progress();
+            logger.info("Embedding run '{}': {} embedded, {} failed, {} chunks/sec, ETA {}s.", name,
+                    progress.embedded(), progress.failed(), String.format("%.1f", progress.chunksPerSecond()),
+                    progress.etaSeconds() < 0 ? "?" : progress.etaSeconds());
+        }
+    }
+}
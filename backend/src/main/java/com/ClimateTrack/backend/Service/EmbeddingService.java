@@ -3,35 +3,119 @@ package com.ClimateTrack.backend.Service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ClimateTrack.backend.util.ContentHash;
+import com.ClimateTrack.backend.util.EmbeddingCache;
+import com.ClimateTrack.backend.util.EmbeddingSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
 public class EmbeddingService {
 
     private static final Logger logger = LoggerFactory.getLogger(EmbeddingService.class);
-    private final RestTemplate restTemplate;
+    private final OllamaClient ollamaClient;
     private final ObjectMapper objectMapper; // Make sure ObjectMapper is a bean or injected
 
-    @Value("${ollama.api.base.url}${ollama.api.embeddings.endpoint}")
-    private String ollamaEmbeddingUrl;
-
     @Value("${ollama.embedding.model}")
     private String embeddingModel;
 
+    @Value("${embedding.cache.max-entries:20000}")
+    private int cacheMaxEntries;
+
+    @Value("${embedding.cache.max-megabytes:96}")
+    private long cacheMaxMegabytes;
+
+    @Value("${embedding.cache.disk.enabled:false}")
+    private boolean diskCacheEnabled;
+
+    @Value("${embedding.cache.disk.path:cache/embedding-cache.snapshot}")
+    private String diskCachePath;
+
+    private EmbeddingCache cache;
+    private EmbeddingSnapshot diskCache = EmbeddingSnapshot.empty();
+    private final ConcurrentHashMap<ContentHash, CompletableFuture<float[]>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong sharedRequests = new AtomicLong();
+
+    /**
+     * Cache metrics: the in-memory LRU tier, hits served from the on-disk tier, and calls that waited
+     * on an identical request already in flight instead of calling Ollama again.
+     */
+    public record CacheStats(EmbeddingCache.Stats memory, long diskHits, long sharedInFlightRequests) {}
+
+    @PostConstruct
+    void initCache() {
+        cache = new EmbeddingCache(cacheMaxEntries, cacheMaxMegabytes * 1024 * 1024);
+        if (diskCacheEnabled) {
+            try {
+                diskCache = EmbeddingSnapshot.open(Path.of(diskCachePath), embeddingModel);
+            } catch (IOException e) {
+                logger.warn("Could not open on-disk embedding cache {}: {}", diskCachePath, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds the in-memory tier to the on-disk tier so its contents survive a restart. Entries already on
+     * disk are kept, whether or not they are still in memory.
+     */
+    @PreDestroy
+    void persistCache() {
+        Map<ContentHash, float[]> memory = cache.entries();
+        Map<ContentHash, float[]> entries = new HashMap<>();
+        if (diskCacheEnabled && !memory.isEmpty()) {
+            diskCache.forEach(entries::put);
+            entries.putAll(memory);
+        }
+        try {
+            diskCache.close();
+        } catch (IOException e) {
+            logger.warn("Could not close on-disk embedding cache: {}", e.getMessage());
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        int dimension = memory.values().iterator().next().length;
+        entries.values().removeIf(embedding -> embedding.length != dimension);
+        try {
+            EmbeddingSnapshot.write(Path.of(diskCachePath), embeddingModel, dimension, entries);
+        } catch (IOException e) {
+            logger.error("Failed to write on-disk embedding cache {}: {}", diskCachePath, e.getMessage(), e);
+        }
+    }
+
+    public String getModelName() {
+        return embeddingModel;
+    }
+
+    public CacheStats getCacheStats() {
+        return new CacheStats(cache.stats(), diskHits.get(), sharedRequests.get());
+    }
+
     /**
      * Generates a numerical embedding for the given text using the configured Ollama model.
+     * Results are cached; concurrent calls for the same text share a single Ollama request.
+     * The returned array is shared with the cache and must not be modified.
      *
      * @param text The text to embed.
      * @return A float array representing the embedding.
@@ -42,22 +126,62 @@ public class EmbeddingService {
             throw new IllegalArgumentException("Text cannot be null or empty for embedding.");
         }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        ContentHash key = EmbeddingCache.key(embeddingModel, text);
+        float[] cached = lookup(key, true);
+        if (cached != null) {
+            return cached;
+        }
 
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", embeddingModel);
-        requestBody.put("prompt", text); // Use "prompt" for embeddings endpoint
+        CompletableFuture<float[]> request = new CompletableFuture<>();
+        CompletableFuture<float[]> existing = inFlight.putIfAbsent(key, request);
+        if (existing != null) {
+            sharedRequests.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            float[] embedding = requestEmbedding(text);
+            cache.put(key, embedding);
+            request.complete(embedding);
+            return embedding;
+        } catch (RuntimeException e) {
+            request.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, request);
+        }
+    }
+
+    /**
+     * Finds a cached embedding in memory, then on disk; a disk hit is kept in memory if {@code retain}.
+     */
+    private float[] lookup(ContentHash key, boolean retain) {
+        float[] embedding = cache.get(key);
+        if (embedding == null && diskCache.size() > 0) {
+            embedding = diskCache.find(key);
+            if (embedding != null) {
+                diskHits.incrementAndGet();
+                if (retain) {
+                    cache.put(key, embedding);
+                }
+            }
+        }
+        return embedding;
+    }
 
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+    private float[] requestEmbedding(String text) {
+        // Use "prompt" for embeddings endpoint
+        Map<String, Object> requestBody = Map.of("model", embeddingModel, "prompt", text);
         logger.debug("Requesting embedding from Ollama for text snippet (first 50 chars): '{}...'", text.substring(0, Math.min(50, text.length())));
 
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(ollamaEmbeddingUrl, entity, String.class);
+            String response = ollamaClient.embeddings(requestBody, OllamaClient.Workload.INTERACTIVE);
 
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
+            if (response != null) {
+                JsonNode root = objectMapper.readTree(response);
                 JsonNode embeddingNode = root.path("embedding"); // Ollama embedding response format
                 if (embeddingNode.isArray()) {
                     float[] embedding = new float[embeddingNode.size()];
@@ -67,16 +191,17 @@ public class EmbeddingService {
                     logger.debug("Successfully generated embedding of size {}.", embedding.length);
                     return embedding;
                 } else {
-                    logger.error("Ollama embedding response did not contain a valid 'embedding' array: {}", response.getBody());
+                    logger.error("Ollama embedding response did not contain a valid 'embedding' array: {}", response);
                     throw new RuntimeException("Failed to parse embedding from Ollama: Invalid response structure.");
                 }
             }
-            // Handle non-OK status codes explicitly
-            logger.error("Ollama embedding API request failed with status {}: {}", response.getStatusCode(), response.getBody());
-            throw new RuntimeException("Failed to generate embedding. Ollama API returned status " + response.getStatusCode());
+            logger.error("Ollama embedding API returned an empty response.");
+            throw new RuntimeException("Failed to generate embedding. Ollama API returned an empty response.");
 
+        } catch (OllamaClient.OllamaUnavailableException e) {
+            throw new RuntimeException("Network error generating embedding: " + e.getMessage(), e);
         } catch (RestClientException e) {
-            logger.error("Network or client error calling Ollama embedding API at {}: {}", ollamaEmbeddingUrl, e.getMessage(), e);
+            logger.error("Network or client error calling Ollama embedding API: {}", e.getMessage(), e);
             throw new RuntimeException("Network error generating embedding: " + e.getMessage(), e);
         } catch (JsonProcessingException e) {
             logger.error("Error parsing Ollama embedding API response: {}", e.getMessage(), e);
@@ -89,4 +214,98 @@ public class EmbeddingService {
             throw new RuntimeException("Unexpected error generating embedding.", e);
         }
     }
+
+    /**
+     * Generates embeddings for several texts in one call to Ollama's batch endpoint ({@code /api/embed}).
+     * Cached texts and duplicates within the batch are not sent.
+     *
+     * @param texts The texts to embed; none may be null or blank.
+     * @return One embedding per input, in input order.
+     * @throws RuntimeException if the request fails or the response does not match the input.
+     */
+    public List<float[]> generateEmbeddings(List<String> texts) {
+        return generateEmbeddings(texts, OllamaClient.Workload.INTERACTIVE);
+    }
+
+    /**
+     * As {@link #generateEmbeddings(List)}, sending the request to the Ollama instances that take
+     * {@code workload}; ingestion passes {@code BATCH} so it does not compete with chat. Batch results
+     * are served from the cache but not added to it: a build embeds far more chunks than the cache holds
+     * and would evict the query embeddings it exists for, and the vector store keeps chunk embeddings in
+     * its own snapshot.
+     */
+    public List<float[]> generateEmbeddings(List<String> texts, OllamaClient.Workload workload) {
+        if (texts == null || texts.isEmpty()) {
+            return List.of();
+        }
+        boolean retain = workload != OllamaClient.Workload.BATCH;
+        float[][] results = new float[texts.size()][];
+        Map<ContentHash, List<Integer>> missing = new LinkedHashMap<>();
+        List<String> missingTexts = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            if (text == null || text.trim().isEmpty()) {
+                throw new IllegalArgumentException("Text cannot be null or empty for embedding.");
+            }
+            ContentHash key = EmbeddingCache.key(embeddingModel, text);
+            results[i] = lookup(key, retain);
+            if (results[i] == null) {
+                missing.computeIfAbsent(key, k -> {
+                    missingTexts.add(text);
+                    return new ArrayList<>();
+                }).add(i);
+            }
+        }
+
+        if (!missingTexts.isEmpty()) {
+            List<float[]> embeddings = requestEmbeddings(missingTexts, workload);
+            int next = 0;
+            for (Map.Entry<ContentHash, List<Integer>> entry : missing.entrySet()) {
+                float[] embedding = embeddings.get(next++);
+                if (retain) {
+                    cache.put(entry.getKey(), embedding);
+                }
+                for (int index : entry.getValue()) {
+                    results[index] = embedding;
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<float[]> requestEmbeddings(List<String> texts, OllamaClient.Workload workload) {
+        // The batch endpoint takes an "input" array
+        Map<String, Object> requestBody = Map.of("model", embeddingModel, "input", texts);
+        logger.debug("Requesting {} embeddings from Ollama in one batch.", texts.size());
+
+        try {
+            String response = ollamaClient.embed(requestBody, workload);
+
+            if (response != null) {
+                JsonNode embeddingsNode = objectMapper.readTree(response).path("embeddings");
+                if (!embeddingsNode.isArray() || embeddingsNode.size() != texts.size()) {
+                    logger.error("Ollama batch embedding response did not contain {} embeddings: {}", texts.size(), response);
+                    throw new RuntimeException("Failed to parse batch embeddings from Ollama: Invalid response structure.");
+                }
+                List<float[]> embeddings = new ArrayList<>(embeddingsNode.size());
+                for (JsonNode embeddingNode : embeddingsNode) {
+                    float[] embedding = new float[embeddingNode.size()];
+                    for (int i = 0; i < embeddingNode.size(); i++) {
+                        embedding[i] = (float) embeddingNode.get(i).asDouble();
+                    }
+                    embeddings.add(embedding);
+                }
+                return embeddings;
+            }
+            logger.error("Ollama batch embedding API returned an empty response.");
+            throw new RuntimeException("Failed to generate embeddings. Ollama API returned an empty response.");
+
+        } catch (RestClientException e) {
+            logger.error("Network or client error calling Ollama batch embedding API: {}", e.getMessage());
+            throw new RuntimeException("Network error generating embeddings: " + e.getMessage(), e);
+        } catch (JsonProcessingException e) {
+            logger.error("Error parsing Ollama batch embedding API response: {}", e.getMessage(), e);
+            throw new RuntimeException("Error parsing embedding response: " + e.getMessage(), e);
+        }
+    }
 }
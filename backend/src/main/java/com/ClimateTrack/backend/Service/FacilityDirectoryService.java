@@ -0,0 +1,346 @@
+package com.ClimateTrack.backend.Service;
+
+import com.ClimateTrack.backend.util.CsvReader;
+import com.ClimateTrack.backend.util.LexicalIndex;
+import com.ClimateTrack.backend.util.TopKHeap;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Structured directory of fire stations, police stations and administrative offices, built from the
+ * government CSVs. Facilities are indexed by region (시도), by district (시군구) within a region, by name
+ * and by phone number, so lookups such as "fire stations in 강남구" are answered directly instead of
+ * through a similarity search over embedded rows.
+ */
+@Service
+public class FacilityDirectoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FacilityDirectoryService.class);
+
+    public enum FacilityType { FIRE, POLICE, ADMIN }
+
+    /**
+     * One facility. {@code districts} lists the 시/군/구 names in its address from the outermost in,
+     * e.g. [수원시, 장안구]; {@code category} is the source's own classification (e.g. 지자체, 우정).
+     */
+    public record Facility(FacilityType type, String category, String name, String region,
+                           List<String> districts, String address, String phone) {}
+
+    /**
+     * Immutable indexes over one load of the CSVs; replaced as a whole on reload.
+     */
+    private record Directory(List<Facility> facilities,
+                             Map<String, List<Facility>> byRegion,
+                             Map<String, List<Facility>> byDistrict,
+                             Map<String, List<Facility>> byPhone,
+                             LexicalIndex names,
+                             List<String> districtNamesLongestFirst) {
+
+        static final Directory EMPTY = new Directory(List.of(), Map.of(), Map.of(), Map.of(), new LexicalIndex(), List.of());
+    }
+
+    // Canonical region names and the aliases they are written as in the sources and in user queries.
+    // Longer aliases are matched first, so "경기북부" is not mistaken for something shorter.
+    private static final Map<String, List<String>> REGION_ALIASES = Map.ofEntries(
+            Map.entry("서울특별시", List.of("서울특별시", "서울시", "서울")),
+            Map.entry("부산광역시", List.of("부산광역시", "부산시", "부산")),
+            Map.entry("대구광역시", List.of("대구광역시", "대구시", "대구")),
+            Map.entry("인천광역시", List.of("인천광역시", "인천시", "인천")),
+            Map.entry("광주광역시", List.of("광주광역시", "광주")),
+            Map.entry("대전광역시", List.of("대전광역시", "대전시", "대전")),
+            Map.entry("울산광역시", List.of("울산광역시", "울산시", "울산")),
+            Map.entry("세종특별자치시", List.of("세종특별자치시", "세종시", "세종")),
+            Map.entry("경기도", List.of("경기도", "경기북부", "경기")),
+            Map.entry("강원특별자치도", List.of("강원특별자치도", "강원도", "강원")),
+            Map.entry("충청북도", List.of("충청북도", "충북")),
+            Map.entry("충청남도", List.of("충청남도", "충남")),
+            Map.entry("전북특별자치도", List.of("전북특별자치도", "전라북도", "전북")),
+            Map.entry("전라남도", List.of("전라남도", "전남")),
+            Map.entry("경상북도", List.of("경상북도", "경북")),
+            Map.entry("경상남도", List.of("경상남도", "경남")),
+            Map.entry("제주특별자치도", List.of("제주특별자치도", "제주도", "제주"))
+    );
+
+    private static final List<Map.Entry<String, String>> ALIASES_LONGEST_FIRST = aliasesLongestFirst();
+
+    private static final Map<FacilityType, List<String>> TYPE_KEYWORDS = Map.of(
+            FacilityType.FIRE, List.of("fire station", "fire department", "소방서", "119"),
+            FacilityType.POLICE, List.of("police", "경찰서", "지구대", "파출소", "112"),
+            FacilityType.ADMIN, List.of("city hall", "district office", "community center", "government office",
+                    "구청", "시청", "군청", "주민센터", "행정복지센터")
+    );
+
+    // Source files and the facility type of their rows
+    private final Map<String, FacilityType> csvFiles = Map.of(
+            "data/소방청_시도_소방서_현황_20250701.csv", FacilityType.FIRE,
+            "data/경찰청_전국_경찰서_명칭_및_주소_20230627.csv", FacilityType.POLICE,
+            "data/행정안전부_일선행정기관_주소와_전화번호_현황_20230701.csv", FacilityType.ADMIN
+    );
+
+    private final CsvReader csvReader;
+
+    private volatile Directory directory = Directory.EMPTY;
+
+    public FacilityDirectoryService(CsvReader csvReader) {
+        this.csvReader = csvReader;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<Facility> facilities = new ArrayList<>();
+        csvFiles.forEach((path, type) -> {
+            try {
+                facilities.addAll(readFacilities(path, type));
+            } catch (Exception e) {
+                logger.error("Failed to load facilities from {}: {}", path, e.getMessage(), e);
+            }
+        });
+        directory = index(facilities);
+        logger.info("Facility directory loaded: {} facilities in {} regions.",
+                facilities.size(), directory.byRegion().size());
+    }
+
+    /**
+     * Facilities matching every non-blank filter. {@code region} accepts any alias ("서울", "서울특별시"),
+     * {@code district} any 시/군/구 in the address, {@code name} is matched by its words and Hangul
+     * bigrams, and {@code phone} ignores punctuation.
+     */
+    public List<Facility> search(String region, String district, FacilityType type, String name, String phone,
+                                 int limit) {
+        Directory current = directory;
+        String canonicalRegion = isBlank(region) ? null : canonicalRegion(region.trim());
+        if (!isBlank(region) && canonicalRegion == null) {
+            return List.of();
+        }
+
+        // Start from the most selective index available, then filter on the rest.
+        List<Facility> candidates;
+        if (!isBlank(phone)) {
+            candidates = current.byPhone().getOrDefault(digits(phone), List.of());
+        } else if (!isBlank(name)) {
+            candidates = byName(current, name, Math.max(limit * 10, 50));
+        } else if (!isBlank(district)) {
+            candidates = current.byDistrict().getOrDefault(district.trim(), List.of());
+        } else if (canonicalRegion != null) {
+            candidates = current.byRegion().getOrDefault(canonicalRegion, List.of());
+        } else {
+            candidates = current.facilities();
+        }
+
+        List<Facility> results = new ArrayList<>();
+        for (Facility facility : candidates) {
+            if (results.size() >= limit) {
+                break;
+            }
+            if ((type == null || facility.type() == type)
+                    && (canonicalRegion == null || canonicalRegion.equals(facility.region()))
+                    && (isBlank(district) || facility.districts().contains(district.trim()))) {
+                results.add(facility);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Chatbot hook: if the message asks for a kind of facility (fire station, police, district office)
+     * in a named region or district, returns the matching facilities; otherwise an empty list.
+     */
+    public List<Facility> findForMessage(String message, int limit) {
+        if (isBlank(message)) {
+            return List.of();
+        }
+        String lower = message.toLowerCase(Locale.ROOT);
+        FacilityType type = null;
+        for (Map.Entry<FacilityType, List<String>> entry : TYPE_KEYWORDS.entrySet()) {
+            if (entry.getValue().stream().anyMatch(lower::contains)) {
+                type = entry.getKey();
+                break;
+            }
+        }
+        if (type == null) {
+            return List.of();
+        }
+
+        Directory current = directory;
+        String region = regionMentionedIn(message);
+        List<String> districts = districtsMentionedIn(current, message);
+        if (districts.isEmpty()) {
+            return region == null ? List.of() : search(region, null, type, null, null, limit);
+        }
+        // A facility can match several mentioned districts (수원시 and 장안구), so collect into a set.
+        Set<Facility> results = new LinkedHashSet<>();
+        for (String district : districts) {
+            results.addAll(search(region, district, type, null, null, limit));
+            if (results.size() >= limit) {
+                break;
+            }
+        }
+        return results.stream().limit(limit).toList();
+    }
+
+    public int size() {
+        return directory.facilities().size();
+    }
+
+    private List<Facility> readFacilities(String path, FacilityType type) {
+        CsvReader.CsvTable table = csvReader.readTable(path);
+        List<Facility> facilities = new ArrayList<>(table.rows().size());
+        switch (type) {
+            case FIRE -> {
+                int region = table.columnIndex("Fire Department");
+                int name = table.columnIndex("fire station");
+                int address = table.columnIndex("address");
+                int phone = table.columnIndex("phone number");
+                for (String[] row : table.rows()) {
+                    facilities.add(facility(type, "소방서", row[name], row[address], row[region], row[phone]));
+                }
+            }
+            case POLICE -> {
+                int location = table.columnIndex("location");
+                int name = table.columnIndex("Police station name");
+                int address = table.columnIndex("Police station address");
+                for (String[] row : table.rows()) {
+                    // Addresses start at the district; the region is the seat of the provincial agency.
+                    facilities.add(facility(type, "경찰서", row[name], row[address], row[location], null));
+                }
+            }
+            case ADMIN -> {
+                int category = table.columnIndex("Institution type");
+                int name = table.columnIndex("Name of lowest-level institution");
+                int address = table.columnIndex("Road name address");
+                int phone = table.columnIndex("Representative phone number");
+                for (String[] row : table.rows()) {
+                    facilities.add(facility(type, row[category].trim(), row[name], row[address], null, row[phone]));
+                }
+            }
+        }
+        logger.info("Read {} {} facilities from {}", facilities.size(), type, path);
+        return facilities;
+    }
+
+    private static Facility facility(FacilityType type, String category, String name, String address,
+                                     String regionHint, String phone) {
+        String trimmedAddress = address.trim();
+        String[] tokens = trimmedAddress.split("\\s+");
+        int first = 0;
+        String region = tokens.length > 0 ? canonicalRegion(tokens[0]) : null;
+        if (region != null) {
+            first = 1;
+        } else if (regionHint != null) {
+            region = canonicalRegion(regionHint.trim());
+        }
+        List<String> districts = new ArrayList<>(2);
+        for (int i = first; i < tokens.length && districts.size() < 2; i++) {
+            String token = tokens[i];
+            if (token.length() >= 2 && (token.endsWith("시") || token.endsWith("군") || token.endsWith("구"))) {
+                districts.add(token);
+            } else if (!districts.isEmpty()) {
+                break;
+            }
+        }
+        return new Facility(type, category, name.trim(), region, List.copyOf(districts), trimmedAddress,
+                phone == null || phone.isBlank() ? null : phone.trim());
+    }
+
+    private static Directory index(List<Facility> facilities) {
+        Map<String, List<Facility>> byRegion = new HashMap<>();
+        Map<String, List<Facility>> byDistrict = new HashMap<>();
+        Map<String, List<Facility>> byPhone = new HashMap<>();
+        LexicalIndex names = new LexicalIndex();
+        for (int i = 0; i < facilities.size(); i++) {
+            Facility facility = facilities.get(i);
+            if (facility.region() != null) {
+                byRegion.computeIfAbsent(facility.region(), k -> new ArrayList<>()).add(facility);
+            }
+            for (String district : facility.districts()) {
+                byDistrict.computeIfAbsent(district, k -> new ArrayList<>()).add(facility);
+            }
+            if (facility.phone() != null) {
+                byPhone.computeIfAbsent(digits(facility.phone()), k -> new ArrayList<>()).add(facility);
+            }
+            names.add(i, facility.name());
+        }
+        List<String> districtNames = new ArrayList<>(byDistrict.keySet());
+        districtNames.sort(Comparator.comparingInt(String::length).reversed());
+        return new Directory(Collections.unmodifiableList(facilities), byRegion, byDistrict, byPhone, names,
+                districtNames);
+    }
+
+    private static List<Facility> byName(Directory current, String name, int k) {
+        LexicalIndex.Result result = current.names().search(name, k, current.facilities().size());
+        TopKHeap hits = result.hits();
+        List<Facility> matches = new ArrayList<>(hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            matches.add(current.facilities().get(hits.id(i)));
+        }
+        return matches;
+    }
+
+    /**
+     * Canonical region for a token that starts with one of its aliases, or null.
+     */
+    static String canonicalRegion(String token) {
+        for (Map.Entry<String, String> alias : ALIASES_LONGEST_FIRST) {
+            if (token.startsWith(alias.getKey())) {
+                return alias.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String regionMentionedIn(String message) {
+        for (Map.Entry<String, String> alias : ALIASES_LONGEST_FIRST) {
+            if (message.contains(alias.getKey())) {
+                return alias.getValue();
+            }
+        }
+        return null;
+    }
+
+    // Longest names first, skipping any contained in a longer match, so "강남구" does not also yield "남구".
+    private static List<String> districtsMentionedIn(Directory current, String message) {
+        Set<String> found = new LinkedHashSet<>();
+        for (String district : current.districtNamesLongestFirst()) {
+            if (message.contains(district) && found.stream().noneMatch(longer -> longer.contains(district))) {
+                found.add(district);
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    private static List<Map.Entry<String, String>> aliasesLongestFirst() {
+        Map<String, String> aliases = new TreeMap<>();
+        REGION_ALIASES.forEach((canonical, names) -> names.forEach(alias -> aliases.put(alias, canonical)));
+        List<Map.Entry<String, String>> entries = new ArrayList<>(aliases.entrySet());
+        entries.sort(Comparator.comparingInt((Map.Entry<String, String> e) -> e.getKey().length()).reversed());
+        return entries;
+    }
+
+    private static String digits(String phone) {
+        StringBuilder sb = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,258 @@
+package com.ClimateTrack.backend.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs vector store builds as jobs, one at a time, on a dedicated thread. Each job tracks per-source
+ * progress and can be cancelled; the build itself checkpoints its embeddings, so a job started after a
+ * cancellation, a failure or a restart only embeds the chunks the earlier one did not reach.
+ */
+@Service
+public class IngestionJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionJobService.class);
+
+    public enum JobState { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    /**
+     * Chunks of one source: extracted from the file, reused from the snapshot or checkpoint, embedded
+     * by this job, failed after every retry, and dropped as near-duplicates.
+     */
+    public record SourceProgress(long extracted, long reused, long embedded, long failed, long collapsed) {}
+
+    /**
+     * Point-in-time view of a job. Timestamps are epoch milliseconds, or 0 if the event has not happened.
+     * {@code chunksPerSecond} counts chunks embedded by this job over its running time.
+     */
+    public record JobStatus(long id, JobState state, long createdAt, long startedAt, long finishedAt,
+                            long extracted, long reused, long embedded, long failed, long retried,
+                            long resumedFromCheckpoint, double chunksPerSecond,
+                            Map<String, SourceProgress> sources, String error) {}
+
+    private final VectorStoreService vectorStoreService;
+    private final int retainedJobs;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ingestion-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, Job> jobs = new LinkedHashMap<>();
+
+    public IngestionJobService(VectorStoreService vectorStoreService,
+                               @Value("${ingestion.jobs.retained:20}") int retainedJobs) {
+        this.vectorStoreService = vectorStoreService;
+        this.retainedJobs = Math.max(1, retainedJobs);
+    }
+
+    /**
+     * Queues a full build, unless one is already queued or running.
+     * @return the new job, or empty if another job is active.
+     */
+    public synchronized Optional<JobStatus> start() {
+        if (jobs.values().stream().anyMatch(Job::isActive)) {
+            return Optional.empty();
+        }
+        Job job = new Job(ids.incrementAndGet());
+        jobs.put(job.id, job);
+        while (jobs.size() > retainedJobs) {
+            jobs.remove(jobs.keySet().iterator().next());
+        }
+        executor.execute(() -> run(job));
+        logger.info("Queued ingestion job {}.", job.id);
+        return Optional.of(job.status());
+    }
+
+    private void run(Job job) {
+        if (!job.begin()) {
+            return;
+        }
+        logger.info("Ingestion job {} started.", job.id);
+        try {
+            vectorStoreService.buildVectorStore(job);
+            job.end(JobState.SUCCEEDED, null);
+        } catch (CancellationException e) {
+            job.end(JobState.CANCELLED, null);
+        } catch (Exception e) {
+            job.end(JobState.FAILED, e.getMessage());
+        }
+        logger.info("Ingestion job {} {}.", job.id, job.state.name().toLowerCase());
+    }
+
+    /**
+     * Requests cancellation. A queued job is cancelled at once; a running one stops after the chunk it
+     * is reading and writes a final checkpoint.
+     * @return the job's status, or empty if there is no such job.
+     */
+    public synchronized Optional<JobStatus> cancel(long id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.cancel();
+        return Optional.of(job.status());
+    }
+
+    public synchronized Optional<JobStatus> getJob(long id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::status);
+    }
+
+    /**
+     * Retained jobs, most recent first.
+     */
+    public synchronized List<JobStatus> listJobs() {
+        List<JobStatus> result = new ArrayList<>(jobs.size());
+        jobs.values().forEach(job -> result.add(job.status()));
+        Collections.reverse(result);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        synchronized (this) {
+            jobs.values().forEach(Job::cancel);
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Mutable side of a job, updated by the build from several threads.
+     */
+    public static final class Job {
+
+        private final long id;
+        private final long createdAt = System.currentTimeMillis();
+        private final Map<String, SourceCounters> sources = Collections.synchronizedMap(new LinkedHashMap<>());
+        private final AtomicLong resumedFromCheckpoint = new AtomicLong();
+        private volatile JobState state = JobState.QUEUED;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile String error;
+        private volatile boolean cancelled;
+        private volatile EmbeddingPipeline.Run<?> run;
+
+        Job(long id) {
+            this.id = id;
+        }
+
+        /**
+         * Counters of one source; created on first use, in the order sources are read.
+         */
+        public SourceCounters source(String name) {
+            return sources.computeIfAbsent(name, k -> new SourceCounters());
+        }
+
+        /**
+         * Records the embedding run, so that cancelling the job also drops its queued chunks.
+         */
+        public void attach(EmbeddingPipeline.Run<?> run) {
+            this.run = run;
+            if (cancelled) {
+                run.cancel();
+            }
+        }
+
+        public void resumedFromCheckpoint() {
+            resumedFromCheckpoint.incrementAndGet();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @throws CancellationException if the job has been cancelled.
+         */
+        public void throwIfCancelled() {
+            if (cancelled) {
+                throw new CancellationException("Ingestion job " + id + " was cancelled");
+            }
+        }
+
+        private boolean isActive() {
+            return state == JobState.QUEUED || state == JobState.RUNNING;
+        }
+
+        private synchronized boolean begin() {
+            if (state != JobState.QUEUED) {
+                return false;
+            }
+            state = JobState.RUNNING;
+            startedAt = System.currentTimeMillis();
+            return true;
+        }
+
+        private synchronized void end(JobState finalState, String error) {
+            this.state = finalState;
+            this.error = error;
+            this.finishedAt = System.currentTimeMillis();
+        }
+
+        private synchronized void cancel() {
+            if (!isActive()) {
+                return;
+            }
+            cancelled = true;
+            EmbeddingPipeline.Run<?> current = run;
+            if (current != null) {
+                current.cancel();
+            }
+            if (state == JobState.QUEUED) {
+                end(JobState.CANCELLED, null);
+            }
+        }
+
+        private JobStatus status() {
+            Map<String, SourceProgress> progress = new LinkedHashMap<>();
+            long extracted = 0, reused = 0, embedded = 0, failed = 0;
+            synchronized (sources) {
+                for (Map.Entry<String, SourceCounters> entry : sources.entrySet()) {
+                    SourceProgress source = entry.getValue().snapshot();
+                    progress.put(entry.getKey(), source);
+                    extracted += source.extracted();
+                    reused += source.reused();
+                    embedded += source.embedded();
+                    failed += source.failed();
+                }
+            }
+            long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+            double seconds = startedAt > 0 ? (end - startedAt) / 1000.0 : 0;
+            EmbeddingPipeline.Run<?> current = run;
+            return new JobStatus(id, state, createdAt, startedAt, finishedAt, extracted, reused, embedded, failed,
+                    current == null ? 0 : current.progress().retried(), resumedFromCheckpoint.get(),
+                    seconds > 0 ? embedded / seconds : 0, progress, error);
+        }
+    }
+
+    public static final class SourceCounters {
+
+        public final AtomicLong extracted = new AtomicLong();
+        public final AtomicLong reused = new AtomicLong();
+        public final AtomicLong embedded = new AtomicLong();
+        public final AtomicLong failed = new AtomicLong();
+        public final AtomicLong collapsed = new AtomicLong();
+
+        private SourceProgress snapshot() {
+            return new SourceProgress(extracted.get(), reused.get(), embedded.get(), failed.get(), collapsed.get());
+        }
+    }
+}
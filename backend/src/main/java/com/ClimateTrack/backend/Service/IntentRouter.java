@@ -0,0 +1,269 @@
+package com.ClimateTrack.backend.Service;
+
+import com.ClimateTrack.backend.config.IntentRouterProperties;
+import com.ClimateTrack.backend.util.LatencyStats;
+import com.ClimateTrack.backend.util.VectorMath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which context sources a chatbot query needs by comparing its embedding with one centroid per
+ * intent, the normalized mean of the embeddings of that intent's example phrases. Every intent scoring
+ * at least {@code minSimilarity} and within {@code margin} of the best score is selected, so a query can
+ * be routed to several sources at once; a query closest to the {@code general} examples (greetings,
+ * small talk) is routed to none.
+ * <p>
+ * The centroids are built when the application is ready. Until they are, or if the query cannot be
+ * embedded, queries are routed by keywords as before.
+ */
+@Service
+public class IntentRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(IntentRouter.class);
+
+    public enum Intent { NEAR_ME, HOW_TO, NEWS }
+
+    /**
+     * Intents selected for one query, and its similarity to each centroid (empty when routed by
+     * keywords).
+     */
+    public record Route(Set<Intent> intents, Map<String, Float> scores, boolean byKeywords) {
+
+        public boolean has(Intent intent) {
+            return intents.contains(intent);
+        }
+    }
+
+    /**
+     * How often an intent was selected, and how long its retrieval took.
+     */
+    public record IntentStats(long routed, LatencyStats.Snapshot retrieval) {}
+
+    /**
+     * {@code routing} is the time to classify a query, including embedding it. {@code skippedRetrieval}
+     * counts queries routed to no source at all.
+     */
+    public record RouterStats(boolean centroidsReady, LatencyStats.Snapshot routing, long queries,
+                              long skippedRetrieval, long keywordFallbacks, Map<Intent, IntentStats> intents) {}
+
+    // Keyword lists used until the centroids are available
+    private static final List<String> NEAR_ME_KEYWORDS = List.of("near me", "nearby", "around me", "my location");
+    private static final List<String> HOW_TO_KEYWORDS = List.of("how to", "what is", "prepare", "manual", "guide");
+    private static final List<String> NEWS_KEYWORDS = List.of("news", "latest", "alert", "warning");
+
+    private static final String GENERAL = "GENERAL";
+
+    /**
+     * Normalized centroids; {@code null} entries in {@code intents} stand for the general intent.
+     */
+    private record Centroids(List<Intent> intents, List<String> names, List<float[]> vectors) {}
+
+    private final EmbeddingService embeddingService;
+    private final IntentRouterProperties properties;
+    private volatile Centroids centroids;
+    // When the last build started; a retry is claimed by moving it forward
+    private final AtomicLong lastAttempt = new AtomicLong();
+    private final LatencyStats routingLatency = new LatencyStats();
+    private final Map<Intent, AtomicLong> routed = new EnumMap<>(Intent.class);
+    private final Map<Intent, LatencyStats> retrievalLatency = new EnumMap<>(Intent.class);
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong skippedRetrieval = new AtomicLong();
+    private final AtomicLong keywordFallbacks = new AtomicLong();
+
+    public IntentRouter(EmbeddingService embeddingService, IntentRouterProperties properties) {
+        this.embeddingService = embeddingService;
+        this.properties = properties;
+        for (Intent intent : Intent.values()) {
+            routed.put(intent, new AtomicLong());
+            retrievalLatency.put(intent, new LatencyStats());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // Embedding the examples waits for Ollama, so it is kept off the startup thread
+        CompletableFuture.runAsync(this::buildCentroids);
+    }
+
+    /**
+     * Embeds the example phrases and replaces the centroids.
+     * @return false if the examples could not be embedded; the previous centroids are kept.
+     */
+    public synchronized boolean buildCentroids() {
+        lastAttempt.set(System.currentTimeMillis());
+        IntentRouterProperties.Examples examples = properties.getExamples();
+        List<Intent> intents = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<List<String>> phrases = new ArrayList<>();
+        addIntent(intents, names, phrases, Intent.NEAR_ME, examples.getNearMe());
+        addIntent(intents, names, phrases, Intent.HOW_TO, examples.getHowTo());
+        addIntent(intents, names, phrases, Intent.NEWS, examples.getNews());
+        addIntent(intents, names, phrases, null, examples.getGeneral());
+        if (intents.isEmpty()) {
+            logger.warn("No intent examples are configured; chatbot queries are routed by keywords.");
+            return false;
+        }
+
+        List<String> all = new ArrayList<>();
+        phrases.forEach(all::addAll);
+        List<float[]> embeddings;
+        try {
+            embeddings = embeddingService.generateEmbeddings(all);
+        } catch (RuntimeException e) {
+            logger.warn("Could not embed the intent examples; routing by keywords for now: {}", e.getMessage());
+            return false;
+        }
+
+        List<float[]> vectors = new ArrayList<>(intents.size());
+        int next = 0;
+        for (List<String> group : phrases) {
+            int dim = embeddings.get(next).length;
+            float[] sum = new float[dim];
+            float[] unit = new float[dim];
+            for (int i = 0; i < group.size(); i++) {
+                VectorMath.normalizeInto(embeddings.get(next++), unit, 0);
+                for (int d = 0; d < dim; d++) {
+                    sum[d] += unit[d];
+                }
+            }
+            float[] centroid = new float[dim];
+            VectorMath.normalizeInto(sum, centroid, 0);
+            vectors.add(centroid);
+        }
+        centroids = new Centroids(intents, names, vectors);
+        logger.info("Built intent centroids for {} from {} example phrases.", names, all.size());
+        return true;
+    }
+
+    private static void addIntent(List<Intent> intents, List<String> names, List<List<String>> phrases,
+                                  Intent intent, List<String> examples) {
+        List<String> usable = examples.stream().filter(example -> example != null && !example.isBlank()).toList();
+        if (!usable.isEmpty()) {
+            intents.add(intent);
+            names.add(intent == null ? GENERAL : intent.name());
+            phrases.add(usable);
+        }
+    }
+
+    /**
+     * Routes one query. The query is embedded trimmed, the same text the response cache and the vector
+     * store embed, so the embedding is computed once per query.
+     */
+    public Route route(String userMessage) {
+        long start = System.nanoTime();
+        queries.incrementAndGet();
+        Route route = null;
+        Centroids current = readyCentroids();
+        if (current != null) {
+            try {
+                route = classify(current, embeddingService.generateEmbedding(userMessage.trim()));
+            } catch (RuntimeException e) {
+                logger.warn("Could not embed the chatbot query for routing; using keywords: {}", e.getMessage());
+            }
+        }
+        if (route == null) {
+            keywordFallbacks.incrementAndGet();
+            route = byKeywords(userMessage.toLowerCase());
+        }
+        routingLatency.record(System.nanoTime() - start);
+        if (route.intents().isEmpty()) {
+            skippedRetrieval.incrementAndGet();
+        }
+        route.intents().forEach(intent -> routed.get(intent).incrementAndGet());
+        logger.info("Routed chatbot query to {}{}.", route.intents().isEmpty() ? "no context" : route.intents(),
+                route.byKeywords() ? " by keywords" : "");
+        return route;
+    }
+
+    /**
+     * Records how long the retrieval for {@code intent} took.
+     */
+    public void recordRetrieval(Intent intent, long nanos) {
+        retrievalLatency.get(intent).record(nanos);
+    }
+
+    public RouterStats getStats() {
+        Map<Intent, IntentStats> intents = new EnumMap<>(Intent.class);
+        for (Intent intent : Intent.values()) {
+            intents.put(intent, new IntentStats(routed.get(intent).get(), retrievalLatency.get(intent).snapshot()));
+        }
+        return new RouterStats(centroids != null, routingLatency.snapshot(), queries.get(), skippedRetrieval.get(),
+                keywordFallbacks.get(), intents);
+    }
+
+    /**
+     * The centroids, or null if they are not built yet. Once the retry interval has passed after a failed
+     * build, the first caller to claim the retry starts it in the background; callers never wait for it,
+     * and are routed by keywords until it succeeds.
+     */
+    private Centroids readyCentroids() {
+        Centroids current = centroids;
+        if (current == null) {
+            long previous = lastAttempt.get();
+            long now = System.currentTimeMillis();
+            if (now - previous >= TimeUnit.SECONDS.toMillis(properties.getRetryIntervalSeconds())
+                    && lastAttempt.compareAndSet(previous, now)) {
+                CompletableFuture.runAsync(this::buildCentroids);
+            }
+        }
+        return current;
+    }
+
+    private Route classify(Centroids current, float[] embedding) {
+        float[] query = new float[embedding.length];
+        VectorMath.normalizeInto(embedding, query, 0);
+        float[] scores = new float[current.vectors().size()];
+        float best = -1f;
+        for (int i = 0; i < scores.length; i++) {
+            float[] centroid = current.vectors().get(i);
+            scores[i] = centroid.length == query.length ? VectorMath.dot(query, 0, centroid, 0, query.length) : -1f;
+            best = Math.max(best, scores[i]);
+        }
+        float cutoff = Math.max(properties.getMinSimilarity(), best - properties.getMargin());
+        Set<Intent> selected = EnumSet.noneOf(Intent.class);
+        Map<String, Float> named = new LinkedHashMap<>();
+        for (int i = 0; i < scores.length; i++) {
+            named.put(current.names().get(i), scores[i]);
+            Intent intent = current.intents().get(i);
+            if (intent != null && scores[i] >= cutoff) {
+                selected.add(intent);
+            }
+        }
+        return new Route(Collections.unmodifiableSet(selected), Collections.unmodifiableMap(named), false);
+    }
+
+    /**
+     * The keyword rules the router replaced: one intent at most, "near me" taking precedence.
+     */
+    private static Route byKeywords(String messageLower) {
+        Intent intent = containsKeyword(messageLower, NEAR_ME_KEYWORDS) ? Intent.NEAR_ME
+                : containsKeyword(messageLower, HOW_TO_KEYWORDS) ? Intent.HOW_TO
+                : containsKeyword(messageLower, NEWS_KEYWORDS) ? Intent.NEWS
+                : null;
+        return new Route(intent == null ? Set.of() : Set.of(intent), Map.of(), true);
+    }
+
+    private static boolean containsKeyword(String message, List<String> keywords) {
+        for (String keyword : keywords) {
+            if (message.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,270 @@
+package com.ClimateTrack.backend.Service;
+
+import com.ClimateTrack.backend.config.LlmAdmissionProperties;
+import com.ClimateTrack.backend.util.LatencyStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for chat generations. Each model has a number of slots; a request takes a
+ * {@link Ticket} when it arrives, which either holds a slot at once or waits in the model's queue. The
+ * queue is bounded in total and per user, so a burst is turned away immediately with a retry hint
+ * instead of holding server threads, and waiting users are served round-robin rather than in arrival
+ * order, so one user's requests cannot starve the others. A ticket that waits longer than the deadline
+ * is rejected as well.
+ * <p>
+ * Callers take a ticket once they are about to call the model, so building the prompt context and
+ * answers served from the response cache do not hold a slot. A stream takes its ticket when the request
+ * arrives instead, so it can be turned away before its response is committed, and gives it back early
+ * when the answer comes from the cache.
+ */
+@Service
+public class LlmAdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmAdmissionService.class);
+
+    public enum Rejection { QUEUE_FULL, USER_QUEUE_FULL, DEADLINE }
+
+    /**
+     * A request that was not admitted; {@code retryAfterSeconds} estimates when a slot will be free.
+     */
+    public static class AdmissionRejectedException extends RuntimeException {
+
+        private final Rejection reason;
+        private final long retryAfterSeconds;
+
+        AdmissionRejectedException(String model, Rejection reason, long retryAfterSeconds) {
+            super("Request for model '" + model + "' rejected: " + reason.name().toLowerCase());
+            this.reason = reason;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public Rejection getReason() {
+            return reason;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    /**
+     * {@code waitTime} is the time admitted requests spent queued (0 for those admitted at once), and
+     * {@code holdTime} how long they held a slot.
+     */
+    public record ModelStats(int limit, int active, int queued, int waitingUsers, long admitted,
+                             long rejectedQueueFull, long rejectedUserQueueFull, long rejectedDeadline,
+                             LatencyStats.Snapshot waitTime, LatencyStats.Snapshot holdTime) {}
+
+    private final LlmAdmissionProperties properties;
+    private final Map<String, ModelQueue> queues = new ConcurrentHashMap<>();
+
+    public LlmAdmissionService(LlmAdmissionProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Takes a ticket for one generation with {@code model}. Close the ticket when the generation is
+     * finished, or abandoned.
+     * @throws AdmissionRejectedException if the model's queue, or the user's share of it, is full.
+     */
+    public Ticket enqueue(String model, String user) {
+        ModelQueue queue = queues.computeIfAbsent(model, this::newQueue);
+        return queue.enqueue(user == null ? "" : user);
+    }
+
+    private ModelQueue newQueue(String model) {
+        int limit = properties.getModelLimits().getOrDefault(model, properties.getMaxConcurrent());
+        return new ModelQueue(model, Math.max(1, limit));
+    }
+
+    public Map<String, ModelStats> getStats() {
+        Map<String, ModelStats> stats = new TreeMap<>();
+        queues.forEach((model, queue) -> stats.put(model, queue.stats()));
+        return stats;
+    }
+
+    private enum TicketState { QUEUED, GRANTED, DONE }
+
+    /**
+     * One request's place in a model's queue, or its slot once granted.
+     */
+    public final class Ticket implements AutoCloseable {
+
+        private final ModelQueue queue;
+        private final String user;
+        private final long enqueuedAt = System.nanoTime();
+        private final long deadline;
+        private TicketState state = TicketState.QUEUED;
+        private long grantedAt;
+
+        private Ticket(ModelQueue queue, String user) {
+            this.queue = queue;
+            this.user = user;
+            this.deadline = enqueuedAt + TimeUnit.MILLISECONDS.toNanos(properties.getMaxWaitMs());
+        }
+
+        /**
+         * Waits until the ticket holds a slot.
+         * @throws AdmissionRejectedException if the deadline passes first.
+         */
+        public void await() throws InterruptedException {
+            queue.await(this);
+        }
+
+        /**
+         * Gives the slot back, or leaves the queue if it was still waiting. Safe to call more than once.
+         */
+        @Override
+        public void close() {
+            queue.close(this);
+        }
+    }
+
+    private final class ModelQueue {
+
+        private final String model;
+        private final int limit;
+        private int active;
+        private int queued;
+        // Waiting tickets per user; the user first in iteration order is served next.
+        private final LinkedHashMap<String, Deque<Ticket>> waiting = new LinkedHashMap<>();
+        private long admitted;
+        private long rejectedQueueFull;
+        private long rejectedUserQueueFull;
+        private long rejectedDeadline;
+        // Moving average of how long a slot is held, for the retry hint.
+        private double averageHoldNanos = TimeUnit.SECONDS.toNanos(5);
+        private final LatencyStats waitTimes = new LatencyStats();
+        private final LatencyStats holdTimes = new LatencyStats();
+
+        ModelQueue(String model, int limit) {
+            this.model = model;
+            this.limit = limit;
+        }
+
+        synchronized Ticket enqueue(String user) {
+            Ticket ticket = new Ticket(this, user);
+            if (active < limit && queued == 0) {
+                grant(ticket);
+                return ticket;
+            }
+            if (queued >= properties.getMaxQueue()) {
+                rejectedQueueFull++;
+                throw reject(Rejection.QUEUE_FULL);
+            }
+            Deque<Ticket> own = waiting.get(user);
+            if (own != null && own.size() >= properties.getMaxQueuedPerUser()) {
+                rejectedUserQueueFull++;
+                throw reject(Rejection.USER_QUEUE_FULL);
+            }
+            waiting.computeIfAbsent(user, k -> new ArrayDeque<>()).addLast(ticket);
+            queued++;
+            return ticket;
+        }
+
+        synchronized void await(Ticket ticket) throws InterruptedException {
+            try {
+                while (ticket.state == TicketState.QUEUED) {
+                    long remaining = ticket.deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        withdraw(ticket);
+                        rejectedDeadline++;
+                        throw reject(Rejection.DEADLINE);
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                withdraw(ticket);
+                throw e;
+            }
+            if (ticket.state == TicketState.DONE) {
+                throw new IllegalStateException("Ticket is already closed");
+            }
+        }
+
+        synchronized void close(Ticket ticket) {
+            if (ticket.state == TicketState.GRANTED) {
+                long held = System.nanoTime() - ticket.grantedAt;
+                holdTimes.record(held);
+                averageHoldNanos = averageHoldNanos * 0.8 + held * 0.2;
+                active--;
+                ticket.state = TicketState.DONE;
+                dispatch();
+            } else {
+                withdraw(ticket);
+            }
+        }
+
+        private void withdraw(Ticket ticket) {
+            if (ticket.state != TicketState.QUEUED) {
+                return;
+            }
+            ticket.state = TicketState.DONE;
+            Deque<Ticket> own = waiting.get(ticket.user);
+            if (own != null && own.remove(ticket)) {
+                queued--;
+                if (own.isEmpty()) {
+                    waiting.remove(ticket.user);
+                }
+            }
+        }
+
+        /**
+         * Hands free slots to waiting tickets, one user at a time in turn.
+         */
+        private void dispatch() {
+            boolean granted = false;
+            while (active < limit && queued > 0) {
+                Iterator<Map.Entry<String, Deque<Ticket>>> users = waiting.entrySet().iterator();
+                Map.Entry<String, Deque<Ticket>> next = users.next();
+                Deque<Ticket> own = next.getValue();
+                Ticket ticket = own.removeFirst();
+                queued--;
+                users.remove();
+                if (!own.isEmpty()) {
+                    // Back of the line until every other waiting user has had a turn
+                    waiting.put(next.getKey(), own);
+                }
+                grant(ticket);
+                granted = true;
+            }
+            if (granted) {
+                notifyAll();
+            }
+        }
+
+        private void grant(Ticket ticket) {
+            ticket.state = TicketState.GRANTED;
+            ticket.grantedAt = System.nanoTime();
+            active++;
+            admitted++;
+            waitTimes.record(ticket.grantedAt - ticket.enqueuedAt);
+        }
+
+        private AdmissionRejectedException reject(Rejection reason) {
+            // Time for the slots to work through the queue ahead, in whole seconds
+            double waves = (queued + 1) / (double) limit;
+            long seconds = (long) Math.ceil(waves * averageHoldNanos / TimeUnit.SECONDS.toNanos(1));
+            long retryAfter = Math.max(1, Math.min(60, seconds));
+            logger.warn("Rejected chat request for model '{}' ({}); {} active, {} queued, retry after {} s.",
+                    model, reason.name().toLowerCase(), active, queued, retryAfter);
+            return new AdmissionRejectedException(model, reason, retryAfter);
+        }
+
+        synchronized ModelStats stats() {
+            return new ModelStats(limit, active, queued, waiting.size(), admitted, rejectedQueueFull,
+                    rejectedUserQueueFull, rejectedDeadline, waitTimes.snapshot(), holdTimes.snapshot());
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package com.ClimateTrack.backend.Service;
+
+import com.ClimateTrack.backend.config.OllamaEndpointProperties;
+import com.ClimateTrack.backend.util.CircuitBreaker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The one client for Ollama's HTTP API, shared by chat and embeddings. Requests go through a single
+ * JDK {@link HttpClient}, which keeps connections to Ollama open and reuses them, with explicit connect
+ * and read timeouts. Every request carries {@code keep_alive}, so Ollama keeps the models loaded
+ * between calls, and the models are loaded when the application starts rather than by the first user.
+ * <p>
+ * Requests can be spread over several Ollama instances ({@code ollama.endpoints}), each serving a set
+ * of models and workloads. Among the instances that serve a request's model and workload, are healthy
+ * and whose circuit is not open, two are picked at random and the one with fewer requests in flight
+ * gets it (power of two choices): nearly as even as always picking the least loaded, without every
+ * request piling onto the same momentarily idle instance. A call that cannot connect is retried once on
+ * another instance. Instances are probed in the background and left out while they do not answer.
+ * <p>
+ * Each instance has a circuit breaker that watches for connection failures, timeouts and server errors.
+ * When no usable instance is left, calls fail at once with {@link OllamaUnavailableException} instead
+ * of each waiting for the timeout. Client errors (4xx) mean Ollama is up and do not count as failures.
+ */
+@Service
+public class OllamaClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaClient.class);
+
+    private static final HttpHeaders JSON_HEADERS = HttpHeaders.readOnlyHttpHeaders(jsonHeaders());
+
+    /**
+     * Kind of request, so that instances can be set aside for one kind: {@code INTERACTIVE} for chat
+     * and query embeddings, {@code BATCH} for ingestion.
+     */
+    public enum Workload { INTERACTIVE, BATCH }
+
+    /**
+     * Thrown without calling Ollama when no instance can take the request.
+     */
+    public static class OllamaUnavailableException extends RestClientException {
+
+        OllamaUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Status and body of a streamed chat response. Closing the body ends the request.
+     */
+    public record StreamResponse(int statusCode, InputStream body) {}
+
+    /**
+     * One instance: whether the last health probe answered, requests in flight, totals, its circuit, and
+     * how long loading each model took at startup (-1 if it failed).
+     */
+    public record EndpointStats(String name, String url, Set<String> models, Set<Workload> workloads,
+                                boolean healthy, int outstanding, long requests, long failures,
+                                CircuitBreaker.Stats circuit, Map<String, Long> warmUpMillis) {}
+
+    public record OllamaStats(List<EndpointStats> endpoints, long unavailable) {}
+
+    private final ObjectMapper objectMapper;
+    private final String chatPath;
+    private final String embeddingsPath;
+    private final String embedPath;
+    private final String chatModel;
+    private final String embeddingModel;
+    private final String keepAlive;
+    private final boolean warmUpEnabled;
+    private final Duration readTimeout;
+    private final Duration healthTimeout;
+    private final HttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final AtomicLong unavailable = new AtomicLong();
+
+    public OllamaClient(ObjectMapper objectMapper,
+                        OllamaEndpointProperties endpointProperties,
+                        @Value("${ollama.api.base.url}") String baseUrl,
+                        @Value("${ollama.api.chat.endpoint}") String chatPath,
+                        @Value("${ollama.api.embeddings.endpoint}") String embeddingsPath,
+                        @Value("${ollama.api.embed.endpoint:/api/embed}") String embedPath,
+                        @Value("${ollama.chat.model}") String chatModel,
+                        @Value("${ollama.embedding.model}") String embeddingModel,
+                        @Value("${ollama.keep-alive:30m}") String keepAlive,
+                        @Value("${ollama.warm-up.enabled:true}") boolean warmUpEnabled,
+                        @Value("${ollama.client.connect-timeout-ms:2000}") long connectTimeoutMillis,
+                        @Value("${ollama.client.read-timeout-ms:120000}") long readTimeoutMillis,
+                        @Value("${ollama.circuit.failure-threshold:5}") int failureThreshold,
+                        @Value("${ollama.circuit.open-ms:15000}") long openMillis) {
+        this.objectMapper = objectMapper;
+        this.chatPath = chatPath;
+        this.embeddingsPath = embeddingsPath;
+        this.embedPath = embedPath;
+        this.chatModel = chatModel;
+        this.embeddingModel = embeddingModel;
+        this.keepAlive = keepAlive;
+        this.warmUpEnabled = warmUpEnabled;
+        this.readTimeout = Duration.ofMillis(readTimeoutMillis);
+        this.healthTimeout = Duration.ofMillis(Math.max(500, connectTimeoutMillis));
+        // Ollama speaks HTTP/1.1; pinning it avoids an h2c upgrade attempt on every new connection
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+
+        List<OllamaEndpointProperties.Endpoint> configured = endpointProperties.getEndpoints();
+        if (configured.isEmpty()) {
+            endpoints.add(new Endpoint(baseUrl, baseUrl, Set.of(), EnumSet.allOf(Workload.class),
+                    new CircuitBreaker(failureThreshold, openMillis)));
+        }
+        for (OllamaEndpointProperties.Endpoint endpoint : configured) {
+            if (endpoint.getUrl() == null || endpoint.getUrl().isBlank()) {
+                throw new IllegalArgumentException("Ollama endpoint '" + endpoint.getName() + "' has no url");
+            }
+            String url = endpoint.getUrl().replaceAll("/+$", "");
+            Set<Workload> workloads = endpoint.getWorkloads().isEmpty()
+                    ? EnumSet.allOf(Workload.class) : EnumSet.copyOf(endpoint.getWorkloads());
+            endpoints.add(new Endpoint(endpoint.getName() == null ? url : endpoint.getName(), url,
+                    Set.copyOf(endpoint.getModels()), workloads, new CircuitBreaker(failureThreshold, openMillis)));
+        }
+        for (String model : List.of(chatModel, embeddingModel)) {
+            for (Workload workload : Workload.values()) {
+                if (endpoints.stream().noneMatch(endpoint -> endpoint.serves(model, workload))) {
+                    logger.warn("No Ollama endpoint serves model '{}' for {} requests.", model,
+                            workload.name().toLowerCase());
+                }
+            }
+        }
+    }
+
+    private static HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        return headers;
+    }
+
+    /**
+     * Posts a non-streaming request to the chat API.
+     * @return the response body.
+     */
+    public String chat(Map<String, Object> requestBody) {
+        return post(chatPath, requestBody, Workload.INTERACTIVE);
+    }
+
+    /**
+     * Posts to the single-text embeddings API ({@code prompt} in, {@code embedding} out).
+     */
+    public String embeddings(Map<String, Object> requestBody, Workload workload) {
+        return post(embeddingsPath, requestBody, workload);
+    }
+
+    /**
+     * Posts to the batch embedding API ({@code input} array in, {@code embeddings} out).
+     */
+    public String embed(Map<String, Object> requestBody, Workload workload) {
+        return post(embedPath, requestBody, workload);
+    }
+
+    private String post(String path, Map<String, Object> requestBody, Workload workload) {
+        String model = String.valueOf(requestBody.get("model"));
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(withKeepAlive(requestBody), JSON_HEADERS);
+        Endpoint failed = null;
+        while (true) {
+            Endpoint endpoint = choose(model, workload, failed);
+            try {
+                return post(endpoint, path, entity);
+            } catch (ResourceAccessException e) {
+                // Not connected or timed out: one more try on another instance, if there is one
+                if (failed != null) {
+                    throw e;
+                }
+                failed = endpoint;
+                if (!hasAlternative(model, workload, failed)) {
+                    throw e;
+                }
+                logger.warn("Ollama endpoint '{}' failed ({}); retrying on another endpoint.", endpoint.name,
+                        e.getMessage());
+            }
+        }
+    }
+
+    private String post(Endpoint endpoint, String path, HttpEntity<Map<String, Object>> entity) {
+        endpoint.begin();
+        try {
+            ResponseEntity<String> response = restTemplate.postForEntity(endpoint.url + path, entity, String.class);
+            endpoint.circuitBreaker.onSuccess();
+            return response.getBody();
+        } catch (HttpClientErrorException e) {
+            endpoint.circuitBreaker.onSuccess();
+            throw e;
+        } catch (RestClientException e) {
+            endpoint.recordFailure(e);
+            throw e;
+        } catch (RuntimeException e) {
+            endpoint.circuitBreaker.release();
+            throw e;
+        } finally {
+            endpoint.end();
+        }
+    }
+
+    /**
+     * Posts a streaming chat request. The response is returned once its headers arrive, with the NDJSON
+     * body to be read as it is generated; a non-200 status is left for the caller to report. The request
+     * counts as in flight on its instance until the body is closed.
+     */
+    public StreamResponse streamChat(Map<String, Object> requestBody) throws IOException, InterruptedException {
+        String body = objectMapper.writeValueAsString(withKeepAlive(requestBody));
+        Endpoint endpoint = choose(String.valueOf(requestBody.get("model")), Workload.INTERACTIVE, null);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint.url + chatPath))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE)
+                .timeout(readTimeout)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        endpoint.begin();
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            endpoint.recordFailure(e);
+            endpoint.end();
+            throw e;
+        } catch (InterruptedException | RuntimeException e) {
+            endpoint.circuitBreaker.release();
+            endpoint.end();
+            throw e;
+        }
+        if (response.statusCode() >= 500) {
+            endpoint.recordFailure(null);
+        } else {
+            endpoint.circuitBreaker.onSuccess();
+        }
+        AtomicBoolean ended = new AtomicBoolean();
+        return new StreamResponse(response.statusCode(), new FilterInputStream(response.body()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (ended.compareAndSet(false, true)) {
+                        endpoint.end();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Picks the instance for one call and takes its circuit permit.
+     * @throws OllamaUnavailableException if no instance can take it.
+     */
+    private Endpoint choose(String model, Workload workload, Endpoint excluded) {
+        List<Endpoint> candidates = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint != excluded && endpoint.serves(model, workload) && endpoint.healthy
+                    && endpoint.circuitBreaker.allowsCalls()) {
+                candidates.add(endpoint);
+            }
+        }
+        while (!candidates.isEmpty()) {
+            Endpoint chosen = candidates.get(0);
+            if (candidates.size() > 1) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int first = random.nextInt(candidates.size());
+                int second = random.nextInt(candidates.size() - 1);
+                if (second >= first) {
+                    second++;
+                }
+                Endpoint a = candidates.get(first);
+                Endpoint b = candidates.get(second);
+                chosen = a.outstanding.get() <= b.outstanding.get() ? a : b;
+            }
+            if (chosen.circuitBreaker.tryAcquire()) {
+                return chosen;
+            }
+            // Another call took the half-open trial first
+            candidates.remove(chosen);
+        }
+        unavailable.incrementAndGet();
+        throw new OllamaUnavailableException("No Ollama endpoint is available for model '" + model + "' ("
+                + workload.name().toLowerCase() + ")");
+    }
+
+    private boolean hasAlternative(String model, Workload workload, Endpoint excluded) {
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint != excluded && endpoint.serves(model, workload) && endpoint.healthy
+                    && endpoint.circuitBreaker.allowsCalls()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, Object> withKeepAlive(Map<String, Object> requestBody) {
+        if (requestBody.containsKey("keep_alive")) {
+            return requestBody;
+        }
+        Map<String, Object> body = new HashMap<>(requestBody);
+        body.put("keep_alive", keepAlive);
+        return body;
+    }
+
+    /**
+     * Probes every instance by listing its models. An instance that does not answer is left out until a
+     * later probe succeeds; one that answers without a configured model is only reported.
+     */
+    @Scheduled(fixedDelayString = "${ollama.health.interval-ms:10000}",
+            initialDelayString = "${ollama.health.interval-ms:10000}")
+    public void checkHealth() {
+        for (Endpoint endpoint : endpoints) {
+            boolean healthy;
+            Set<String> missing = new LinkedHashSet<>(endpoint.models);
+            try {
+                HttpResponse<String> response = httpClient.send(
+                        HttpRequest.newBuilder(URI.create(endpoint.url + "/api/tags")).timeout(healthTimeout).GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+                healthy = response.statusCode() == 200;
+                if (healthy && !missing.isEmpty()) {
+                    for (JsonNode model : objectMapper.readTree(response.body()).path("models")) {
+                        String name = model.path("name").asText();
+                        missing.remove(name);
+                        missing.remove(name.replaceFirst(":latest$", ""));
+                    }
+                }
+            } catch (IOException e) {
+                healthy = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (healthy != endpoint.healthy) {
+                logger.warn("Ollama endpoint '{}' is {}.", endpoint.name, healthy ? "healthy again" : "not responding");
+            }
+            endpoint.healthy = healthy;
+            if (healthy && !missing.isEmpty() && endpoint.reportedMissing.compareAndSet(false, true)) {
+                logger.warn("Ollama endpoint '{}' does not have models {}.", endpoint.name, missing);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (warmUpEnabled) {
+            // Loading a model can take seconds; keep it off the startup thread
+            CompletableFuture.runAsync(this::warmUp);
+        }
+    }
+
+    /**
+     * Loads the models into the memory of every instance that serves them. A chat request without
+     * messages only loads the model; the embedding model is loaded by embedding one word.
+     */
+    public void warmUp() {
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.serves(chatModel, null)) {
+                warmUp(endpoint, chatModel, chatPath,
+                        Map.of("model", chatModel, "messages", List.of(), "stream", false));
+            }
+            if (endpoint.serves(embeddingModel, null)) {
+                warmUp(endpoint, embeddingModel, embedPath,
+                        Map.of("model", embeddingModel, "input", List.of("warm-up")));
+            }
+        }
+    }
+
+    private void warmUp(Endpoint endpoint, String model, String path, Map<String, Object> requestBody) {
+        long start = System.nanoTime();
+        try {
+            if (!endpoint.circuitBreaker.tryAcquire()) {
+                throw new OllamaUnavailableException("circuit is open");
+            }
+            post(endpoint, path, new HttpEntity<>(withKeepAlive(requestBody), JSON_HEADERS));
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            endpoint.warmUpMillis.put(model, millis);
+            logger.info("Loaded Ollama model '{}' on '{}' in {} ms.", model, endpoint.name, millis);
+        } catch (RuntimeException e) {
+            endpoint.warmUpMillis.put(model, -1L);
+            logger.warn("Could not load Ollama model '{}' on '{}' at startup: {}", model, endpoint.name, e.getMessage());
+        }
+    }
+
+    public OllamaStats getStats() {
+        List<EndpointStats> stats = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            stats.add(new EndpointStats(endpoint.name, endpoint.url, endpoint.models, endpoint.workloads,
+                    endpoint.healthy, endpoint.outstanding.get(), endpoint.requests.get(), endpoint.failures.get(),
+                    endpoint.circuitBreaker.stats(), new TreeMap<>(endpoint.warmUpMillis)));
+        }
+        return new OllamaStats(stats, unavailable.get());
+    }
+
+    private static final class Endpoint {
+
+        final String name;
+        final String url;
+        final Set<String> models;
+        final Set<Workload> workloads;
+        final CircuitBreaker circuitBreaker;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final Map<String, Long> warmUpMillis = new ConcurrentHashMap<>();
+        final AtomicBoolean reportedMissing = new AtomicBoolean();
+        volatile boolean healthy = true;
+
+        Endpoint(String name, String url, Set<String> models, Set<Workload> workloads, CircuitBreaker circuitBreaker) {
+            this.name = name;
+            this.url = url;
+            this.models = models;
+            this.workloads = workloads;
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        /**
+         * Whether this instance takes {@code model} for {@code workload} (any workload if null).
+         */
+        boolean serves(String model, Workload workload) {
+            return (models.isEmpty() || models.contains(model)) && (workload == null || workloads.contains(workload));
+        }
+
+        void begin() {
+            outstanding.incrementAndGet();
+            requests.incrementAndGet();
+        }
+
+        void end() {
+            outstanding.decrementAndGet();
+        }
+
+        void recordFailure(Exception cause) {
+            failures.incrementAndGet();
+            circuitBreaker.onFailure();
+            if (circuitBreaker.stats().state() == CircuitBreaker.State.OPEN) {
+                logger.warn("Ollama circuit for '{}' is open after a failed call{}; it is skipped for the next {} ms.",
+                        name, cause == null ? "" : " (" + cause.getMessage() + ")", circuitBreaker.retryAfterMillis());
+            }
+        }
+    }
+}
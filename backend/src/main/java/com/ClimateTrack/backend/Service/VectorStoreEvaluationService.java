@@ -0,0 +1,492 @@
+package com.ClimateTrack.backend.Service;
+
+import com.ClimateTrack.backend.config.VectorStoreProperties;
+import com.ClimateTrack.backend.util.HnswIndex;
+import com.ClimateTrack.backend.util.LatencyStats;
+import com.ClimateTrack.backend.util.QuantizedVectors;
+import com.ClimateTrack.backend.util.TopKHeap;
+import com.ClimateTrack.backend.util.Whitespace;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.BiFunction;
+
+/**
+ * Offline measurements of the vector store on the generation it is serving: recall and latency of the
+ * HNSW graph and of the int8 first pass against the exact scan, and recall@k and MRR of every retrieval
+ * strategy over a golden set of questions. None of this is on the query path; the structures a
+ * measurement needs that the served index does not keep are built here, and kept only until a new
+ * generation is published.
+ */
+@Service
+public class VectorStoreEvaluationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorStoreEvaluationService.class);
+
+    /** Result of comparing the HNSW index against the exact scan for one efSearch setting. */
+    public record EfSearchResult(int efSearch, double recall, LatencyStats.Snapshot latency) {}
+
+    /** Recall-vs-latency report for the approximate index, measured on the live corpus. */
+    public record IndexEvaluation(int corpusSize, int queries, int k, int m, int efConstruction,
+                                  LatencyStats.Snapshot exactLatency, List<EfSearchResult> results) {}
+
+    /**
+     * Recall and memory cost of the int8 first pass, with and without exact re-scoring. Resident bytes
+     * count everything held in memory, heap and direct buffers alike; {@code quantizedMappedBytes} is the
+     * memory-mapped file of full-precision rows, paged in only where re-scoring reads it.
+     */
+    public record QuantizationEvaluation(int corpusSize, int queries, int k, int rerankFactor,
+                                         double firstPassRecall, double rerankedRecall,
+                                         LatencyStats.Snapshot exactLatency, LatencyStats.Snapshot quantizedLatency,
+                                         long floatResidentBytes, long quantizedResidentBytes,
+                                         long quantizedMappedBytes) {}
+
+    /**
+     * One question of a golden set. Each {@code expected} passage identifies a chunk that answers it: a
+     * retrieved chunk counts as that chunk if it contains the passage, ignoring case and whitespace, so
+     * the set survives changes to chunk boundaries. {@code embedding} may carry a precomputed query
+     * embedding; without it the question is embedded through the embedding service.
+     */
+    public record GoldenQuery(String id, String question, List<String> expected, float[] embedding) {}
+
+    public enum RetrievalStrategy { LEXICAL, EXACT, QUANTIZED, HNSW, HYBRID }
+
+    /**
+     * Quality and latency of one strategy over a golden set. {@code recallAtK} is the mean share of
+     * expected passages found in the top k, {@code mrr} the mean reciprocal rank of the first relevant
+     * chunk, and {@code missed} the ids of questions with no relevant chunk in the top k. Latency covers
+     * the search only; query embeddings are timed separately.
+     */
+    public record StrategyEvaluation(RetrievalStrategy strategy, double recallAtK, double mrr,
+                                     LatencyStats.Snapshot latency, List<String> missed) {}
+
+    /**
+     * Retrieval report over a golden set. {@code skipped} counts questions left out because they could
+     * not be embedded or have no expected passage.
+     */
+    public record RetrievalEvaluation(long generation, int corpusSize, int queries, int skipped, int k,
+                                      LatencyStats.Snapshot queryEmbedding, List<StrategyEvaluation> strategies) {}
+
+    private final VectorStoreService vectorStoreService;
+    private final EmbeddingService embeddingService;
+    private final ObjectMapper objectMapper;
+    private final int hnswM;
+    private final int hnswEfConstruction;
+    private final int hnswEfSearch;
+    private final int rerankFactor;
+    private final boolean reportOnBuild;
+
+    // With 'vectorstore.evaluation.golden-set' set, each full build is evaluated against it and the
+    // report written to 'vectorstore.evaluation.output'.
+    private final String goldenSetLocation;
+    private final int evaluationK;
+    private final Path evaluationOutput;
+
+    // HNSW graph and int8 rows built for evaluating a generation that does not keep them; built one at a
+    // time and reused until a new generation is published.
+    private final Object evaluationLock = new Object();
+    private long evaluationGeneration = -1;
+    private HnswIndex evaluationGraph;
+    private QuantizedVectors.Rows evaluationQuantizedRows;
+
+    public VectorStoreEvaluationService(VectorStoreService vectorStoreService, EmbeddingService embeddingService,
+                                        ObjectMapper objectMapper, VectorStoreProperties properties) {
+        this.vectorStoreService = vectorStoreService;
+        this.embeddingService = embeddingService;
+        this.objectMapper = objectMapper;
+        this.hnswM = properties.getHnsw().getM();
+        this.hnswEfConstruction = properties.getHnsw().getEfConstruction();
+        this.hnswEfSearch = properties.getHnsw().getEfSearch();
+        this.rerankFactor = Math.max(1, properties.getQuantization().getRerankFactor());
+        this.reportOnBuild = properties.getHnsw().isReportOnBuild();
+        this.goldenSetLocation = properties.getEvaluation().getGoldenSet();
+        this.evaluationK = Math.max(1, properties.getEvaluation().getK());
+        this.evaluationOutput = Path.of(properties.getEvaluation().getOutput());
+    }
+
+    /**
+     * The view's int8 rows, or a quantized copy of {@code rows} when the store keeps floats. The copy is
+     * reused by later evaluations of the same generation.
+     */
+    private QuantizedVectors.Rows quantizedRows(VectorStoreService.Generation view, float[] rows) {
+        if (view.quantizedRows() != null) {
+            return view.quantizedRows();
+        }
+        synchronized (evaluationLock) {
+            resetEvaluationCache(view);
+            if (evaluationQuantizedRows == null) {
+                int dim = view.dimension();
+                QuantizedVectors copy = new QuantizedVectors(Math.max(dim, 1), Math.max(view.count(), 1));
+                for (int i = 0; i < view.count(); i++) {
+                    copy.set(i, Arrays.copyOfRange(rows, i * dim, (i + 1) * dim));
+                }
+                evaluationQuantizedRows = copy.rows();
+            }
+            return evaluationQuantizedRows;
+        }
+    }
+
+    /**
+     * The view's HNSW graph, or one built with the configured parameters over the view's float matrix.
+     * The built graph is reused by later evaluations of the same generation.
+     */
+    private HnswIndex graph(VectorStoreService.Generation view) {
+        if (view.graph() != null) {
+            return view.graph();
+        }
+        synchronized (evaluationLock) {
+            resetEvaluationCache(view);
+            if (evaluationGraph == null) {
+                HnswIndex graph = new HnswIndex(hnswM, hnswEfConstruction, 42L);
+                for (int i = 0; i < view.count(); i++) {
+                    graph.insert(i, view.matrix(), view.dimension());
+                }
+                evaluationGraph = graph;
+            }
+            return evaluationGraph;
+        }
+    }
+
+    /**
+     * Drops the evaluation structures of an older generation. Must hold {@code evaluationLock}.
+     */
+    private void resetEvaluationCache(VectorStoreService.Generation view) {
+        if (evaluationGeneration != view.id()) {
+            evaluationGeneration = view.id();
+            evaluationGraph = null;
+            evaluationQuantizedRows = null;
+        }
+    }
+
+    /**
+     * Measures recall@k of the int8 first pass alone and with exact re-scoring, plus scan latency and
+     * memory cost, against the exact float scan on a random sample of stored rows. When the store keeps
+     * float rows, a temporary quantized copy is built for the comparison.
+     */
+    public QuantizationEvaluation evaluateQuantization(int sampleSize, int k) {
+        VectorStoreService.Generation view = vectorStoreService.currentGeneration();
+        int dim = view.dimension();
+        int queries = Math.max(0, Math.min(sampleSize, view.count()));
+        float[] rows = VectorStoreService.floatMatrix(view);
+        VectorStoreService.Generation exactView = view.withFloatRows(rows, null);
+        QuantizedVectors.Rows quantizedRows = quantizedRows(view, rows);
+
+        SplittableRandom random = new SplittableRandom(7L);
+        int heapSize = Math.max(1, Math.min(k, view.count()));
+        TopKHeap exact = new TopKHeap(heapSize);
+        TopKHeap firstPass = new TopKHeap(heapSize);
+        TopKHeap reranked = new TopKHeap(heapSize);
+        LatencyStats exactLatency = new LatencyStats(Math.max(queries, 1));
+        LatencyStats quantizedLatency = new LatencyStats(Math.max(queries, 1));
+        long total = 0;
+        long firstPassFound = 0;
+        long rerankedFound = 0;
+        for (int q = 0; q < queries; q++) {
+            int queryId = random.nextInt(view.count());
+            float[] query = Arrays.copyOfRange(rows, queryId * dim, (queryId + 1) * dim);
+
+            long start = System.nanoTime();
+            vectorStoreService.exactSearch(exactView, query, exact);
+            exactLatency.record(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            VectorStoreService.quantizedSearch(quantizedRows, view.count(), view.deleted(), query, reranked, rerankFactor);
+            quantizedLatency.record(System.nanoTime() - start);
+            VectorStoreService.quantizedSearch(quantizedRows, view.count(), view.deleted(), query, firstPass, 1);
+
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < exact.size(); i++) {
+                expected.add(exact.id(i));
+            }
+            total += expected.size();
+            firstPassFound += countFound(firstPass, expected);
+            rerankedFound += countFound(reranked, expected);
+        }
+        return new QuantizationEvaluation(view.count(), queries, k, rerankFactor,
+                total == 0 ? 0 : firstPassFound / (double) total,
+                total == 0 ? 0 : rerankedFound / (double) total,
+                exactLatency.snapshot(), quantizedLatency.snapshot(),
+                (long) (view.quantizedRows() == null ? view.matrix().length : view.count() * dim) * Float.BYTES,
+                quantizedRows.residentBytes(), quantizedRows.mappedBytes());
+    }
+
+    private static int countFound(TopKHeap heap, Set<Integer> expected) {
+        int found = 0;
+        for (int i = 0; i < heap.size(); i++) {
+            if (expected.contains(heap.id(i))) found++;
+        }
+        return found;
+    }
+
+    /**
+     * Measures recall@k and latency of the HNSW index against the exact scan, using a random sample of
+     * stored rows as queries. Each query row is its own nearest neighbor in both result sets, so recall
+     * is driven by the remaining k-1 neighbors. When the store runs in exact mode, a temporary graph is
+     * built with the configured parameters.
+     */
+    public IndexEvaluation evaluateApproximateIndex(int sampleSize, int k) {
+        VectorStoreService.Generation view = vectorStoreService.currentGeneration();
+        view = view.withFloatRows(VectorStoreService.floatMatrix(view), view.graph());
+        int queries = Math.max(0, Math.min(sampleSize, view.count()));
+        int dim = view.dimension();
+        HnswIndex graph = graph(view);
+
+        SplittableRandom random = new SplittableRandom(7L);
+        int[] queryIds = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            queryIds[i] = random.nextInt(view.count());
+        }
+
+        LatencyStats exactLatency = new LatencyStats(Math.max(queries, 1));
+        List<Set<Integer>> truth = new ArrayList<>(queries);
+        TopKHeap heap = new TopKHeap(Math.max(1, Math.min(k, view.count())));
+        for (int queryId : queryIds) {
+            float[] query = Arrays.copyOfRange(view.matrix(), queryId * dim, (queryId + 1) * dim);
+            long start = System.nanoTime();
+            vectorStoreService.exactSearch(view, query, heap);
+            exactLatency.record(System.nanoTime() - start);
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < heap.size(); i++) {
+                expected.add(heap.id(i));
+            }
+            truth.add(expected);
+        }
+
+        List<EfSearchResult> results = new ArrayList<>();
+        for (int ef : new int[]{16, 32, 64, 128, 256}) {
+            LatencyStats latency = new LatencyStats(Math.max(queries, 1));
+            long found = 0;
+            long total = 0;
+            for (int q = 0; q < queries; q++) {
+                int queryId = queryIds[q];
+                float[] query = Arrays.copyOfRange(view.matrix(), queryId * dim, (queryId + 1) * dim);
+                long start = System.nanoTime();
+                graph.search(query, view.matrix(), dim, ef, view.count(), view.deleted(), heap);
+                latency.record(System.nanoTime() - start);
+                found += countFound(heap, truth.get(q));
+                total += truth.get(q).size();
+            }
+            results.add(new EfSearchResult(ef, total == 0 ? 0 : found / (double) total, latency.snapshot()));
+        }
+        return new IndexEvaluation(view.count(), queries, k, hnswM, hnswEfConstruction,
+                exactLatency.snapshot(), results);
+    }
+
+    /**
+     * Runs every question of {@code goldenSet} through each retrieval strategy on the served generation
+     * and reports recall@k, MRR and search latency per strategy. HYBRID is the path taken by
+     * {@link VectorStoreService#retrieveRelevantChunks}, over the configured index type; the HNSW graph and int8 rows are
+     * built temporarily when the store does not keep them. Each strategy makes one unmeasured pass over
+     * the set before the measured one.
+     */
+    public RetrievalEvaluation evaluateRetrieval(List<GoldenQuery> goldenSet, int k) {
+        VectorStoreService.Generation view = vectorStoreService.currentGeneration();
+        int dim = view.dimension();
+        int topN = Math.max(1, k);
+
+        List<GoldenQuery> queries = new ArrayList<>();
+        List<float[]> embeddings = new ArrayList<>();
+        LatencyStats embeddingLatency = new LatencyStats(Math.max(goldenSet.size(), 1));
+        for (GoldenQuery query : goldenSet) {
+            if (query.question() == null || query.question().isBlank()
+                    || query.expected() == null || query.expected().isEmpty()) {
+                continue;
+            }
+            float[] embedding = query.embedding();
+            if (embedding == null) {
+                long start = System.nanoTime();
+                try {
+                    embedding = embeddingService.generateEmbedding(query.question());
+                } catch (RuntimeException e) {
+                    logger.warn("Skipping golden query '{}', it could not be embedded: {}", query.id(), e.getMessage());
+                    continue;
+                }
+                embeddingLatency.record(System.nanoTime() - start);
+            }
+            if (embedding.length != dim) {
+                logger.warn("Skipping golden query '{}': embedding dimension {} does not match store dimension {}.",
+                        query.id(), embedding.length, dim);
+                continue;
+            }
+            queries.add(query);
+            embeddings.add(embedding);
+        }
+        int skipped = goldenSet.size() - queries.size();
+        if (view.count() == 0 || queries.isEmpty()) {
+            return new RetrievalEvaluation(view.id(), view.count(), queries.size(), skipped, topN,
+                    embeddingLatency.snapshot(), List.of());
+        }
+
+        float[] rows = VectorStoreService.floatMatrix(view);
+        VectorStoreService.Generation exactView = view.withFloatRows(rows, view.graph());
+        QuantizedVectors.Rows quantizedRows = quantizedRows(view, rows);
+        HnswIndex graph = graph(exactView);
+        TopKHeap heap = new TopKHeap(Math.min(topN, view.count()));
+        Map<RetrievalStrategy, BiFunction<String, float[], TopKHeap>> searches = new EnumMap<>(RetrievalStrategy.class);
+        searches.put(RetrievalStrategy.LEXICAL,
+                (question, embedding) -> view.lexical().search(question, topN, view.count(), view.deleted()).hits());
+        searches.put(RetrievalStrategy.EXACT, (question, embedding) -> {
+            vectorStoreService.exactSearch(exactView, embedding, heap);
+            return heap;
+        });
+        searches.put(RetrievalStrategy.QUANTIZED, (question, embedding) -> {
+            VectorStoreService.quantizedSearch(quantizedRows, view.count(), view.deleted(), embedding, heap, rerankFactor);
+            return heap;
+        });
+        searches.put(RetrievalStrategy.HNSW, (question, embedding) -> {
+            graph.search(embedding, rows, dim, hnswEfSearch, view.count(), view.deleted(), heap);
+            return heap;
+        });
+        searches.put(RetrievalStrategy.HYBRID,
+                (question, embedding) -> vectorStoreService.hybridSearch(view, question, topN, () -> embedding, false));
+
+        List<List<String>> expected = new ArrayList<>(queries.size());
+        for (GoldenQuery query : queries) {
+            expected.add(query.expected().stream().map(VectorStoreEvaluationService::matchForm).toList());
+        }
+        Map<Integer, String> chunkForms = new HashMap<>();
+        List<StrategyEvaluation> results = new ArrayList<>();
+        for (Map.Entry<RetrievalStrategy, BiFunction<String, float[], TopKHeap>> entry : searches.entrySet()) {
+            BiFunction<String, float[], TopKHeap> search = entry.getValue();
+            for (int q = 0; q < queries.size(); q++) {
+                search.apply(queries.get(q).question(), embeddings.get(q));
+            }
+            LatencyStats latency = new LatencyStats(queries.size());
+            double recall = 0;
+            double reciprocalRanks = 0;
+            List<String> missed = new ArrayList<>();
+            for (int q = 0; q < queries.size(); q++) {
+                long start = System.nanoTime();
+                TopKHeap hits = search.apply(queries.get(q).question(), embeddings.get(q));
+                latency.record(System.nanoTime() - start);
+
+                List<String> passages = expected.get(q);
+                boolean[] found = new boolean[passages.size()];
+                int firstRelevant = 0;
+                for (int rank = 0; rank < Math.min(topN, hits.size()); rank++) {
+                    String chunk = chunkForms.computeIfAbsent(hits.id(rank), id -> matchForm(view.texts()[id]));
+                    for (int p = 0; p < passages.size(); p++) {
+                        if (chunk.contains(passages.get(p))) {
+                            found[p] = true;
+                            if (firstRelevant == 0) {
+                                firstRelevant = rank + 1;
+                            }
+                        }
+                    }
+                }
+                int foundCount = 0;
+                for (boolean f : found) {
+                    if (f) foundCount++;
+                }
+                recall += foundCount / (double) passages.size();
+                if (firstRelevant == 0) {
+                    missed.add(queries.get(q).id() != null ? queries.get(q).id() : queries.get(q).question());
+                } else {
+                    reciprocalRanks += 1.0 / firstRelevant;
+                }
+            }
+            results.add(new StrategyEvaluation(entry.getKey(), recall / queries.size(),
+                    reciprocalRanks / queries.size(), latency.snapshot(), missed));
+        }
+        return new RetrievalEvaluation(view.id(), view.count(), queries.size(), skipped, topN,
+                embeddingLatency.snapshot(), results);
+    }
+
+    private static String matchForm(String text) {
+        return Whitespace.collapse(text).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The golden set at {@code vectorstore.evaluation.golden-set}, a {@code classpath:} location or a
+     * file path holding a JSON array of {@link GoldenQuery}; null if none is configured.
+     */
+    public List<GoldenQuery> loadGoldenSet() {
+        if (goldenSetLocation.isBlank()) {
+            return null;
+        }
+        Resource resource = goldenSetLocation.startsWith("classpath:")
+                ? new ClassPathResource(goldenSetLocation.substring("classpath:".length()))
+                : new FileSystemResource(goldenSetLocation);
+        try (InputStream in = resource.getInputStream()) {
+            return objectMapper.readValue(in, new TypeReference<List<GoldenQuery>>() {});
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read golden set " + goldenSetLocation + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Evaluates a freshly built index as configured: logs the HNSW recall-vs-latency report with
+     * {@code vectorstore.hnsw.report-on-build}, and writes the golden-set report when
+     * {@code vectorstore.evaluation.golden-set} is set. Runs on the build thread once the generation is
+     * served; a failure is logged and does not fail the build.
+     */
+    @EventListener
+    public void onIndexBuilt(VectorStoreService.IndexBuiltEvent event) {
+        if (reportOnBuild) {
+            try {
+                logEvaluation(evaluateApproximateIndex(200, 10));
+            } catch (RuntimeException e) {
+                logger.warn("HNSW evaluation of generation {} failed: {}", event.generation(), e.getMessage());
+            }
+        }
+        if (!goldenSetLocation.isBlank()) {
+            writeRetrievalEvaluation();
+        }
+    }
+
+    /**
+     * Evaluates the configured golden set and writes the report as JSON to
+     * {@code vectorstore.evaluation.output}, so successive builds can be compared. A failure is logged and
+     * does not fail the build.
+     */
+    private void writeRetrievalEvaluation() {
+        try {
+            RetrievalEvaluation evaluation = evaluateRetrieval(loadGoldenSet(), evaluationK);
+            Path parent = evaluationOutput.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(evaluationOutput.toFile(), evaluation);
+            logger.info("Retrieval evaluation of generation {} ({} queries, {} skipped) written to {}.",
+                    evaluation.generation(), evaluation.queries(), evaluation.skipped(), evaluationOutput);
+            for (StrategyEvaluation result : evaluation.strategies()) {
+                logger.info("  {} recall@{}={} MRR={} p50={}ms p95={}ms p99={}ms", result.strategy(), evaluation.k(),
+                        String.format("%.3f", result.recallAtK()), String.format("%.3f", result.mrr()),
+                        result.latency().p50Millis(), result.latency().p95Millis(), result.latency().p99Millis());
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Retrieval evaluation against '{}' failed: {}", goldenSetLocation, e.getMessage());
+        }
+    }
+
+    private void logEvaluation(IndexEvaluation evaluation) {
+        logger.info("HNSW evaluation over {} chunks ({} queries, k={}, M={}, efConstruction={}): exact scan p50={}ms p95={}ms",
+                evaluation.corpusSize(), evaluation.queries(), evaluation.k(), evaluation.m(),
+                evaluation.efConstruction(), evaluation.exactLatency().p50Millis(), evaluation.exactLatency().p95Millis());
+        for (EfSearchResult result : evaluation.results()) {
+            logger.info("  efSearch={} recall@{}={} p50={}ms p95={}ms", result.efSearch(), evaluation.k(),
+                    String.format("%.3f", result.recall()), result.latency().p50Millis(), result.latency().p95Millis());
+        }
+    }
+}
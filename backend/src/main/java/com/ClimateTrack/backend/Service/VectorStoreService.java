@@ -1,20 +1,52 @@
 package com.ClimateTrack.backend.Service;
 
+import com.ClimateTrack.backend.config.VectorStoreProperties;
+import com.ClimateTrack.backend.util.ContentHash;
 import com.ClimateTrack.backend.util.CsvReader; // <-- IMPORT CsvReader
+import com.ClimateTrack.backend.util.DirectoryWatcher;
+import com.ClimateTrack.backend.util.EmbeddingSnapshot;
+import com.ClimateTrack.backend.util.HnswIndex;
+import com.ClimateTrack.backend.util.LatencyStats;
+import com.ClimateTrack.backend.util.LexicalIndex;
+import com.ClimateTrack.backend.util.NearDuplicateFilter;
 import com.ClimateTrack.backend.util.PdfReader;
+import com.ClimateTrack.backend.util.QuantizedVectors;
+import com.ClimateTrack.backend.util.TextChunker;
+import com.ClimateTrack.backend.util.TopKHeap;
+import com.ClimateTrack.backend.util.VectorMath;
 // --- REMOVE open-csv imports ---
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 // --- REMOVE ClassPathResource, io, and nio imports ---
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-// --- REMOVE Arrays import ---
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class VectorStoreService {
@@ -22,12 +54,155 @@ public class VectorStoreService {
     private static final Logger logger = LoggerFactory.getLogger(VectorStoreService.class);
 
     private final EmbeddingService embeddingService;
+    private final EmbeddingPipeline embeddingPipeline;
     private final PdfReader pdfReader;
+    private final TextChunker textChunker;
     private final CsvReader csvReader; // <-- ADD CsvReader dependency
 
-    // In-memory store
-    private final List<String> chunks = new ArrayList<>();
-    private final List<float[]> embeddings = new ArrayList<>();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Readers only ever see an immutable generation published through 'current'; they never lock.
+    // Writers append to an IndexBuilder and publish a new generation under 'publishLock'. A full build
+    // fills a fresh builder off to the side and swaps it in once complete.
+    private final Object publishLock = new Object();
+    // Full builds, source reloads and removals run one at a time, so two of them never rewrite the
+    // snapshot together and a reload never lands in a builder that a running build is about to replace.
+    private final ReentrantLock sourceLock = new ReentrantLock();
+    private volatile Generation current = Generation.EMPTY;
+    private IndexBuilder activeBuilder;
+    private volatile BuildState buildState = BuildState.NOT_STARTED;
+    private volatile long buildStartedAt;
+    private volatile long publishedAt;
+
+    // With 'vectorstore.index.type=quantized' rows are kept as int8 codes (plus memory-mapped float rows
+    // for re-scoring) instead of in a float matrix.
+    private final boolean quantized;
+    private final int rerankFactor;
+
+    // With 'vectorstore.index.type=hnsw' each builder also links its rows into an HNSW graph.
+    private final boolean hnswEnabled;
+    private final int hnswM;
+    private final int hnswEfConstruction;
+    private final int hnswEfSearch;
+
+    // Each published full build is announced, so it can be evaluated (see VectorStoreEvaluationService).
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Hybrid retrieval over the BM25 index each builder keeps for the same row ids.
+    private final boolean hybridEnabled;
+    private final float lexicalShortcutCoverage;
+    private final float lexicalShortcutMinScore;
+    private final int rrfK;
+    private final LatencyStats lexicalShortcutLatency = new LatencyStats();
+    private final LatencyStats hybridLatency = new LatencyStats();
+
+    // Near-duplicate chunks are dropped before embedding when enabled.
+    private final boolean dedupEnabled;
+    private final int dedupMaxDistance;
+    private volatile DeduplicationReport deduplicationReport;
+
+    // Embeddings persisted across restarts, keyed by chunk content hash and embedding model.
+    private final boolean snapshotEnabled;
+    private final Path snapshotPath;
+    private final Path checkpointPath;
+    private final long checkpointIntervalNanos;
+
+    // Sources are read from 'ingestion.data-dir' when it exists (and watched for changes), otherwise
+    // from the classpath lists below. Retracted rows stay in the arrays, marked deleted, until they
+    // exceed 'compactRatio' of the rows and the index is rebuilt without them.
+    private final Path dataDirectory;
+    private final boolean watchEnabled;
+    private final long watchDebounceMillis;
+    private final double compactRatio;
+    private DirectoryWatcher watcher;
+    private NearDuplicateFilter duplicates;
+
+    /**
+     * Published once a full build has been swapped in.
+     */
+    public record IndexBuiltEvent(long generation, int chunkCount) {}
+
+    /**
+     * A retrieved chunk with the file it was read from (null for chunks indexed directly) and, for PDFs,
+     * the first and last page its text spans; pages are 0 when unknown.
+     */
+    public record Passage(String text, String source, int firstPage, int lastPage) {}
+
+    /**
+     * Latency of hybrid queries answered from the lexical index alone, and of those that also needed
+     * the query embedding and a vector search. The counts show how often the embedding call was skipped.
+     */
+    public record RetrievalStats(LatencyStats.Snapshot lexicalShortcut, LatencyStats.Snapshot hybrid) {}
+
+    /**
+     * Chunks examined and collapsed as near-duplicates by the last build, per source file.
+     */
+    public record DeduplicationReport(boolean enabled, int maxDistance, long examined, long collapsed,
+                                      Map<String, Long> collapsedBySource) {}
+
+    public enum BuildState { NOT_STARTED, BUILDING, READY, FAILED, CANCELLED }
+
+    /**
+     * Readiness of the store: the generation being served, its size, and the state of the full build.
+     * Timestamps are epoch milliseconds, or 0 if the event has not happened yet.
+     */
+    public record IndexStatus(long generation, int chunkCount, int deletedChunks, int dimension, BuildState state,
+                              long buildStartedAt, long publishedAt) {
+
+        public boolean ready() {
+            return state == BuildState.READY;
+        }
+    }
+
+    /**
+     * Immutable snapshot of the index. The arrays and indexes may be shared with later generations, but
+     * only past {@code count}: rows, graph nodes and postings below it are never rewritten. Rows set in
+     * {@code deleted} (null if none) have been retracted and are skipped by every search.
+     */
+    record Generation(long id, String[] texts, Origin[] origins, float[] matrix,
+                              QuantizedVectors.Rows quantizedRows, HnswIndex graph, LexicalIndex lexical, int count,
+                              int dimension, BitSet deleted) {
+
+        static final Generation EMPTY = new Generation(0, new String[0], new Origin[0], new float[0], null, null,
+                new LexicalIndex(), 0, 0, null);
+
+        int deletedCount() {
+            return deleted == null ? 0 : deleted.cardinality();
+        }
+
+        boolean isDeleted(int row) {
+            return deleted != null && deleted.get(row);
+        }
+
+        /**
+         * This generation over float rows {@code matrix} instead of its own rows, searched with
+         * {@code graph} (null for none).
+         */
+        Generation withFloatRows(float[] matrix, HnswIndex graph) {
+            return new Generation(id, texts, origins, matrix, null, graph, lexical, count, dimension, deleted);
+        }
+    }
+
+    /**
+     * Where a row came from: the source file it is retracted with (null for chunks indexed directly) and
+     * the PDF pages it spans (0 when unknown).
+     */
+    private record Origin(String source, int firstPage, int lastPage) {
+
+        static final Origin NONE = new Origin(null, 0, 0);
+    }
+
+    private record PendingChunk(String text, ContentHash hash, Origin origin) {
+
+        String source() {
+            return origin.source();
+        }
+    }
+
+    /**
+     * A PDF or CSV to ingest; {@code name} identifies its chunks in the index.
+     */
+    private record SourceFile(String name, Resource resource, boolean pdf) {}
 
     // List of data files
     private final List<String> pdfFiles = List.of(
@@ -45,72 +220,278 @@ public class VectorStoreService {
     );
 
     // --- UPDATE Constructor to inject CsvReader ---
-    public VectorStoreService(EmbeddingService embeddingService, PdfReader pdfReader, CsvReader csvReader) {
+    public VectorStoreService(EmbeddingService embeddingService, EmbeddingPipeline embeddingPipeline,
+                              PdfReader pdfReader, TextChunker textChunker, CsvReader csvReader,
+                              VectorStoreProperties properties, ApplicationEventPublisher eventPublisher,
+                              @Value("${ingestion.data-dir:}") String dataDirectory,
+                              @Value("${ingestion.watch.enabled:true}") boolean watchEnabled,
+                              @Value("${ingestion.watch.debounce-ms:2000}") long watchDebounceMillis) {
         this.embeddingService = embeddingService;
+        this.embeddingPipeline = embeddingPipeline;
         this.pdfReader = pdfReader;
+        this.textChunker = textChunker;
         this.csvReader = csvReader; // <-- ADD this line
+        this.eventPublisher = eventPublisher;
+        this.hnswM = properties.getHnsw().getM();
+        this.hnswEfConstruction = properties.getHnsw().getEfConstruction();
+        this.hnswEfSearch = properties.getHnsw().getEfSearch();
+        this.snapshotEnabled = properties.getSnapshot().isEnabled();
+        this.snapshotPath = Path.of(properties.getSnapshot().getPath());
+        this.checkpointPath = Path.of(properties.getSnapshot().getPath() + ".checkpoint");
+        this.checkpointIntervalNanos = TimeUnit.SECONDS.toNanos(
+                Math.max(1, properties.getSnapshot().getCheckpointIntervalSeconds()));
+        this.rerankFactor = Math.max(1, properties.getQuantization().getRerankFactor());
+        this.hybridEnabled = properties.getHybrid().isEnabled();
+        this.lexicalShortcutCoverage = properties.getHybrid().getShortcutMinCoverage();
+        this.lexicalShortcutMinScore = properties.getHybrid().getShortcutMinScore();
+        this.rrfK = properties.getHybrid().getRrfK();
+        this.dedupEnabled = properties.getDedup().isEnabled();
+        this.dedupMaxDistance = properties.getDedup().getMaxDistance();
+        this.compactRatio = properties.getCompaction().getDeletedRatio();
+        this.dataDirectory = dataDirectory.isBlank() ? null : Path.of(dataDirectory);
+        this.watchEnabled = watchEnabled;
+        this.watchDebounceMillis = watchDebounceMillis;
+        String indexType = properties.getIndex().getType();
+        this.quantized = "quantized".equalsIgnoreCase(indexType);
+        this.hnswEnabled = "hnsw".equalsIgnoreCase(indexType);
+        this.activeBuilder = new IndexBuilder();
+        logger.info("Vector store using {} search.", hnswEnabled ? "HNSW" : quantized ? "int8 quantized" : "exact");
     }
 
 
 
-    @Async
-    public void buildVectorStore() {
+    /**
+     * Builds a fresh index from every source and swaps it in, reporting per-source progress to
+     * {@code job}. Runs on the caller's thread; {@link IngestionJobService} calls it on its job thread.
+     * Newly embedded chunks are checkpointed periodically and when the build stops early, so the next
+     * build resumes from them.
+     * @throws CancellationException if the job was cancelled; the served index is left as it was.
+     */
+    public void buildVectorStore(IngestionJobService.Job job) {
+        sourceLock.lock();
+        try {
+            rebuild(job);
+        } finally {
+            sourceLock.unlock();
+        }
+    }
+
+    private void rebuild(IngestionJobService.Job job) {
         logger.info("--- [BACKGROUND] Starting Vector Store Initialization ---");
+        BuildState previousState = buildState;
+        buildState = BuildState.BUILDING;
+        buildStartedAt = System.currentTimeMillis();
+        String model = embeddingService.getModelName();
+        // Embeddings this build could not take from the snapshot: newly embedded or resumed from a checkpoint
+        Map<ContentHash, float[]> fresh = new ConcurrentHashMap<>();
+        Checkpointer checkpointer = new Checkpointer(model, fresh);
         try {
-            List<String> allChunks = new ArrayList<>();
-            StringBuilder pdfTextBuilder = new StringBuilder();
-
-            // 1. Load and combine all PDF text
-            for (String pdfPath : pdfFiles) {
-                logger.info("Loading PDF data from classpath: {}", pdfPath);
-                String text = pdfReader.extractTextFromClasspathPdf(pdfPath);
-                if (text.isEmpty()) {
-                    logger.warn("No text extracted from PDF: {}", pdfPath);
-                } else {
-                    logger.info("Extracted {} characters from PDF: {}", text.length(), pdfPath);
-                    pdfTextBuilder.append(text).append("\n\n");
+            // Chunks stream from each source straight into the index: unchanged chunks reuse their
+            // embedding from the last snapshot (or the checkpoint of an interrupted build), the rest are
+            // queued on the batched embedding pipeline, whose bounded queue holds extraction back while
+            // Ollama catches up.
+            Map<ContentHash, float[]> embedded = new ConcurrentHashMap<>();
+            IndexBuilder builder = new IndexBuilder();
+            AtomicInteger indexedCount = new AtomicInteger();
+            AtomicInteger reusedCount = new AtomicInteger();
+            AtomicInteger toEmbed = new AtomicInteger();
+            NearDuplicateFilter duplicates = dedupEnabled ? new NearDuplicateFilter(dedupMaxDistance) : null;
+            AtomicInteger examined = new AtomicInteger();
+            AtomicInteger collapsed = new AtomicInteger();
+            Map<String, Long> collapsedBySource = new LinkedHashMap<>();
+            Map<Path, DirectoryWatcher.FileState> fileStates = new HashMap<>();
+            List<SourceFile> sources = listSources(fileStates);
+            EmbeddingPipeline.Run<PendingChunk> run = embeddingPipeline.start("vector-store",
+                    PendingChunk::text,
+                    (pending, embedding) -> {
+                        if (builder.add(pending.text(), embedding, pending.origin())) {
+                            embedded.put(pending.hash(), embedding);
+                            fresh.put(pending.hash(), embedding);
+                            indexedCount.incrementAndGet();
+                            job.source(pending.source()).embedded.incrementAndGet();
+                        }
+                    },
+                    pending -> job.source(pending.source()).failed.incrementAndGet());
+            job.attach(run);
+            try (EmbeddingSnapshot snapshot = openSnapshot(model);
+                 EmbeddingSnapshot checkpoint = openCheckpoint(model)) {
+                if (checkpoint.size() > 0) {
+                    logger.info("Resuming from checkpoint with {} embeddings.", checkpoint.size());
                 }
-            }
-            allChunks.addAll(chunkTextByParagraph(pdfTextBuilder.toString()));
-            logger.info("Generated {} chunks from PDF files.", allChunks.size());
-
-            // 2. Load and parse all CSV text (NOW SIMPLIFIED)
-            List<String> csvChunks = parseCsvsToChunks(csvFiles);
-            allChunks.addAll(csvChunks);
-            logger.info("Generated {} chunks from CSV files.", csvChunks.size());
+                BiConsumer<String, TextChunker.Chunk> indexer = (source, piece) -> {
+                    if (piece == null || piece.text().trim().length() <= 10) {
+                        return;
+                    }
+                    String chunk = piece.text();
+                    job.throwIfCancelled();
+                    IngestionJobService.SourceCounters counters = job.source(source);
+                    counters.extracted.incrementAndGet();
+                    examined.incrementAndGet();
+                    if (duplicates != null && duplicates.isDuplicate(chunk)) {
+                        collapsed.incrementAndGet();
+                        counters.collapsed.incrementAndGet();
+                        return;
+                    }
+                    ContentHash hash = ContentHash.of(chunk);
+                    float[] embedding = snapshot.find(hash);
+                    if (embedding == null && (embedding = checkpoint.find(hash)) != null) {
+                        fresh.put(hash, embedding);
+                        job.resumedFromCheckpoint();
+                    }
+                    if (embedding == null) {
+                        submit(run, new PendingChunk(chunk, hash, origin(source, piece)));
+                        toEmbed.incrementAndGet();
+                    } else if (builder.add(chunk, embedding, origin(source, piece))) {
+                        embedded.put(hash, embedding);
+                        indexedCount.incrementAndGet();
+                        reusedCount.incrementAndGet();
+                        counters.reused.incrementAndGet();
+                    }
+                    checkpointer.maybeWrite();
+                };
 
-            // 3. Index all chunks
-            int indexedCount = 0;
-            for (String chunk : allChunks) {
-                if (chunk != null && !chunk.trim().isEmpty() && chunk.trim().length() > 10) {
+                // PDF pages stream through the chunker and CSV rows are formatted as they are decoded,
+                // one file at a time (PDFs first)
+                int pdfChunks = 0;
+                int csvChunks = 0;
+                for (SourceFile source : sources) {
+                    job.throwIfCancelled();
+                    job.source(source.name());
+                    int collapsedBefore = collapsed.get();
                     try {
-                        indexChunk(chunk);
-                        indexedCount++;
-                    } catch (Exception e) {
-                        logger.error("Failed to index chunk: {}", e.getMessage());
+                        int count = readChunks(source, chunk -> indexer.accept(source.name(), chunk));
+                        if (source.pdf()) {
+                            pdfChunks += count;
+                        } else {
+                            csvChunks += count;
+                        }
+                    } catch (IOException | UncheckedIOException e) {
+                        logger.error("Skipping {}: {}", source.name(), e.getMessage());
                     }
+                    collapsedBySource.put(source.name(), (long) collapsed.get() - collapsedBefore);
+                    run.expectTotal(toEmbed.get());
+                }
+                logger.info("Generated {} chunks from PDF files.", pdfChunks);
+                logger.info("Generated {} chunks from CSV files.", csvChunks);
+
+                deduplicationReport = new DeduplicationReport(dedupEnabled, dedupMaxDistance, examined.get(),
+                        collapsed.get(), collapsedBySource);
+                if (dedupEnabled) {
+                    logger.info("Near-duplicate filter collapsed {} of {} chunks (max Hamming distance {}).",
+                            collapsed.get(), examined.get(), dedupMaxDistance);
                 }
+            } finally {
+                run.finish();
             }
-            logger.info("Successfully indexed {} total chunks.", indexedCount);
+            job.throwIfCancelled();
+            logger.info("Successfully indexed {} total chunks ({} reused from snapshot, {} newly embedded).",
+                    indexedCount.get(), reusedCount.get(), indexedCount.get() - reusedCount.get());
+            Generation generation = swapIn(builder);
+            buildState = BuildState.READY;
+            logger.info("Published index generation {} with {} chunks.", generation.id(), generation.count());
+            saveSnapshot(model, embedded);
+            checkpointer.delete();
+            this.duplicates = duplicates;
+            startWatching(fileStates);
+            eventPublisher.publishEvent(new IndexBuiltEvent(generation.id(), generation.count()));
 
+        } catch (CancellationException e) {
+            buildState = previousState == BuildState.READY ? BuildState.READY : BuildState.CANCELLED;
+            checkpointer.write();
+            logger.info("Vector store build cancelled; still serving generation {}.", current.id());
+            throw e;
         } catch (Exception e) {
+            buildState = BuildState.FAILED;
+            checkpointer.write();
             logger.error("Failed to initialize vector store: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to build vector store: " + e.getMessage(), e);
         }
         logger.info("--- Vector Store Initialization Complete ---");
     }
 
+    private EmbeddingSnapshot openSnapshot(String model) {
+        if (!snapshotEnabled) {
+            return EmbeddingSnapshot.empty();
+        }
+        try {
+            return EmbeddingSnapshot.open(snapshotPath, model);
+        } catch (IOException e) {
+            logger.warn("Could not read embedding snapshot, re-embedding all chunks: {}", e.getMessage());
+            return EmbeddingSnapshot.empty();
+        }
+    }
+
+    private EmbeddingSnapshot openCheckpoint(String model) {
+        if (!snapshotEnabled) {
+            return EmbeddingSnapshot.empty();
+        }
+        try {
+            return EmbeddingSnapshot.open(checkpointPath, model);
+        } catch (IOException e) {
+            logger.warn("Could not read build checkpoint, ignoring it: {}", e.getMessage());
+            return EmbeddingSnapshot.empty();
+        }
+    }
+
     /**
-     * Parses a list of CSV files by delegating to the CsvReader.
-     * (This method is now much simpler)
+     * Writes the embeddings gathered by a running build to the checkpoint file every
+     * {@code checkpointIntervalNanos} and when the build stops early. Used from the build thread only.
      */
-    private List<String> parseCsvsToChunks(List<String> classpathCsvPaths) {
-        List<String> csvChunks = new ArrayList<>();
-        for (String csvPath : classpathCsvPaths) {
-            // --- Delegate all the complex logic to the CsvReader ---
-            List<String> chunksFromFile = csvReader.readAndFormatCsv(csvPath);
-            csvChunks.addAll(chunksFromFile);
+    private final class Checkpointer {
+
+        private final String model;
+        private final Map<ContentHash, float[]> entries;
+        private long lastWriteAt = System.nanoTime();
+        private int lastWrittenSize;
+
+        Checkpointer(String model, Map<ContentHash, float[]> entries) {
+            this.model = model;
+            this.entries = entries;
+        }
+
+        void maybeWrite() {
+            if (System.nanoTime() - lastWriteAt >= checkpointIntervalNanos) {
+                write();
+            }
+        }
+
+        void write() {
+            lastWriteAt = System.nanoTime();
+            // Entries are only ever added, so an unchanged size means nothing new to write.
+            Map<ContentHash, float[]> copy = new HashMap<>(entries);
+            if (!snapshotEnabled || copy.isEmpty() || copy.size() == lastWrittenSize) {
+                return;
+            }
+            try {
+                EmbeddingSnapshot.write(checkpointPath, model, copy.values().iterator().next().length, copy);
+                lastWrittenSize = copy.size();
+            } catch (IOException e) {
+                logger.warn("Failed to write build checkpoint {}: {}", checkpointPath, e.getMessage());
+            }
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(checkpointPath);
+            } catch (IOException e) {
+                logger.warn("Failed to delete build checkpoint {}: {}", checkpointPath, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the embeddings of the chunks indexed by this build, which also drops
+     * entries for chunks that no longer exist in the sources.
+     */
+    private void saveSnapshot(String model, Map<ContentHash, float[]> embedded) {
+        if (!snapshotEnabled || embedded.isEmpty()) {
+            return;
+        }
+        try {
+            EmbeddingSnapshot.write(snapshotPath, model, embedded.values().iterator().next().length, embedded);
+        } catch (IOException e) {
+            logger.error("Failed to write embedding snapshot {}: {}", snapshotPath, e.getMessage(), e);
         }
-        return csvChunks;
     }
 
     /**
@@ -121,25 +502,240 @@ public class VectorStoreService {
 
 
     /**
-     * Simple text chunking by splitting into paragraphs (based on blank lines).
-     * (This method remains unchanged)
+     * PDFs and CSVs of the data directory in name order, PDFs first, recording each file's state in
+     * {@code states}; or the classpath lists when no data directory is configured or it does not exist.
      */
-    private List<String> chunkTextByParagraph(String text) {
-        List<String> result = new ArrayList<>();
-        if (text == null || text.isEmpty()) return result;
-        String[] paragraphs = text.split("(\\s*\\r?\\n\\s*){2,}");
-        for (String p : paragraphs) {
-            String trimmedParagraph = p.trim();
-            if (trimmedParagraph.length() > 20) {
-                result.add(trimmedParagraph);
+    private List<SourceFile> listSources(Map<Path, DirectoryWatcher.FileState> states) throws IOException {
+        List<SourceFile> sources = new ArrayList<>();
+        if (dataDirectory == null || !Files.isDirectory(dataDirectory)) {
+            if (dataDirectory != null) {
+                logger.info("Data directory {} not found; loading the bundled classpath data.", dataDirectory.toAbsolutePath());
             }
+            pdfFiles.forEach(path -> sources.add(new SourceFile(path, new ClassPathResource(path), true)));
+            csvFiles.forEach(path -> sources.add(new SourceFile(path, new ClassPathResource(path), false)));
+            return sources;
+        }
+        logger.info("Loading data from directory: {}", dataDirectory.toAbsolutePath());
+        states.putAll(DirectoryWatcher.scan(dataDirectory, VectorStoreService::isSourceFile));
+        for (Path file : states.keySet()) {
+            sources.add(sourceFile(file));
+        }
+        sources.sort((a, b) -> Boolean.compare(b.pdf(), a.pdf()));
+        return sources;
+    }
+
+    private SourceFile sourceFile(Path file) {
+        return new SourceFile(sourceName(file), new FileSystemResource(file),
+                file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf"));
+    }
+
+    private static Origin origin(String source, TextChunker.Chunk chunk) {
+        return new Origin(source, chunk.firstPage(), chunk.lastPage());
+    }
+
+    private String sourceName(Path file) {
+        return dataDirectory.relativize(file).toString();
+    }
+
+    private static boolean isSourceFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".pdf") || name.endsWith(".csv");
+    }
+
+    /**
+     * Streams the chunks of one source to {@code sink}; PDF chunks carry the pages they span.
+     * @return the number of chunks passed to {@code sink}.
+     */
+    private int readChunks(SourceFile source, Consumer<TextChunker.Chunk> sink) throws IOException {
+        if (!source.pdf()) {
+            return csvReader.streamChunks(source.resource(), source.name(),
+                    row -> sink.accept(new TextChunker.Chunk(row, 0, 0)));
+        }
+        logger.info("Loading PDF data: {}", source.name());
+        int count = chunkPdf(source, sink);
+        if (count == 0) {
+            logger.warn("No text extracted from PDF: {}", source.name());
+        }
+        return count;
+    }
+
+    /**
+     * Chunks a PDF as its pages are extracted; paragraphs that continue across a page break stay whole.
+     * @return the number of chunks passed to {@code sink}.
+     */
+    private int chunkPdf(SourceFile source, Consumer<TextChunker.Chunk> sink) throws IOException {
+        int[] count = new int[1];
+        TextChunker.Session session = textChunker.startPaged(chunk -> {
+            count[0]++;
+            sink.accept(chunk);
+        });
+        pdfReader.extractPages(source.resource(), source.name(), page -> session.accept(page.text(), page.pageNumber()));
+        session.finish();
+        return count[0];
+    }
+
+    /**
+     * Watches the data directory, starting from the file states the build read, so that files added,
+     * changed or removed later are reloaded without a restart.
+     */
+    private synchronized void startWatching(Map<Path, DirectoryWatcher.FileState> fileStates) {
+        if (!watchEnabled || watcher != null || dataDirectory == null || !Files.isDirectory(dataDirectory)) {
+            return;
+        }
+        DirectoryWatcher directoryWatcher = new DirectoryWatcher(dataDirectory, VectorStoreService::isSourceFile,
+                watchDebounceMillis, new DirectoryWatcher.Listener() {
+                    @Override
+                    public void changed(Path file) throws Exception {
+                        sourceLock.lockInterruptibly();
+                        try {
+                            reloadSource(sourceFile(file));
+                        } finally {
+                            sourceLock.unlock();
+                        }
+                    }
+
+                    @Override
+                    public void removed(Path file) {
+                        sourceLock.lock();
+                        try {
+                            removeSource(sourceName(file));
+                        } finally {
+                            sourceLock.unlock();
+                        }
+                    }
+                });
+        try {
+            directoryWatcher.start(fileStates);
+            watcher = directoryWatcher;
+        } catch (IOException e) {
+            logger.error("Could not watch data directory {}: {}", dataDirectory, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stopWatching() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Replaces the chunks of one source in the live index. The file is read and the chunks that are new
+     * are embedded while queries keep being served from the current generation; chunks whose text did not
+     * change keep their existing vectors. The old rows are then retracted and the new ones appended in a
+     * single published generation; a file that cannot be read fails the reload before anything is
+     * retracted, so its previous rows keep being served. Must hold {@code sourceLock}.
+     */
+    private void reloadSource(SourceFile source) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        List<TextChunker.Chunk> chunks = new ArrayList<>();
+        readChunks(source, chunk -> {
+            if (chunk != null && chunk.text().trim().length() > 10) {
+                chunks.add(chunk);
+            }
+        });
+
+        IndexBuilder builder;
+        synchronized (publishLock) {
+            builder = activeBuilder;
+        }
+        Map<ContentHash, float[]> previous = builder.embeddingsOf(source.name());
+        if (duplicates != null) {
+            builder.textsOf(source.name()).forEach(duplicates::forget);
+        }
+        List<PendingChunk> kept = new ArrayList<>(chunks.size());
+        int reused = 0;
+        Map<ContentHash, float[]> embeddings = new ConcurrentHashMap<>();
+        EmbeddingPipeline.Run<PendingChunk> run = embeddingPipeline.start("reload", PendingChunk::text,
+                (pending, embedding) -> embeddings.put(pending.hash(), embedding));
+        try {
+            for (TextChunker.Chunk chunk : chunks) {
+                if (duplicates != null && duplicates.isDuplicate(chunk.text())) {
+                    continue;
+                }
+                PendingChunk pending = new PendingChunk(chunk.text(), ContentHash.of(chunk.text()),
+                        origin(source.name(), chunk));
+                kept.add(pending);
+                float[] embedding = previous.get(pending.hash());
+                if (embedding != null) {
+                    embeddings.put(pending.hash(), embedding);
+                    reused++;
+                } else if (!embeddings.containsKey(pending.hash())) {
+                    submit(run, pending);
+                }
+            }
+        } finally {
+            run.finish();
+        }
+
+        int retracted;
+        int added = 0;
+        Generation generation;
+        synchronized (publishLock) {
+            retracted = activeBuilder.retract(source.name());
+            for (PendingChunk pending : kept) {
+                float[] embedding = embeddings.get(pending.hash());
+                if (embedding != null && activeBuilder.add(pending.text(), embedding, pending.origin())) {
+                    added++;
+                }
+            }
+            generation = publishOrCompact();
+        }
+        logger.info("Reloaded {}: {} chunks retracted, {} indexed ({} reused) in {} ms; serving generation {}.",
+                source.name(), retracted, added, reused, (System.nanoTime() - start) / 1_000_000,
+                generation.id());
+        saveSnapshot(embeddingService.getModelName(), activeBuilder.liveEmbeddings());
+    }
+
+    /**
+     * Retracts every chunk of a source that was deleted from the data directory. Must hold
+     * {@code sourceLock}.
+     */
+    private void removeSource(String name) {
+        List<String> texts;
+        Generation generation;
+        synchronized (publishLock) {
+            texts = activeBuilder.textsOf(name);
+            activeBuilder.retract(name);
+            generation = publishOrCompact();
+        }
+        if (duplicates != null) {
+            texts.forEach(duplicates::forget);
+        }
+        logger.info("Removed {}: {} chunks retracted; serving generation {}.", name, texts.size(), generation.id());
+        saveSnapshot(embeddingService.getModelName(), activeBuilder.liveEmbeddings());
+    }
+
+    /**
+     * Publishes the active builder, first rebuilding it without its deleted rows once they make up more
+     * than the compaction ratio. Must hold {@code publishLock}; appends wait while the graph is rebuilt,
+     * readers keep using the previous generation.
+     */
+    private Generation publishOrCompact() {
+        int deleted = activeBuilder.deletedCount();
+        if (deleted > 0 && deleted > compactRatio * activeBuilder.size()) {
+            long start = System.nanoTime();
+            activeBuilder = activeBuilder.compacted();
+            logger.info("Compacted index: dropped {} deleted rows in {} ms.", deleted,
+                    (System.nanoTime() - start) / 1_000_000);
         }
-        return result;
+        return publish(activeBuilder);
     }
 
     /**
-     * Generates embedding for a text chunk and adds it to the in-memory store.
-     * (This method remains unchanged)
+     * Queues a chunk on the embedding run, blocking while its queue is full.
+     */
+    private static void submit(EmbeddingPipeline.Run<PendingChunk> run, PendingChunk chunk) {
+        try {
+            run.submit(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing chunks for embedding", e);
+        }
+    }
+
+    /**
+     * Generates embedding for a text chunk and appends it to the served index as a new generation.
      */
     public void indexChunk(String text) {
         if (text == null || text.trim().isEmpty()) {
@@ -149,9 +745,10 @@ public class VectorStoreService {
         logger.debug("Indexing chunk (first 50 chars): '{}...'", text.substring(0, Math.min(50, text.length())));
         try {
             float[] embedding = embeddingService.generateEmbedding(text);
-            synchronized (chunks) {
-                chunks.add(text);
-                embeddings.add(embedding);
+            synchronized (publishLock) {
+                if (activeBuilder.add(text, embedding, Origin.NONE)) {
+                    publish(activeBuilder);
+                }
             }
         } catch (Exception e) {
             logger.error("Exception during indexing chunk: {}", e.getMessage());
@@ -159,64 +756,435 @@ public class VectorStoreService {
     }
 
     /**
-     * Finds the top N text chunks most similar to a given query embedding.
-     * (This method remains unchanged)
+     * Makes {@code builder} the target of later appends and publishes its contents.
+     */
+    private Generation swapIn(IndexBuilder builder) {
+        synchronized (publishLock) {
+            activeBuilder = builder;
+            return publish(builder);
+        }
+    }
+
+    private Generation publish(IndexBuilder builder) {
+        Generation generation = builder.snapshot(current.id() + 1);
+        current = generation;
+        publishedAt = System.currentTimeMillis();
+        return generation;
+    }
+
+    /**
+     * Near-duplicate report of the last build, or null if no build has finished extracting yet.
+     */
+    public DeduplicationReport getDeduplicationReport() {
+        return deduplicationReport;
+    }
+
+    public IndexStatus getStatus() {
+        Generation generation = current;
+        int deleted = generation.deletedCount();
+        return new IndexStatus(generation.id(), generation.count() - deleted, deleted, generation.dimension(),
+                buildState, buildStartedAt, publishedAt);
+    }
+
+    Generation currentGeneration() {
+        return current;
+    }
+
+    /**
+     * Mutable side of the index: a growing float matrix (or int8 rows), the optional HNSW graph and the
+     * BM25 index. Appends are serialized on the builder and may come from several pipeline workers.
+     * Arrays only grow by copying, so a generation taken earlier keeps valid rows. Retracted rows are
+     * only marked deleted; each generation gets its own copy of the marks.
+     */
+    private final class IndexBuilder {
+
+        private final HnswIndex graph = hnswEnabled ? new HnswIndex(hnswM, hnswEfConstruction, 42L) : null;
+        private final LexicalIndex lexical = new LexicalIndex();
+        private final BitSet deleted = new BitSet();
+        private String[] texts = new String[INITIAL_CAPACITY];
+        private Origin[] origins = new Origin[INITIAL_CAPACITY];
+        private float[] matrix = new float[0];
+        private QuantizedVectors quantizedVectors;
+        private int dimension;
+        private int size;
+
+        /**
+         * Adds an embedded chunk to the rows, the lexical index and, when enabled, the HNSW graph.
+         * The first embedding fixes the dimension; embeddings of any other size are rejected.
+         * The source of {@code origin} (null for chunks indexed directly) is the file the chunk can be
+         * retracted with.
+         * @return false if the embedding was rejected.
+         */
+        boolean add(String text, float[] embedding, Origin origin) {
+            int id;
+            int dim;
+            synchronized (this) {
+                id = append(text, embedding, origin);
+                dim = dimension;
+            }
+            if (id < 0) {
+                return false;
+            }
+            if (graph != null) {
+                // Another worker may have grown the matrix and linked its row first; the graph reads the
+                // matrix under its own lock, so it always gets an array holding every linked row.
+                graph.insert(id, this::currentMatrix, dim);
+            }
+            return true;
+        }
+
+        private synchronized float[] currentMatrix() {
+            return matrix;
+        }
+
+        private int append(String text, float[] embedding, Origin origin) {
+            if (dimension == 0) {
+                dimension = embedding.length;
+                if (quantized) {
+                    quantizedVectors = new QuantizedVectors(dimension, INITIAL_CAPACITY);
+                } else {
+                    matrix = new float[INITIAL_CAPACITY * dimension];
+                }
+            } else if (embedding.length != dimension) {
+                logger.warn("Embedding dimension mismatch ({} vs {}). Skipping chunk.", embedding.length, dimension);
+                return -1;
+            }
+            if (size == texts.length) {
+                int newCapacity = texts.length * 2;
+                texts = Arrays.copyOf(texts, newCapacity);
+                origins = Arrays.copyOf(origins, newCapacity);
+                if (!quantized) {
+                    matrix = Arrays.copyOf(matrix, newCapacity * dimension);
+                }
+            }
+            if (quantized) {
+                float[] normalized = new float[dimension];
+                VectorMath.normalizeInto(embedding, normalized, 0);
+                quantizedVectors.set(size, normalized);
+            } else {
+                VectorMath.normalizeInto(embedding, matrix, size * dimension);
+            }
+            texts[size] = text;
+            origins[size] = origin;
+            lexical.add(size, text);
+            return size++;
+        }
+
+        /**
+         * Marks every live row of {@code source} deleted.
+         * @return the number of rows retracted.
+         */
+        synchronized int retract(String source) {
+            int retracted = 0;
+            for (int i = 0; i < size; i++) {
+                if (source.equals(origins[i].source()) && !deleted.get(i)) {
+                    deleted.set(i);
+                    retracted++;
+                }
+            }
+            return retracted;
+        }
+
+        synchronized List<String> textsOf(String source) {
+            List<String> result = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (source.equals(origins[i].source()) && !deleted.get(i)) {
+                    result.add(texts[i]);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Normalized vectors of the live rows of {@code source}, keyed by text hash.
+         */
+        synchronized Map<ContentHash, float[]> embeddingsOf(String source) {
+            Map<ContentHash, float[]> result = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (source.equals(origins[i].source()) && !deleted.get(i)) {
+                    result.put(ContentHash.of(texts[i]), row(i));
+                }
+            }
+            return result;
+        }
+
+        synchronized Map<ContentHash, float[]> liveEmbeddings() {
+            Map<ContentHash, float[]> result = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (!deleted.get(i)) {
+                    result.put(ContentHash.of(texts[i]), row(i));
+                }
+            }
+            return result;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized int deletedCount() {
+            return deleted.cardinality();
+        }
+
+        /**
+         * A new builder holding the live rows of this one, in order, with their graph and lexical index
+         * rebuilt.
+         */
+        IndexBuilder compacted() {
+            IndexBuilder compacted = new IndexBuilder();
+            int count;
+            synchronized (this) {
+                count = size;
+            }
+            for (int i = 0; i < count; i++) {
+                String text;
+                Origin origin;
+                float[] row;
+                synchronized (this) {
+                    if (deleted.get(i)) {
+                        continue;
+                    }
+                    text = texts[i];
+                    origin = origins[i];
+                    row = row(i);
+                }
+                compacted.add(text, row, origin);
+            }
+            return compacted;
+        }
+
+        private float[] row(int id) {
+            float[] row = new float[dimension];
+            if (quantized) {
+                quantizedVectors.rows().copyRow(id, row, 0);
+            } else {
+                System.arraycopy(matrix, id * dimension, row, 0, dimension);
+            }
+            return row;
+        }
+
+        synchronized Generation snapshot(long id) {
+            QuantizedVectors.Rows rows = quantizedVectors != null ? quantizedVectors.rows() : null;
+            return new Generation(id, texts, origins, matrix, rows, graph, lexical, size, dimension,
+                    deleted.isEmpty() ? null : (BitSet) deleted.clone());
+        }
+    }
+
+    /**
+     * Finds the top N text chunks most similar to a given query embedding, using the HNSW graph
+     * when it is enabled and the exact scan otherwise.
      */
     public List<String> findSimilarChunks(float[] queryEmbedding, int topN) {
         if (queryEmbedding == null || topN <= 0) {
             return List.of();
         }
 
-        List<String> currentChunks;
-        List<float[]> currentEmbeddings;
-        synchronized(chunks) {
-            if (embeddings.isEmpty()) return List.of();
-            currentChunks = new ArrayList<>(chunks);
-            currentEmbeddings = new ArrayList<>(embeddings);
+        Generation view = currentGeneration();
+        if (view.count() == 0) {
+            return List.of();
+        }
+        if (queryEmbedding.length != view.dimension()) {
+            logger.warn("Query embedding dimension {} does not match store dimension {}.",
+                    queryEmbedding.length, view.dimension());
+            return List.of();
         }
 
-        Map<Integer, Double> similarities = new HashMap<>();
-        for (int i = 0; i < currentEmbeddings.size(); i++) {
-            float[] chunkEmbedding = currentEmbeddings.get(i);
-            if(chunkEmbedding.length != queryEmbedding.length){
-                logger.warn("Embedding dimension mismatch at index {}. Skipping similarity calculation.", i);
-                continue;
+        TopKHeap heap = new TopKHeap(Math.min(topN, view.count()));
+        vectorSearch(view, queryEmbedding, heap);
+
+        List<String> results = texts(view, heap, topN);
+        logger.debug("Found {} relevant chunks for query.", results.size());
+        return results;
+    }
+
+    /**
+     * Hybrid retrieval for a natural-language query. The lexical (BM25) index is consulted first; when its
+     * best hit covers the whole query and scores highly enough, as for exact-name lookups like
+     * "강남소방서 phone number", those results are returned without embedding the query. Otherwise the
+     * lexical and vector rankings are merged with reciprocal-rank fusion. If the query cannot be embedded,
+     * the lexical results are returned on their own.
+     */
+    public List<String> retrieveRelevantChunks(String query, int topN) {
+        return retrievePassages(query, topN).stream().map(Passage::text).toList();
+    }
+
+    /**
+     * As {@link #retrieveRelevantChunks}, with the source file and pages of each chunk.
+     */
+    public List<Passage> retrievePassages(String query, int topN) {
+        if (query == null || query.isBlank() || topN <= 0) {
+            return List.of();
+        }
+        Generation view = currentGeneration();
+        if (view.count() == 0) {
+            return List.of();
+        }
+        if (hybridEnabled) {
+            return passages(view, hybridSearch(view, query, topN, () -> embeddingService.generateEmbedding(query), true), topN);
+        }
+        float[] queryEmbedding = embeddingService.generateEmbedding(query);
+        if (queryEmbedding.length != view.dimension()) {
+            logger.warn("Query embedding dimension {} does not match store dimension {}.",
+                    queryEmbedding.length, view.dimension());
+            return List.of();
+        }
+        TopKHeap heap = new TopKHeap(Math.min(topN, view.count()));
+        vectorSearch(view, queryEmbedding, heap);
+        return passages(view, heap, topN);
+    }
+
+    /**
+     * Ranks rows of {@code view} for {@code query} as {@link #retrieveRelevantChunks} does; {@code embedder}
+     * is only called when the lexical shortcut does not apply. With {@code record} the latency is added to
+     * the retrieval stats.
+     */
+    TopKHeap hybridSearch(Generation view, String query, int topN, Supplier<float[]> embedder, boolean record) {
+        long start = System.nanoTime();
+        int candidates = Math.min(view.count(), Math.max(topN * 4, 20));
+        LexicalIndex.Result lexical = view.lexical().search(query, candidates, view.count(), view.deleted());
+        if (isStrongLexicalHit(lexical)) {
+            if (record) {
+                lexicalShortcutLatency.record(System.nanoTime() - start);
             }
-            similarities.put(i, cosineSimilarity(queryEmbedding, chunkEmbedding));
+            return lexical.hits();
         }
 
-        if (similarities.isEmpty()) return List.of();
+        float[] queryEmbedding;
+        try {
+            queryEmbedding = embedder.get();
+        } catch (RuntimeException e) {
+            logger.warn("Could not embed query, falling back to lexical results: {}", e.getMessage());
+            return lexical.hits();
+        }
+        if (queryEmbedding.length != view.dimension()) {
+            return lexical.hits();
+        }
+        TopKHeap semantic = new TopKHeap(candidates);
+        vectorSearch(view, queryEmbedding, semantic);
 
-        List<Map.Entry<Integer, Double>> sortedEntries = new ArrayList<>(similarities.entrySet());
-        sortedEntries.sort((e1, e2) -> e2.getValue().compareTo(e1.getValue()));
+        TopKHeap fused = reciprocalRankFusion(lexical.hits(), semantic, topN);
+        if (record) {
+            hybridLatency.record(System.nanoTime() - start);
+        }
+        return fused;
+    }
+
+    private boolean isStrongLexicalHit(LexicalIndex.Result lexical) {
+        return lexical.hits().size() > 0
+                && lexical.queryTerms() >= 2
+                && lexical.topCoverage() >= lexicalShortcutCoverage
+                && lexical.hits().score(0) >= lexicalShortcutMinScore;
+    }
 
-        List<String> results = new ArrayList<>();
-        for (int i = 0; i < Math.min(topN, sortedEntries.size()); i++) {
-            results.add(currentChunks.get(sortedEntries.get(i).getKey()));
+    /**
+     * Merges two rankings by summing {@code 1 / (rrfK + rank)} for every list a row appears in.
+     */
+    private TopKHeap reciprocalRankFusion(TopKHeap lexical, TopKHeap semantic, int topN) {
+        Map<Integer, Float> fusedScores = new HashMap<>();
+        for (TopKHeap ranking : List.of(lexical, semantic)) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                fusedScores.merge(ranking.id(rank), 1f / (rrfK + rank + 1), Float::sum);
+            }
+        }
+        TopKHeap fused = new TopKHeap(Math.max(1, topN));
+        for (Map.Entry<Integer, Float> entry : fusedScores.entrySet()) {
+            fused.offer(entry.getKey(), entry.getValue());
+        }
+        fused.sortDescending();
+        return fused;
+    }
+
+    public RetrievalStats getRetrievalStats() {
+        return new RetrievalStats(lexicalShortcutLatency.snapshot(), hybridLatency.snapshot());
+    }
+
+    private void vectorSearch(Generation view, float[] queryEmbedding, TopKHeap heap) {
+        if (view.graph() != null) {
+            view.graph().search(queryEmbedding, view.matrix(), view.dimension(), hnswEfSearch, view.count(),
+                    view.deleted(), heap);
+            // The graph is shared with later generations, whose links can leave an older view's rows hard
+            // to reach; a short result is completed by scanning the rows instead
+            if (heap.size() < Math.min(heap.capacity(), view.count() - view.deletedCount())) {
+                exactSearch(view, queryEmbedding, heap);
+            }
+        } else if (quantized) {
+            quantizedSearch(view.quantizedRows(), view.count(), view.deleted(), queryEmbedding, heap, rerankFactor);
+        } else {
+            exactSearch(view, queryEmbedding, heap);
+        }
+    }
+
+    private static List<String> texts(Generation view, TopKHeap ranked, int limit) {
+        int count = Math.min(limit, ranked.size());
+        List<String> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(view.texts()[ranked.id(i)]);
+        }
+        return results;
+    }
+
+    private static List<Passage> passages(Generation view, TopKHeap ranked, int limit) {
+        int count = Math.min(limit, ranked.size());
+        List<Passage> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = ranked.id(i);
+            Origin origin = view.origins()[id];
+            results.add(new Passage(view.texts()[id], origin.source(), origin.firstPage(), origin.lastPage()));
         }
-        logger.debug("Found {} relevant chunks for query.", results.size());
         return results;
     }
 
     /**
-     * Calculates the cosine similarity between two float vectors.
-     * (This method remains unchanged)
+     * Rows are pre-normalized, so a single dot-product pass ranks them by cosine similarity;
+     * the query norm is the same for every row and does not affect the order.
+     */
+    void exactSearch(Generation view, float[] query, TopKHeap heap) {
+        heap.clear();
+        float[] rows = view.matrix();
+        int dim = view.dimension();
+        for (int i = 0, offset = 0; i < view.count(); i++, offset += dim) {
+            if (!view.isDeleted(i)) {
+                heap.offer(i, VectorMath.dot(query, rows, offset, dim));
+            }
+        }
+        heap.sortDescending();
+    }
+
+    /**
+     * First pass over the int8 codes keeps the best {@code topN * rerankFactor} rows; those are then
+     * re-scored against the full-precision rows and the best {@code topN} kept in {@code heap}.
      */
-    private double cosineSimilarity(float[] vectorA, float[] vectorB) {
-        if (vectorA == null || vectorB == null || vectorA.length != vectorB.length || vectorA.length == 0) {
-            return 0.0;
+    static void quantizedSearch(QuantizedVectors.Rows rows, int count, BitSet deleted, float[] query,
+                                        TopKHeap heap, int rerankFactor) {
+        float querySum = 0f;
+        for (float v : query) {
+            querySum += v;
+        }
+        TopKHeap candidates = new TopKHeap(Math.min(count, heap.capacity() * rerankFactor));
+        for (int i = 0; i < count; i++) {
+            if (deleted == null || !deleted.get(i)) {
+                candidates.offer(i, rows.approximateDot(query, querySum, i));
+            }
+        }
+        heap.clear();
+        for (int i = 0; i < candidates.size(); i++) {
+            int id = candidates.id(i);
+            heap.offer(id, rows.exactDot(query, id));
         }
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
-        for (int i = 0; i < vectorA.length; i++) {
-            dotProduct += vectorA[i] * vectorB[i];
-            normA += vectorA[i] * vectorA[i];
-            normB += vectorB[i] * vectorB[i];
+        heap.sortDescending();
+    }
+
+    /**
+     * Full-precision rows of the view; in quantized mode they are copied out of the mapped file.
+     */
+    static float[] floatMatrix(Generation view) {
+        if (view.quantizedRows() == null) {
+            return view.matrix();
         }
-        if (normA == 0.0 || normB == 0.0) {
-            return 0.0;
+        float[] rows = new float[view.count() * view.dimension()];
+        for (int i = 0; i < view.count(); i++) {
+            view.quantizedRows().copyRow(i, rows, i * view.dimension());
         }
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+        return rows;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package com.ClimateTrack.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How CSV datasets are turned into text chunks. A file is rendered with the first schema whose template
+ * columns all appear in its header row; files matching no schema fall back to "header is value" pairs.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ingestion.csv")
+public class CsvIngestionProperties {
+
+    /** Character set of the source files. */
+    private String encoding = "EUC-KR";
+
+    private List<Schema> schemas = new ArrayList<>();
+
+    @Data
+    public static class Schema {
+
+        private String name;
+
+        /**
+         * Sentence produced for each row; {@code {Column name}} is replaced by that column's value,
+         * matched against the header ignoring case and surrounding whitespace.
+         */
+        private String template;
+    }
+}
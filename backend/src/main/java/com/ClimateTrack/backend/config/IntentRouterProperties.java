@@ -0,0 +1,48 @@
+package com.ClimateTrack.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How chatbot queries are routed to context sources. Each intent is represented by the centroid of the
+ * embeddings of its example phrases; a query is routed to every intent whose centroid it is close to.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "chatbot.intent")
+public class IntentRouterProperties {
+
+    /** Lowest cosine similarity between a query and a centroid for that intent to be selected. */
+    private float minSimilarity = 0.5f;
+
+    /**
+     * How far below the best-scoring intent (including {@code general}) another intent may score and
+     * still be selected, so that a query can be routed to several intents at once.
+     */
+    private float margin = 0.05f;
+
+    /** Seconds to wait before retrying the centroids after they could not be built. */
+    private long retryIntervalSeconds = 60;
+
+    private Examples examples = new Examples();
+
+    @Data
+    public static class Examples {
+
+        /** Questions about what is happening around the user: nearby alerts, reports and posts. */
+        private List<String> nearMe = new ArrayList<>();
+
+        /** Questions answered from the disaster manuals and guides in the vector store. */
+        private List<String> howTo = new ArrayList<>();
+
+        /** Questions about the latest news and alerts in general. */
+        private List<String> news = new ArrayList<>();
+
+        /** Greetings and small talk, which need no context at all. */
+        private List<String> general = new ArrayList<>();
+    }
+}
@@ -0,0 +1,34 @@
+package com.ClimateTrack.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits on chat generations sent to Ollama. Each model runs at most {@code maxConcurrent} generations
+ * at once; further requests wait in a bounded queue, served round-robin across users, and are rejected
+ * when the queue is full or their wait exceeds {@code maxWaitMs}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "llm.admission")
+public class LlmAdmissionProperties {
+
+    /** Generations per model running at once, unless overridden in {@code modelLimits}. */
+    private int maxConcurrent = 2;
+
+    /** Per-model overrides of {@code maxConcurrent}, e.g. {@code llm.admission.model-limits[llama3:8b]=1}. */
+    private Map<String, Integer> modelLimits = new HashMap<>();
+
+    /** Requests per model waiting for a slot; beyond this new requests are rejected at once. */
+    private int maxQueue = 32;
+
+    /** Requests of one user waiting per model, so one user cannot fill the queue. */
+    private int maxQueuedPerUser = 2;
+
+    /** Longest a request waits for a slot before it is rejected. */
+    private long maxWaitMs = 20000;
+}
@@ -0,0 +1,41 @@
+package com.ClimateTrack.backend.config;
+
+import com.ClimateTrack.backend.Service.OllamaClient;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Ollama instances requests are spread over. Without any entry the single instance at
+ * {@code ollama.api.base.url} serves every model and workload.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ollama")
+public class OllamaEndpointProperties {
+
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    @Data
+    public static class Endpoint {
+
+        /** Name used in logs and stats; defaults to the URL. */
+        private String name;
+
+        /** Base URL, e.g. {@code http://ollama-1:11434}. */
+        private String url;
+
+        /** Models this instance serves; empty means any. */
+        private List<String> models = new ArrayList<>();
+
+        /**
+         * Kinds of request sent here ({@code interactive} for chat and query embeddings, {@code batch}
+         * for ingestion); empty means both. Giving ingestion and chat different instances keeps long
+         * embedding batches from delaying replies.
+         */
+        private List<OllamaClient.Workload> workloads = new ArrayList<>();
+    }
+}
@@ -4,6 +4,7 @@ import com.ClimateTrack.backend.Security.JwtTokenFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import jakarta.servlet.DispatcherType;
 import org.springframework.http.HttpMethod; // Add this import
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -29,7 +30,19 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/login", "/api/auth/signup").permitAll()
 
                         // NEW: Allow anyone to view the main page content
-                        .requestMatchers(HttpMethod.GET, "/api/events", "/api/news", "/api/reports", "/api/upload/url").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/events", "/api/news", "/api/reports", "/api/upload/url", "/api/facilities").permitAll()
+
+                        // Async dispatches (e.g. the end of a streamed chatbot reply) were authorized
+                        // when the request came in; the JWT filter does not run on them again
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+
+                        // Readiness probe for load balancers
+                        .requestMatchers(HttpMethod.GET, "/api/vectorstore/status").permitAll()
+
+                        // --- ADMIN ENDPOINTS ---
+                        // Ingestion jobs and index evaluations can start a rebuild or hundreds of embedding
+                        // calls; only accounts listed in security.admin-users may use them
+                        .requestMatchers("/api/admin/**", "/api/vectorstore/evaluation/**").hasRole("ADMIN")
 
                         // --- SECURE ENDPOINTS ---
                         // All other requests must be authenticated
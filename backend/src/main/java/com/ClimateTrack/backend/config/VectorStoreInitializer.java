@@ -1,6 +1,6 @@
 package com.ClimateTrack.backend.config;
 
-import com.ClimateTrack.backend.Service.VectorStoreService;
+import com.ClimateTrack.backend.Service.IngestionJobService;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Component;
@@ -8,17 +8,17 @@ import org.springframework.stereotype.Component;
 @Component
 public class VectorStoreInitializer implements ApplicationListener<ApplicationReadyEvent> {
 
-    private final VectorStoreService vectorStoreService;
+    private final IngestionJobService ingestionJobService;
 
-    public VectorStoreInitializer(VectorStoreService vectorStoreService) {
-        this.vectorStoreService = vectorStoreService;
+    public VectorStoreInitializer(IngestionJobService ingestionJobService) {
+        this.ingestionJobService = ingestionJobService;
     }
 
     @Override
     public void onApplicationEvent(ApplicationReadyEvent event) {
         // This code runs AFTER the application is fully started.
-        // It calls the @Async method in VectorStoreService,
-        // which will run in a separate thread.
-        vectorStoreService.buildVectorStore();
+        // The build runs as an ingestion job on its own thread; if an earlier
+        // build was interrupted, it resumes from that build's checkpoint.
+        ingestionJobService.start();
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.ClimateTrack.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * How the vector store indexes, searches and persists chunk embeddings, and how it is evaluated. Where
+ * the source files come from is configured under {@code ingestion.*}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "vectorstore")
+public class VectorStoreProperties {
+
+    private Index index = new Index();
+    private Hnsw hnsw = new Hnsw();
+    private Quantization quantization = new Quantization();
+    private Hybrid hybrid = new Hybrid();
+    private Dedup dedup = new Dedup();
+    private Snapshot snapshot = new Snapshot();
+    private Compaction compaction = new Compaction();
+    private Evaluation evaluation = new Evaluation();
+
+    @Data
+    public static class Index {
+
+        /** {@code exact}, {@code hnsw} or {@code quantized}. */
+        private String type = "exact";
+    }
+
+    @Data
+    public static class Hnsw {
+
+        /** Links per node on the upper layers; the bottom layer keeps twice as many. */
+        private int m = 16;
+
+        /** Candidates considered when linking a new node. */
+        private int efConstruction = 200;
+
+        /** Candidates considered per query. */
+        private int efSearch = 64;
+
+        /** Log a recall-vs-latency comparison against the exact scan once the store is built. */
+        private boolean reportOnBuild = false;
+    }
+
+    @Data
+    public static class Quantization {
+
+        /** First-pass candidates per result that are re-scored with the full-precision rows. */
+        private int rerankFactor = 4;
+    }
+
+    @Data
+    public static class Hybrid {
+
+        private boolean enabled = true;
+
+        /** Share of the query terms a lexical hit must cover to be answered without embedding the query. */
+        private float shortcutMinCoverage = 0.9f;
+
+        /** BM25 score a lexical hit must reach to be answered without embedding the query. */
+        private float shortcutMinScore = 8.0f;
+
+        /** Rank offset of reciprocal rank fusion. */
+        private int rrfK = 60;
+    }
+
+    @Data
+    public static class Dedup {
+
+        private boolean enabled = true;
+
+        /** Largest SimHash Hamming distance at which a chunk counts as a near-duplicate. */
+        private int maxDistance = 3;
+    }
+
+    @Data
+    public static class Snapshot {
+
+        private boolean enabled = true;
+
+        /** Embedding snapshot file; a running build checkpoints to this path plus {@code .checkpoint}. */
+        private String path = "cache/vector-store.snapshot";
+
+        private long checkpointIntervalSeconds = 30;
+    }
+
+    @Data
+    public static class Compaction {
+
+        /** Share of retracted rows at which the index is rebuilt without them. */
+        private double deletedRatio = 0.25;
+    }
+
+    @Data
+    public static class Evaluation {
+
+        /** Golden set evaluated after each build, a {@code classpath:} location or a file path; none if blank. */
+        private String goldenSet = "";
+
+        private int k = 5;
+
+        /** Where the JSON report of the build-time evaluation is written. */
+        private String output = "build/retrieval-evaluation.json";
+    }
+}
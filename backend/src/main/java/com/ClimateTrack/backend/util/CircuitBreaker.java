@@ -0,0 +1,110 @@
+package com.ClimateTrack.backend.util;
+
+/**
+ * Circuit breaker for calls to one remote service. After {@code failureThreshold} consecutive failures
+ * the circuit opens and calls are refused without being attempted; once {@code openMillis} have passed,
+ * a single trial call is let through (half-open) and its outcome closes the circuit or opens it again.
+ * <p>
+ * Every call allowed by {@link #tryAcquire()} must be followed by exactly one of {@link #onSuccess()},
+ * {@link #onFailure()} or {@link #release()}.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * {@code opened} counts how often the circuit has opened, {@code rejected} the calls refused while
+     * it was open.
+     */
+    public record Stats(State state, int consecutiveFailures, long opened, long rejected, long openedAt) {}
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private boolean trialInFlight;
+    private long openedAt;
+    private long opened;
+    private long rejected;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0, openMillis);
+    }
+
+    /**
+     * Whether a call may be attempted now.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    rejected++;
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    rejected++;
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    /**
+     * Whether {@link #tryAcquire()} would allow a call now, without taking the permit or counting a
+     * rejection.
+     */
+    public synchronized boolean allowsCalls() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return System.currentTimeMillis() - openedAt >= openMillis;
+            default:
+                return !trialInFlight;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                opened++;
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Ends a call whose outcome says nothing about the service, e.g. one that failed before it was sent.
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Milliseconds until a trial call will be allowed, or 0 if calls are allowed now.
+     */
+    public synchronized long retryAfterMillis() {
+        return state == State.OPEN ? Math.max(0, openedAt + openMillis - System.currentTimeMillis()) : 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(state, consecutiveFailures, opened, rejected, openedAt);
+    }
+}
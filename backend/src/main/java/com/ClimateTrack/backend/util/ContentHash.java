@@ -0,0 +1,50 @@
+package com.ClimateTrack.backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 128-bit content hash (the first half of a SHA-256 digest) used to key embeddings by their source text.
+ */
+public record ContentHash(long high, long low) implements Comparable<ContentHash> {
+
+    public static final int BYTES = 16;
+
+    /**
+     * Hashes the given parts, separated by a NUL character so that ("ab", "c") and ("a", "bc") differ.
+     */
+    public static ContentHash of(String... parts) {
+        MessageDigest digest = sha256();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                digest.update((byte) 0);
+            }
+            digest.update(parts[i].getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] bytes = digest.digest();
+        return new ContentHash(toLong(bytes, 0), toLong(bytes, 8));
+    }
+
+    @Override
+    public int compareTo(ContentHash other) {
+        int result = Long.compare(high, other.high);
+        return result != 0 ? result : Long.compare(low, other.low);
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+}
@@ -1,114 +1,229 @@
 package com.ClimateTrack.backend.util;
 
+import com.ClimateTrack.backend.config.CsvIngestionProperties;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ClassPathResource; // <-- 1. IMPORT ClassPathResource
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets; // <-- 2. IMPORT Charsets
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
-@Component // <-- 3. This makes it a "bean" and fixes the original error
+@Component
 public class CsvReader {
 
     private static final Logger logger = LoggerFactory.getLogger(CsvReader.class);
 
+    private final Charset encoding;
+    private final List<Template> templates = new ArrayList<>();
+
+    /**
+     * Header row and data rows of a CSV file. Rows whose length differs from the header are dropped.
+     */
+    public record CsvTable(String[] headers, List<String[]> rows) {
+
+        /**
+         * Index of the column whose trimmed header equals {@code headerName} (ignoring case), or -1.
+         */
+        public int columnIndex(String headerName) {
+            return CsvReader.columnIndex(headers, headerName);
+        }
+    }
+
     /**
-     * This is the method your VectorStoreService is trying to call.
-     * It takes a classpath path string, loads the file, and returns formatted chunks.
+     * A schema template split into literal text and column names: {@code literals[i]} precedes
+     * {@code columns[i]}, and the last literal follows the last column.
+     */
+    private record Template(String name, String[] literals, String[] columns) {}
+
+    /**
+     * A template bound to the column indexes of one file's header.
+     */
+    private interface RowFormatter {
+        void format(String[] row, StringBuilder target);
+    }
+
+    public CsvReader(CsvIngestionProperties properties) {
+        this.encoding = Charset.forName(properties.getEncoding());
+        for (CsvIngestionProperties.Schema schema : properties.getSchemas()) {
+            templates.add(parseTemplate(schema.getName(), schema.getTemplate()));
+        }
+    }
+
+    /**
+     * Reads a CSV from the classpath. Returns an empty table if the file is missing, empty or cannot
+     * be parsed.
+     */
+    public CsvTable readTable(String classpathCsvPath) {
+        List<String[]> rows = new ArrayList<>();
+        String[][] headers = new String[1][];
+        try {
+            forEachRow(new ClassPathResource(classpathCsvPath), classpathCsvPath, header -> {
+                headers[0] = header;
+                return rows::add;
+            });
+        } catch (UncheckedIOException e) {
+            logger.error("Error reading or parsing CSV file: " + classpathCsvPath, e);
+            return new CsvTable(new String[0], List.of());
+        }
+        return new CsvTable(headers[0] == null ? new String[0] : headers[0], rows);
+    }
+
+    /**
+     * Streams one sentence per row to {@code sink} as rows are decoded, so nothing accumulates between
+     * the file and the indexer. The row formatter is resolved once from the header row.
+     * @return the number of sentences produced.
+     * @throws UncheckedIOException if the file cannot be read or parsed; rows before the failure have
+     *         already been passed to {@code sink}.
+     */
+    public int streamChunks(String classpathCsvPath, Consumer<String> sink) {
+        return streamChunks(new ClassPathResource(classpathCsvPath), classpathCsvPath, sink);
+    }
+
+    /**
+     * As {@link #streamChunks(String, Consumer)} for any resource; {@code source} names it in logs.
+     */
+    public int streamChunks(Resource resource, String source, Consumer<String> sink) {
+        int[] count = new int[1];
+        forEachRow(resource, source, headers -> {
+            RowFormatter formatter = formatterFor(source, headers);
+            StringBuilder sentence = new StringBuilder(256);
+            return row -> {
+                sentence.setLength(0);
+                formatter.format(row, sentence);
+                if (!sentence.isEmpty()) {
+                    sink.accept(sentence.toString());
+                    count[0]++;
+                }
+            };
+        });
+        logger.info("Extracted {} chunks from CSV: {}", count[0], source);
+        return count[0];
+    }
+
+    /**
+     * Reads a whole file into formatted sentences; prefer {@link #streamChunks} for large files.
      */
     public List<String> readAndFormatCsv(String classpathCsvPath) {
         List<String> chunks = new ArrayList<>();
+        streamChunks(classpathCsvPath, chunks::add);
+        return chunks;
+    }
 
-        // 1. Get the InputStream from the classpath path string
-        try (InputStream inputStream = new ClassPathResource(classpathCsvPath).getInputStream();
-             // 2. Force the reader to use "EUC-KR" for Korean characters
-             InputStreamReader reader = new InputStreamReader(inputStream, "EUC-KR"); // <-- NEW LINE
+    /**
+     * Reads the header, asks {@code onHeader} for a row consumer, and passes it every row whose length
+     * matches the header.
+     * @throws UncheckedIOException if the file cannot be read or parsed.
+     */
+    private void forEachRow(Resource resource, String source, Function<String[], Consumer<String[]>> onHeader) {
+        try (InputStream inputStream = resource.getInputStream();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, encoding));
              CSVReader csvReader = new CSVReader(reader)) {
 
             String[] headers = csvReader.readNext(); // Read the header row
             if (headers == null) {
-                logger.warn("CSV file is empty or headers are missing: {}", classpathCsvPath);
-                return chunks;
+                logger.warn("CSV file is empty or headers are missing: {}", source);
+                return;
             }
+            Consumer<String[]> rowConsumer = onHeader.apply(headers);
 
             String[] row;
             while ((row = csvReader.readNext()) != null) {
                 if (row.length == headers.length) {
-                    chunks.add(formatCsvRowAsSentence(headers, row));
+                    rowConsumer.accept(row);
                 }
             }
 
-        } catch (IOException | CsvValidationException e) {
-            logger.error("Error reading or parsing CSV file: " + classpathCsvPath, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading CSV file: " + source, e);
+        } catch (CsvValidationException e) {
+            throw new UncheckedIOException(new IOException("Error parsing CSV file: " + source, e));
         }
-
-        logger.info("Extracted {} chunks from CSV: {}", chunks.size(), classpathCsvPath);
-        return chunks;
     }
 
     /**
-     * Formats a CSV row into a human-readable sentence.
+     * Binds the first template whose columns all appear in {@code headers}, or the generic
+     * "header is value" formatter if none does.
      */
-    private String formatCsvRowAsSentence(String[] headers, String[] row) {
-        StringBuilder sb = new StringBuilder();
-
-        // Header names from your CSVs
-        String policeName = getColumnValue(headers, row, "Police station name");
-        String policeAddress = getColumnValue(headers, row, "Police station address");
-
-        String fireStation = getColumnValue(headers, row, "fire station");
-        String fireAddress = getColumnValue(headers, row, "address");
-        String firePhone = getColumnValue(headers, row, "phone number");
-
-        String adminName = getColumnValue(headers, row, "Name of lowest-level institution");
-        String adminAddress = getColumnValue(headers, row, "Road name address");
-        String adminPhone = getColumnValue(headers, row, "Representative phone number");
-
-        // Build a sentence
-        if (policeName != null) { // Police CSV
-            sb.append("The institution named '").append(policeName.trim()).append("' ");
-            sb.append("is located at '").append(policeAddress.trim()).append("'.");
-        } else if (fireStation != null) { // Fire CSV
-            sb.append("The institution named '").append(fireStation.trim()).append("' ");
-            sb.append("is located at '").append(fireAddress.trim()).append("'");
-            sb.append(" and the phone number is '").append(firePhone.trim()).append("'.");
-        } else if (adminName != null) { // Admin CSV
-            sb.append("The institution named '").append(adminName.trim()).append("' ");
-            sb.append("is located at '").append(adminAddress.trim()).append("'");
-            sb.append(" and the phone number is '").append(adminPhone.trim()).append("'.");
-        } else {
-            // Fallback for any other CSV structure
-            sb.append("A record contains the following data: ");
+    private RowFormatter formatterFor(String source, String[] headers) {
+        for (Template template : templates) {
+            int[] indexes = new int[template.columns().length];
+            boolean matches = true;
+            for (int i = 0; i < indexes.length && matches; i++) {
+                indexes[i] = columnIndex(headers, template.columns()[i]);
+                matches = indexes[i] >= 0;
+            }
+            if (matches) {
+                logger.debug("Using CSV schema '{}' for {}", template.name(), source);
+                String[] literals = template.literals();
+                return (row, target) -> {
+                    for (int i = 0; i < indexes.length; i++) {
+                        target.append(literals[i]);
+                        Whitespace.appendCollapsed(target, row[indexes[i]]);
+                    }
+                    target.append(literals[indexes.length]);
+                };
+            }
+        }
+        logger.info("No CSV schema matches the header of {}; using generic formatting.", source);
+        return (row, target) -> {
+            target.append("A record contains the following data:");
             for (int i = 0; i < headers.length; i++) {
-                if (i < row.length && row[i] != null && !row[i].isEmpty()) {
-                    sb.append(headers[i]).append(" is ").append(row[i]).append("; ");
+                if (row[i] != null && !row[i].isEmpty()) {
+                    target.append(' ');
+                    Whitespace.appendCollapsed(target, headers[i]);
+                    target.append(" is ");
+                    Whitespace.appendCollapsed(target, row[i]);
+                    target.append(';');
                 }
             }
-        }
+        };
+    }
 
-        return sb.toString().replaceAll("\\s+", " ").trim();
+    private static Template parseTemplate(String name, String template) {
+        if (template == null || template.isBlank()) {
+            throw new IllegalArgumentException("CSV schema '" + name + "' has no template");
+        }
+        List<String> literals = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = template.indexOf('{', position);
+            if (open < 0) {
+                break;
+            }
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed '{' in template of CSV schema '" + name + "'");
+            }
+            literals.add(template.substring(position, open));
+            columns.add(template.substring(open + 1, close).trim());
+            position = close + 1;
+        }
+        literals.add(template.substring(position));
+        return new Template(name, literals.toArray(new String[0]), columns.toArray(new String[0]));
     }
 
     /**
-     * Helper to safely get a value from a CSV row by its header name.
+     * Index of the column whose trimmed header equals {@code headerName}, ignoring case, or -1.
      */
-    private String getColumnValue(String[] headers, String[] row, String headerName) {
+    private static int columnIndex(String[] headers, String headerName) {
         for (int i = 0; i < headers.length; i++) {
             if (headers[i].trim().equalsIgnoreCase(headerName)) {
-                if (i < row.length) {
-                    return row[i];
-                } else {
-                    return null;
-                }
+                return i;
             }
         }
-        return null;
+        return -1;
     }
-}
\ No newline at end of file
+}
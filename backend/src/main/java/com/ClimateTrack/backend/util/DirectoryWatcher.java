@@ -0,0 +1,175 @@
+package com.ClimateTrack.backend.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Watches the files of one directory (not its subdirectories) and reports which of them were added,
+ * changed or removed. Events are only used as a wake-up: once the directory has been quiet for the
+ * debounce interval it is rescanned and compared by size and modification time against the last state
+ * reported, so a file still being copied is reported once, after the copy, and an event overflow loses
+ * nothing.
+ * <p>
+ * The listener is called on the watcher's own daemon thread, one file at a time. A file whose callback
+ * throws keeps its previous state and is reported again after the next change in the directory.
+ */
+public class DirectoryWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    public record FileState(long size, long lastModified) {}
+
+    public interface Listener {
+
+        /** {@code file} was added or its contents changed. */
+        void changed(Path file) throws Exception;
+
+        /** {@code file} no longer exists. */
+        void removed(Path file) throws Exception;
+    }
+
+    private final Path directory;
+    private final Predicate<Path> filter;
+    private final long debounceMillis;
+    private final Listener listener;
+    private volatile WatchService watchService;
+    private Thread thread;
+
+    public DirectoryWatcher(Path directory, Predicate<Path> filter, long debounceMillis, Listener listener) {
+        this.directory = directory;
+        this.filter = filter;
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.listener = listener;
+    }
+
+    /**
+     * Regular files of {@code directory} accepted by {@code filter}, sorted by path, with their state.
+     */
+    public static Map<Path, FileState> scan(Path directory, Predicate<Path> filter) throws IOException {
+        Map<Path, FileState> states = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!filter.test(file)) {
+                    continue;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        states.put(file, new FileState(attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    }
+                } catch (IOException e) {
+                    // Deleted between listing and reading its attributes.
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Starts watching. {@code known} is the state the caller has already processed; anything that differs
+     * from it by the time the watch is registered is reported right away.
+     */
+    public synchronized void start(Map<Path, FileState> known) throws IOException {
+        if (thread != null) {
+            throw new IllegalStateException("Already started");
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        Map<Path, FileState> reported = new HashMap<>(known);
+        thread = new Thread(() -> run(reported), "directory-watcher-" + directory.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching {} for changes.", directory);
+    }
+
+    private void run(Map<Path, FileState> reported) {
+        try {
+            // The watch is registered before this first pass, so changes made while the caller was
+            // processing 'known' are not lost.
+            reconcile(reported);
+            while (true) {
+                WatchKey key = watchService.take();
+                drain(key);
+                // Wait for the directory to go quiet before looking at it.
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    drain(key);
+                }
+                reconcile(reported);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Stopped watching {}.", directory);
+        }
+    }
+
+    private void drain(WatchKey key) {
+        key.pollEvents();
+        if (!key.reset()) {
+            logger.warn("Watch on {} is no longer valid; changes will not be picked up.", directory);
+        }
+    }
+
+    private void reconcile(Map<Path, FileState> reported) {
+        Map<Path, FileState> now;
+        try {
+            now = scan(directory, filter);
+        } catch (IOException e) {
+            logger.error("Failed to scan {}: {}", directory, e.getMessage(), e);
+            return;
+        }
+        List<Path> removed = new ArrayList<>();
+        for (Path file : reported.keySet()) {
+            if (!now.containsKey(file)) {
+                removed.add(file);
+            }
+        }
+        for (Path file : removed) {
+            try {
+                listener.removed(file);
+                reported.remove(file);
+            } catch (Exception e) {
+                logger.error("Failed to process removal of {}: {}", file, e.getMessage(), e);
+            }
+        }
+        for (Map.Entry<Path, FileState> entry : now.entrySet()) {
+            if (entry.getValue().equals(reported.get(entry.getKey()))) {
+                continue;
+            }
+            try {
+                listener.changed(entry.getKey());
+                reported.put(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                logger.error("Failed to process change to {}: {}", entry.getKey(), e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ClimateTrack.backend.util;
+
+import java.text.Normalizer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of embeddings keyed by {@link ContentHash} of (model, normalized text).
+ * Bounded both by entry count and by an estimate of retained bytes; whichever limit is hit first
+ * evicts the least recently used entries. Cached arrays are shared and must not be modified.
+ */
+public class EmbeddingCache {
+
+    // Rough per-entry overhead of the map node, key record and array header.
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    public record Stats(long hits, long misses, long evictions, int entries, long weightBytes,
+                        int maxEntries, long maxWeightBytes) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : hits / (double) lookups;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxWeightBytes;
+    private final LinkedHashMap<ContentHash, float[]> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weightBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public EmbeddingCache(int maxEntries, long maxWeightBytes) {
+        this.maxEntries = maxEntries;
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    /**
+     * Cache key for {@code text} embedded with {@code model}. Surrounding whitespace, runs of
+     * whitespace and Unicode composition differences do not change the key.
+     */
+    public static ContentHash key(String model, String text) {
+        return ContentHash.of(model, normalize(text));
+    }
+
+    static String normalize(String text) {
+        return Whitespace.collapse(Normalizer.normalize(text, Normalizer.Form.NFC));
+    }
+
+    public synchronized float[] get(ContentHash key) {
+        float[] embedding = entries.get(key);
+        if (embedding != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return embedding;
+    }
+
+    public synchronized void put(ContentHash key, float[] embedding) {
+        float[] previous = entries.put(key, embedding);
+        if (previous != null) {
+            weightBytes -= weigh(previous);
+        }
+        weightBytes += weigh(embedding);
+        Iterator<Map.Entry<ContentHash, float[]>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weightBytes > maxWeightBytes) && eldest.hasNext()) {
+            Map.Entry<ContentHash, float[]> entry = eldest.next();
+            weightBytes -= weigh(entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Copy of the current contents, most recently used last.
+     */
+    public synchronized Map<ContentHash, float[]> entries() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), weightBytes, maxEntries, maxWeightBytes);
+    }
+
+    private static long weigh(float[] embedding) {
+        return ENTRY_OVERHEAD_BYTES + (long) embedding.length * Float.BYTES;
+    }
+}
@@ -0,0 +1,210 @@
+package com.ClimateTrack.backend.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Versioned binary file of embeddings keyed by {@link ContentHash}, read through a memory mapping.
+ * <p>
+ * Layout (big-endian): magic, version, model name (length-prefixed UTF-8), dimension, entry count,
+ * then all hashes sorted ascending, then one float32 row per hash in the same order. Lookups binary
+ * search the hash block in place, so opening a snapshot costs no heap beyond the returned rows.
+ */
+public final class EmbeddingSnapshot implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingSnapshot.class);
+
+    private static final int MAGIC = 0x43545653; // "CTVS"
+    private static final int VERSION = 1;
+
+    private static final EmbeddingSnapshot EMPTY = new EmbeddingSnapshot(null, null, 0, 0, 0, 0);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int dimension;
+    private final int count;
+    private final int hashesOffset;
+    private final long vectorsOffset;
+
+    private EmbeddingSnapshot(FileChannel channel, ByteBuffer buffer, int dimension, int count,
+                              int hashesOffset, long vectorsOffset) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.dimension = dimension;
+        this.count = count;
+        this.hashesOffset = hashesOffset;
+        this.vectorsOffset = vectorsOffset;
+    }
+
+    public static EmbeddingSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Maps the snapshot at {@code path}. Returns an empty snapshot if the file does not exist or was
+     * written for a different embedding model.
+     * @throws IOException if the file exists but is not a readable snapshot of this version.
+     */
+    public static EmbeddingSnapshot open(Path path, String expectedModel) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            logger.info("No embedding snapshot found at {}.", path);
+            return EMPTY;
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 10 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not an embedding snapshot: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported embedding snapshot version " + version + ": " + path);
+            }
+            byte[] modelBytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(modelBytes);
+            String model = new String(modelBytes, StandardCharsets.UTF_8);
+            if (!model.equals(expectedModel)) {
+                logger.info("Ignoring embedding snapshot {} built with model '{}' (current model is '{}').",
+                        path, model, expectedModel);
+                channel.close();
+                return EMPTY;
+            }
+            int dimension = buffer.getInt();
+            int count = buffer.getInt();
+            int hashesOffset = buffer.position();
+            long vectorsOffset = hashesOffset + (long) count * ContentHash.BYTES;
+            long expectedSize = vectorsOffset + (long) count * dimension * Float.BYTES;
+            if (dimension < 0 || count < 0 || channel.size() != expectedSize) {
+                throw new IOException("Truncated or corrupt embedding snapshot: " + path);
+            }
+            logger.info("Mapped embedding snapshot {} ({} embeddings of dimension {}).", path, count, dimension);
+            return new EmbeddingSnapshot(channel, buffer, dimension, count, hashesOffset, vectorsOffset);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * @return a copy of the embedding stored for {@code hash}, or null if the snapshot has none.
+     */
+    public float[] find(ContentHash hash) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = hashesOffset + mid * ContentHash.BYTES;
+            int cmp = Long.compare(buffer.getLong(offset), hash.high());
+            if (cmp == 0) {
+                cmp = Long.compare(buffer.getLong(offset + 8), hash.low());
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return readRow(mid);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Passes every stored hash and a copy of its embedding to {@code action}, in hash order.
+     */
+    public void forEach(BiConsumer<ContentHash, float[]> action) {
+        for (int i = 0; i < count; i++) {
+            int offset = hashesOffset + i * ContentHash.BYTES;
+            action.accept(new ContentHash(buffer.getLong(offset), buffer.getLong(offset + 8)), readRow(i));
+        }
+    }
+
+    private float[] readRow(int index) {
+        float[] row = new float[dimension];
+        long offset = vectorsOffset + (long) index * dimension * Float.BYTES;
+        for (int i = 0; i < dimension; i++) {
+            row[i] = buffer.getFloat((int) (offset + (long) i * Float.BYTES));
+        }
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes {@code entries} as a new snapshot. The file is written to a temporary file of its own next
+     * to {@code path} and moved into place, so a crash mid-write never leaves a truncated snapshot behind
+     * and concurrent writers never share a temporary file.
+     */
+    public static void write(Path path, String model, int dimension, Map<ContentHash, float[]> entries) throws IOException {
+        List<Map.Entry<ContentHash, float[]>> sorted = new ArrayList<>(entries.entrySet());
+        sorted.sort(Map.Entry.comparingByKey());
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            writeTo(temp, model, dimension, sorted);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        logger.info("Wrote embedding snapshot {} ({} embeddings).", path, sorted.size());
+    }
+
+    private static void writeTo(Path temp, String model, int dimension, List<Map.Entry<ContentHash, float[]>> sorted)
+            throws IOException {
+        byte[] modelBytes = model.getBytes(StandardCharsets.UTF_8);
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeShort(modelBytes.length);
+            out.write(modelBytes);
+            out.writeInt(dimension);
+            out.writeInt(sorted.size());
+            for (Map.Entry<ContentHash, float[]> entry : sorted) {
+                out.writeLong(entry.getKey().high());
+                out.writeLong(entry.getKey().low());
+            }
+            for (Map.Entry<ContentHash, float[]> entry : sorted) {
+                float[] row = entry.getValue();
+                if (row.length != dimension) {
+                    throw new IOException("Embedding dimension " + row.length + " does not match snapshot dimension " + dimension);
+                }
+                for (float value : row) {
+                    out.writeFloat(value);
+                }
+            }
+        }
+    }
+}
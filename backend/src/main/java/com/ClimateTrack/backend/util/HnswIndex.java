@@ -0,0 +1,392 @@
+package com.ClimateTrack.backend.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Hierarchical Navigable Small World graph over the rows of a flat, L2-normalized embedding matrix.
+ * Similarity is the dot product of normalized rows (cosine similarity).
+ * <p>
+ * The graph does not own the vectors: callers pass the matrix that holds them. Inserts are
+ * serialized on this object's monitor; searches never lock. Each node's adjacency lists are
+ * immutable arrays replaced as a whole and published through an {@link AtomicReferenceArray},
+ * so a search running next to an insert sees either the old or the new list, never a torn one.
+ * <p>
+ * Every entry point the graph has had is kept, so a search limited to the first rows enters through the
+ * latest entry point among them rather than through a node it cannot see.
+ */
+public class HnswIndex {
+
+    private record EntryPoint(int node, int level) {}
+
+    private static final int[] NO_NEIGHBORS = new int[0];
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random;
+
+    // links.get(node)[level] holds the neighbor ids of 'node' on 'level'.
+    private volatile AtomicReferenceArray<int[][]> links = new AtomicReferenceArray<>(1024);
+    // Entry points in the order they were set, the current one last; replaced as a whole
+    private volatile EntryPoint[] entryPoints = new EntryPoint[0];
+    private volatile int nodeCount;
+
+    private final ThreadLocal<VisitedSet> visitedSets = ThreadLocal.withInitial(VisitedSet::new);
+
+    public HnswIndex(int m, int efConstruction, long seed) {
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW parameter M must be at least 2.");
+        }
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = new SplittableRandom(seed);
+    }
+
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * Adds row {@code id} of {@code matrix} to the graph. The matrix must contain every row that is
+     * already in the graph.
+     */
+    public synchronized void insert(int id, float[] matrix, int dimension) {
+        insert(id, () -> matrix, dimension);
+    }
+
+    /**
+     * As {@link #insert(int, float[], int)}, for a matrix that other threads grow by copying: the
+     * current array is taken from {@code matrix} only once this graph's lock is held, so it contains
+     * every row linked by an earlier insert even if that insert saw a newer array than this caller.
+     */
+    public synchronized void insert(int id, Supplier<float[]> currentMatrix, int dimension) {
+        float[] matrix = currentMatrix.get();
+        ensureCapacity(id + 1);
+        float[] vector = Arrays.copyOfRange(matrix, id * dimension, (id + 1) * dimension);
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+
+        int[][] ownLinks = new int[level + 1][];
+        Arrays.fill(ownLinks, NO_NEIGHBORS);
+        links.set(id, ownLinks);
+
+        EntryPoint entry = entryPoints.length == 0 ? null : entryPoints[entryPoints.length - 1];
+        if (entry == null) {
+            addEntryPoint(new EntryPoint(id, level));
+            nodeCount++;
+            return;
+        }
+
+        int current = entry.node();
+        float currentScore = VectorMath.dot(vector, matrix, current * dimension, dimension);
+        for (int l = entry.level(); l > level; l--) {
+            current = greedyClosest(vector, matrix, dimension, current, currentScore, l, Integer.MAX_VALUE);
+            currentScore = VectorMath.dot(vector, matrix, current * dimension, dimension);
+        }
+
+        for (int l = Math.min(level, entry.level()); l >= 0; l--) {
+            TopKHeap candidates = searchLayer(vector, matrix, dimension, current, efConstruction, l, Integer.MAX_VALUE);
+            candidates.sortDescending();
+            int maxLinks = l == 0 ? maxM0 : m;
+            int[] selected = selectNeighbors(candidates, matrix, dimension, maxLinks);
+            setLinks(id, l, selected);
+            for (int neighbor : selected) {
+                addReverseLink(neighbor, id, l, matrix, dimension, maxLinks);
+            }
+            current = candidates.id(0);
+        }
+
+        if (level > entry.level()) {
+            addEntryPoint(new EntryPoint(id, level));
+        }
+        nodeCount++;
+    }
+
+    private void addEntryPoint(EntryPoint entry) {
+        EntryPoint[] grown = Arrays.copyOf(entryPoints, entryPoints.length + 1);
+        grown[grown.length - 1] = entry;
+        entryPoints = grown;
+    }
+
+    /**
+     * The latest entry point whose node is below {@code visibleCount}, or null if there is none.
+     */
+    private EntryPoint entryPoint(int visibleCount) {
+        EntryPoint[] entries = entryPoints;
+        for (int i = entries.length - 1; i >= 0; i--) {
+            if (entries[i].node() < visibleCount) {
+                return entries[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns up to {@code k} nearest rows, best first, written into {@code result}.
+     * Nodes with an id of {@code visibleCount} or more are ignored, so a caller holding an older
+     * view of the matrix never follows an edge into a row it cannot see.
+     */
+    public void search(float[] query, float[] matrix, int dimension, int ef, int visibleCount, TopKHeap result) {
+        search(query, matrix, dimension, ef, visibleCount, null, result);
+    }
+
+    /**
+     * As {@link #search(float[], float[], int, int, int, TopKHeap)}, but rows set in {@code excluded}
+     * (deleted rows) are still traversed and never returned.
+     */
+    public void search(float[] query, float[] matrix, int dimension, int ef, int visibleCount, BitSet excluded,
+                       TopKHeap result) {
+        EntryPoint entry = entryPoint(visibleCount);
+        result.clear();
+        if (entry == null) {
+            return;
+        }
+        int current = entry.node();
+        float currentScore = VectorMath.dot(query, matrix, current * dimension, dimension);
+        for (int l = entry.level(); l > 0; l--) {
+            current = greedyClosest(query, matrix, dimension, current, currentScore, l, visibleCount);
+            currentScore = VectorMath.dot(query, matrix, current * dimension, dimension);
+        }
+        TopKHeap candidates = searchLayer(query, matrix, dimension, current,
+                Math.max(ef, result.capacity()), 0, visibleCount);
+        candidates.sortDescending();
+        for (int i = 0; i < candidates.size() && !result.isFull(); i++) {
+            if (excluded == null || !excluded.get(candidates.id(i))) {
+                result.offer(candidates.id(i), candidates.score(i));
+            }
+        }
+        result.sortDescending();
+    }
+
+    private int greedyClosest(float[] query, float[] matrix, int dimension, int start, float startScore,
+                              int level, int visibleCount) {
+        int best = start;
+        float bestScore = startScore;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : neighbors(best, level)) {
+                if (neighbor >= visibleCount) continue;
+                float score = VectorMath.dot(query, matrix, neighbor * dimension, dimension);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    private TopKHeap searchLayer(float[] query, float[] matrix, int dimension, int entry, int ef,
+                                 int level, int visibleCount) {
+        VisitedSet visited = visitedSets.get();
+        visited.reset(links.length());
+        CandidateQueue candidates = new CandidateQueue(ef * 2);
+        TopKHeap results = new TopKHeap(ef);
+
+        float entryScore = VectorMath.dot(query, matrix, entry * dimension, dimension);
+        visited.mark(entry);
+        candidates.push(entry, entryScore);
+        results.offer(entry, entryScore);
+
+        while (!candidates.isEmpty()) {
+            float candidateScore = candidates.peekScore();
+            if (results.isFull() && candidateScore < results.minScore()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            for (int neighbor : neighbors(candidate, level)) {
+                if (neighbor >= visibleCount || !visited.mark(neighbor)) continue;
+                float score = VectorMath.dot(query, matrix, neighbor * dimension, dimension);
+                if (!results.isFull() || score > results.minScore()) {
+                    candidates.push(neighbor, score);
+                    results.offer(neighbor, score);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbor-selection heuristic from the HNSW paper: a candidate is kept only if it is closer to the
+     * new node than to any neighbor already kept, which spreads links across clusters. Remaining slots
+     * are filled with the closest discarded candidates.
+     */
+    private int[] selectNeighbors(TopKHeap sortedCandidates, float[] matrix, int dimension, int maxLinks) {
+        int[] selected = new int[Math.min(maxLinks, sortedCandidates.size())];
+        boolean[] taken = new boolean[sortedCandidates.size()];
+        int count = 0;
+        for (int i = 0; i < sortedCandidates.size() && count < selected.length; i++) {
+            int candidate = sortedCandidates.id(i);
+            float scoreToNode = sortedCandidates.score(i);
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (dotRows(matrix, candidate, selected[j], dimension) > scoreToNode) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = candidate;
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < sortedCandidates.size() && count < selected.length; i++) {
+            if (!taken[i]) {
+                selected[count++] = sortedCandidates.id(i);
+            }
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private void addReverseLink(int node, int newNeighbor, int level, float[] matrix, int dimension, int maxLinks) {
+        int[] current = neighbors(node, level);
+        if (current.length < maxLinks) {
+            int[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = newNeighbor;
+            setLinks(node, level, updated);
+            return;
+        }
+        // Over capacity: keep the maxLinks closest of the existing neighbors plus the new one.
+        TopKHeap keep = new TopKHeap(maxLinks);
+        keep.offer(newNeighbor, dotRows(matrix, node, newNeighbor, dimension));
+        for (int neighbor : current) {
+            keep.offer(neighbor, dotRows(matrix, node, neighbor, dimension));
+        }
+        keep.sortDescending();
+        int[] updated = new int[keep.size()];
+        for (int i = 0; i < updated.length; i++) {
+            updated[i] = keep.id(i);
+        }
+        setLinks(node, level, updated);
+    }
+
+    private int[] neighbors(int node, int level) {
+        int[][] nodeLinks = links.get(node);
+        if (nodeLinks == null || level >= nodeLinks.length) {
+            return NO_NEIGHBORS;
+        }
+        return nodeLinks[level];
+    }
+
+    private void setLinks(int node, int level, int[] neighbors) {
+        int[][] updated = links.get(node).clone();
+        updated[level] = neighbors;
+        links.set(node, updated);
+    }
+
+    private void ensureCapacity(int capacity) {
+        AtomicReferenceArray<int[][]> current = links;
+        if (capacity <= current.length()) {
+            return;
+        }
+        int newLength = Math.max(capacity, current.length() * 2);
+        AtomicReferenceArray<int[][]> grown = new AtomicReferenceArray<>(newLength);
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        links = grown;
+    }
+
+    private static float dotRows(float[] matrix, int a, int b, int dimension) {
+        return VectorMath.dot(matrix, a * dimension, matrix, b * dimension, dimension);
+    }
+
+    /**
+     * Max-heap of candidates to expand, ordered by score.
+     */
+    private static final class CandidateQueue {
+        private int[] ids;
+        private float[] scores;
+        private int size;
+
+        CandidateQueue(int initialCapacity) {
+            ids = new int[Math.max(initialCapacity, 16)];
+            scores = new float[ids.length];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        void push(int id, float score) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (scores[parent] >= score) break;
+                ids[index] = ids[parent];
+                scores[index] = scores[parent];
+                index = parent;
+            }
+            ids[index] = id;
+            scores[index] = score;
+        }
+
+        int pop() {
+            int top = ids[0];
+            int lastId = ids[--size];
+            float lastScore = scores[size];
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) break;
+                if (child + 1 < size && scores[child + 1] > scores[child]) child++;
+                if (lastScore >= scores[child]) break;
+                ids[index] = ids[child];
+                scores[index] = scores[child];
+                index = child;
+            }
+            ids[index] = lastId;
+            scores[index] = lastScore;
+            return top;
+        }
+    }
+
+    /**
+     * Per-thread visited marks; bumping the epoch clears the set without touching the array.
+     */
+    private static final class VisitedSet {
+        private int[] marks = new int[0];
+        private int epoch;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[capacity];
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * @return true if the node was not visited before.
+         */
+        boolean mark(int node) {
+            if (node >= marks.length) {
+                marks = Arrays.copyOf(marks, Math.max(node + 1, marks.length * 2));
+            }
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
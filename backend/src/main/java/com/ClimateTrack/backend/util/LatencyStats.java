@@ -0,0 +1,49 @@
+package com.ClimateTrack.backend.util;
+
+import java.util.Arrays;
+
+/**
+ * Thread-safe latency recorder that keeps the most recent samples in a fixed ring buffer
+ * and reports count, mean and percentiles over them.
+ */
+public class LatencyStats {
+
+    public record Snapshot(long count, double meanMillis, double p50Millis, double p95Millis, double p99Millis) {}
+
+    private final long[] samples;
+    private long count;
+    private long totalNanos;
+
+    public LatencyStats(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public LatencyStats() {
+        this(1024);
+    }
+
+    public synchronized void record(long nanos) {
+        samples[(int) (count % samples.length)] = nanos;
+        count++;
+        totalNanos += nanos;
+    }
+
+    public synchronized Snapshot snapshot() {
+        int retained = (int) Math.min(count, samples.length);
+        if (retained == 0) {
+            return new Snapshot(0, 0, 0, 0, 0);
+        }
+        long[] sorted = Arrays.copyOf(samples, retained);
+        Arrays.sort(sorted);
+        return new Snapshot(count,
+                totalNanos / (double) count / 1_000_000,
+                percentile(sorted, 0.50),
+                percentile(sorted, 0.95),
+                percentile(sorted, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,140 @@
+package com.ClimateTrack.backend.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory inverted index with BM25 scoring over the same row ids as the vector store.
+ * <p>
+ * Documents are added by a single writer in increasing id order. Searches never lock: every posting
+ * list and the document-length array are append-only, and readers bound what they read by the
+ * document count they were given, so a search running next to an insert sees a consistent prefix.
+ */
+public class LexicalIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    /**
+     * Ranked documents plus how much of the query the best one covers: the idf-weighted fraction of
+     * distinct query terms that occur in it (1.0 means every term matched).
+     */
+    public record Result(TopKHeap hits, float topCoverage, int queryTerms) {}
+
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private volatile int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size = size + 1; // volatile write publishes the entry
+        }
+    }
+
+    private final ConcurrentHashMap<String, Postings> postings = new ConcurrentHashMap<>();
+    private volatile int[] docLengths = new int[1024];
+    private volatile int docCount;
+    private volatile long totalLength;
+
+    public int size() {
+        return docCount;
+    }
+
+    /**
+     * Indexes {@code text} as document {@code docId}, which must equal the current {@link #size()}.
+     */
+    public synchronized void add(int docId, String text) {
+        if (docId != docCount) {
+            throw new IllegalArgumentException("Documents must be added in id order; expected " + docCount + " but got " + docId);
+        }
+        List<String> tokens = TextTokenizer.tokenize(text);
+        Map<String, Integer> termFreqs = new HashMap<>();
+        for (String token : tokens) {
+            termFreqs.merge(token, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new Postings()).add(docId, entry.getValue());
+        }
+        int[] lengths = docLengths;
+        if (docId == lengths.length) {
+            lengths = Arrays.copyOf(lengths, lengths.length * 2);
+        }
+        lengths[docId] = tokens.size();
+        docLengths = lengths;
+        totalLength += tokens.size();
+        docCount = docId + 1;
+    }
+
+    /**
+     * BM25 search over documents with ids below {@code visibleCount}, keeping the best {@code k}.
+     */
+    public Result search(String query, int k, int visibleCount) {
+        return search(query, k, visibleCount, null);
+    }
+
+    /**
+     * As {@link #search(String, int, int)}, skipping documents set in {@code excluded} (deleted rows).
+     */
+    public Result search(String query, int k, int visibleCount, BitSet excluded) {
+        int n = Math.min(visibleCount, docCount);
+        Set<String> terms = new LinkedHashSet<>(TextTokenizer.tokenize(query));
+        TopKHeap hits = new TopKHeap(Math.max(1, k));
+        if (n == 0 || terms.isEmpty()) {
+            return new Result(hits, 0f, terms.size());
+        }
+        int[] lengths = docLengths;
+        float avgLength = Math.max(1f, totalLength / (float) docCount);
+
+        float[] scores = new float[n];
+        float[] matchedWeight = new float[n];
+        float totalWeight = 0f;
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            if (list == null) {
+                // Unknown terms still count against coverage, with the idf of a term seen once.
+                totalWeight += idf(n, 1);
+                continue;
+            }
+            int size = list.size;
+            int[] docs = list.docs;
+            int[] freqs = list.freqs;
+            int df = 0;
+            for (int i = 0; i < size && docs[i] < n; i++) {
+                df++;
+            }
+            float idf = idf(n, df);
+            totalWeight += idf;
+            for (int i = 0; i < df; i++) {
+                int doc = docs[i];
+                float tf = freqs[i];
+                float norm = K1 * (1 - B + B * lengths[doc] / avgLength);
+                scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+                matchedWeight[doc] += idf;
+            }
+        }
+        for (int doc = 0; doc < n; doc++) {
+            if (scores[doc] > 0f && (excluded == null || !excluded.get(doc))) {
+                hits.offer(doc, scores[doc]);
+            }
+        }
+        hits.sortDescending();
+        float coverage = hits.size() > 0 && totalWeight > 0 ? matchedWeight[hits.id(0)] / totalWeight : 0f;
+        return new Result(hits, coverage, terms.size());
+    }
+
+    private static float idf(int n, int df) {
+        return (float) Math.log(1 + (n - df + 0.5) / (df + 0.5));
+    }
+}
@@ -0,0 +1,133 @@
+package com.ClimateTrack.backend.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects chunks that are near-duplicates of one already seen, using 64-bit SimHash fingerprints over
+ * the lexical tokens and adjacent token pairs of each chunk. Two chunks are near-duplicates when their
+ * fingerprints differ in at most {@code maxDistance} bits.
+ * <p>
+ * Lookups avoid comparing against every earlier fingerprint: the 64 bits are split into
+ * {@code maxDistance + 1} bands, and any fingerprint within the distance must match at least one band
+ * exactly, so only fingerprints sharing a band are compared. Chunks with fewer than
+ * {@value #MIN_FEATURES} features give unreliable fingerprints and are only collapsed on an exact match.
+ * <p>
+ * Not thread-safe; one instance is used per ingestion run and then by the data-directory reloads.
+ */
+public class NearDuplicateFilter {
+
+    private static final int MIN_FEATURES = 4;
+
+    private final int maxDistance;
+    private final int[] bandShifts;
+    private final long[] bandMasks;
+    private final List<Map<Long, List<Long>>> bands;
+
+    public NearDuplicateFilter(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > 31) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and 31");
+        }
+        this.maxDistance = maxDistance;
+        int bandCount = maxDistance + 1;
+        this.bandShifts = new int[bandCount];
+        this.bandMasks = new long[bandCount];
+        this.bands = new ArrayList<>(bandCount);
+        int shift = 0;
+        for (int i = 0; i < bandCount; i++) {
+            int width = 64 / bandCount + (i < 64 % bandCount ? 1 : 0);
+            bandShifts[i] = shift;
+            bandMasks[i] = width == 64 ? -1L : (1L << width) - 1;
+            bands.add(new HashMap<>());
+            shift += width;
+        }
+    }
+
+    /**
+     * Returns true if {@code text} is within the distance of a chunk accepted earlier; otherwise
+     * remembers it and returns false.
+     */
+    public boolean isDuplicate(String text) {
+        List<String> tokens = TextTokenizer.tokenize(text);
+        long fingerprint = simHash(tokens);
+        int allowed = tokens.size() * 2 - 1 < MIN_FEATURES ? 0 : maxDistance;
+        for (int i = 0; i < bands.size(); i++) {
+            List<Long> candidates = bands.get(i).get(band(fingerprint, i));
+            if (candidates == null) {
+                continue;
+            }
+            for (long candidate : candidates) {
+                if (Long.bitCount(candidate ^ fingerprint) <= allowed) {
+                    return true;
+                }
+            }
+        }
+        for (int i = 0; i < bands.size(); i++) {
+            bands.get(i).computeIfAbsent(band(fingerprint, i), k -> new ArrayList<>(1)).add(fingerprint);
+        }
+        return false;
+    }
+
+    /**
+     * Forgets one earlier acceptance of {@code text}, so that its near-duplicates are accepted again.
+     * Used when a chunk is retracted from the index.
+     */
+    public void forget(String text) {
+        long fingerprint = simHash(TextTokenizer.tokenize(text));
+        for (int i = 0; i < bands.size(); i++) {
+            long key = band(fingerprint, i);
+            List<Long> candidates = bands.get(i).get(key);
+            if (candidates != null && candidates.remove(Long.valueOf(fingerprint)) && candidates.isEmpty()) {
+                bands.get(i).remove(key);
+            }
+        }
+    }
+
+    private long band(long fingerprint, int band) {
+        return (fingerprint >>> bandShifts[band]) & bandMasks[band];
+    }
+
+    /**
+     * SimHash of the tokens and of each adjacent pair of tokens, all with weight 1.
+     */
+    static long simHash(List<String> tokens) {
+        int[] votes = new int[64];
+        for (int i = 0; i < tokens.size(); i++) {
+            vote(votes, hash(tokens.get(i), 0));
+            if (i + 1 < tokens.size()) {
+                vote(votes, hash(tokens.get(i + 1), hash(tokens.get(i), 0)));
+            }
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    private static void vote(int[] votes, long hash) {
+        for (int bit = 0; bit < 64; bit++) {
+            votes[bit] += ((hash >>> bit) & 1L) != 0 ? 1 : -1;
+        }
+    }
+
+    // FNV-1a over the characters, seeded with the previous token's hash for pairs, then a
+    // MurmurHash3 finalizer so that similar strings spread over all 64 bits.
+    private static long hash(String token, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < token.length(); i++) {
+            h ^= token.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
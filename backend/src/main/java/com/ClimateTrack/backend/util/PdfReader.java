@@ -1,21 +1,63 @@
 package com.ClimateTrack.backend.util;
 
+import jakarta.annotation.PreDestroy;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
+/**
+ * Extracts PDF text page by page. Page ranges are extracted in parallel on a fork-join pool, each task
+ * with its own document handle read lazily from disk, and pages are handed to the caller in page order.
+ * At most a small window of ranges is in flight, so heap use does not grow with the size of the file.
+ */
 @Component
 public class PdfReader {
 
     private static final Logger logger = LoggerFactory.getLogger(PdfReader.class);
 
+    /**
+     * Text of one page; {@code pageNumber} is 1-based.
+     */
+    public record PdfPage(String source, int pageNumber, int pageCount, String text) {}
+
+    private final ForkJoinPool pool;
+    private final int pagesPerTask;
+
+    public PdfReader(@Value("${pdf.extraction.parallelism:0}") int parallelism,
+                     @Value("${pdf.extraction.pages-per-task:16}") int pagesPerTask) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads);
+        this.pagesPerTask = Math.max(1, pagesPerTask);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
     /**
      * Extracts text from a PDF file located in the classpath (e.g., src/main/resources).
      * @param classpathPdfPath The path to the PDF within the classpath (e.g., "data/my_file.pdf").
@@ -23,34 +65,112 @@ public class PdfReader {
      * @throws IOException If the file cannot be found or read.
      */
     public String extractTextFromClasspathPdf(String classpathPdfPath) throws IOException {
+        StringBuilder text = new StringBuilder();
+        extractPages(classpathPdfPath, page -> text.append(page.text()));
+        return text.toString();
+    }
+
+    /**
+     * Streams the text of every page of a classpath PDF to {@code consumer}, in page order, on the calling
+     * thread. Encrypted files yield no pages.
+     * @throws IOException If the file cannot be found or read.
+     */
+    public void extractPages(String classpathPdfPath, Consumer<PdfPage> consumer) throws IOException {
         logger.debug("Attempting to read PDF from classpath: {}", classpathPdfPath);
+        extractPages(new ClassPathResource(classpathPdfPath), classpathPdfPath, consumer);
+    }
 
-        ClassPathResource resource = new ClassPathResource(classpathPdfPath);
+    /**
+     * Streams the pages of a PDF from any resource (classpath or file system); {@code source} names it in
+     * the pages and in logs. An exception thrown by {@code consumer} stops the extraction; a
+     * {@link CancellationException} is passed on as is rather than reported as an unreadable file.
+     * @throws IOException If the file cannot be found or read.
+     */
+    public void extractPages(Resource resource, String source, Consumer<PdfPage> consumer) throws IOException {
         if (!resource.exists()) {
-            logger.error("PDF resource not found at classpath: {}", classpathPdfPath);
-            throw new IOException("Resource not found: " + classpathPdfPath);
+            logger.error("PDF resource not found: {}", source);
+            throw new IOException("Resource not found: " + source);
         }
 
-        // --- FIX for ClassCastException ---
-        // Read the InputStream into a byte array first
-        try (InputStream inputStream = resource.getInputStream()) {
-            byte[] pdfBytes = inputStream.readAllBytes();
-
-            // Now, load the PDF from the byte array
-            try (PDDocument document = Loader.loadPDF(pdfBytes)) { // <-- USE Loader.loadPDF(byte[])
-
-                if (!document.isEncrypted()) {
-                    PDFTextStripper stripper = new PDFTextStripper();
-                    return stripper.getText(document);
-                } else {
-                    logger.warn("PDF file is encrypted, cannot extract text: {}", classpathPdfPath);
-                    return ""; // Return empty for encrypted files
-                }
+        // Tasks open the file independently, so it has to be on disk. Resources inside a jar are
+        // copied to a temporary file instead of being buffered on the heap.
+        Path temporary = null;
+        File file;
+        if (resource.isFile()) {
+            file = resource.getFile();
+        } else {
+            temporary = Files.createTempFile("pdf-extract-", ".pdf");
+            try (InputStream inputStream = resource.getInputStream()) {
+                Files.copy(inputStream, temporary, StandardCopyOption.REPLACE_EXISTING);
             }
-            // --- END FIX ---
-        } catch (Exception e) {
-            logger.error("Failed to read or parse PDF {}: {}", classpathPdfPath, e.getMessage(), e);
-            throw new IOException("Failed to process PDF file: " + classpathPdfPath, e);
+            file = temporary.toFile();
         }
+        try {
+            extractFile(file, source, consumer);
+        } catch (CancellationException e) {
+            // The caller stopped the extraction; the file itself is fine
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to read or parse PDF {}: {}", source, e.getMessage(), e);
+            throw new IOException("Failed to process PDF file: " + source, e);
+        } finally {
+            if (temporary != null) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    private void extractFile(File file, String source, Consumer<PdfPage> consumer) throws IOException {
+        long start = System.nanoTime();
+        int pageCount;
+        try (PDDocument document = open(file)) {
+            if (document.isEncrypted()) {
+                logger.warn("PDF file is encrypted, cannot extract text: {}", source);
+                return;
+            }
+            pageCount = document.getNumberOfPages();
+        }
+
+        // Keep a bounded window of range tasks in flight and drain them in order.
+        int window = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<List<PdfPage>>> inFlight = new ArrayDeque<>(window);
+        int nextPage = 1;
+        while (nextPage <= pageCount || !inFlight.isEmpty()) {
+            while (nextPage <= pageCount && inFlight.size() < window) {
+                int first = nextPage;
+                int last = Math.min(pageCount, first + pagesPerTask - 1);
+                inFlight.add(pool.submit(() -> extractRange(file, source, first, last, pageCount)));
+                nextPage = last + 1;
+            }
+            try {
+                inFlight.removeFirst().join().forEach(consumer);
+            } catch (RuntimeException e) {
+                // A failed range or a consumer that gave up: the ranges still running are not needed
+                inFlight.forEach(task -> task.cancel(true));
+                throw e;
+            }
+        }
+        logger.info("Extracted {} pages from PDF {} in {} ms.", pageCount, source,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static List<PdfPage> extractRange(File file, String source, int first, int last, int pageCount) {
+        try (PDDocument document = open(file)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            List<PdfPage> pages = new ArrayList<>(last - first + 1);
+            for (int page = first; page <= last; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                pages.add(new PdfPage(source, page, pageCount, stripper.getText(document)));
+            }
+            return pages;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to extract pages " + first + "-" + last + " of " + source, e);
+        }
+    }
+
+    private static PDDocument open(File file) throws IOException {
+        return Loader.loadPDF(new RandomAccessReadBufferedFile(file), null, null, null,
+                IOUtils.createTempFileOnlyStreamCache());
     }
-}
\ No newline at end of file
+}
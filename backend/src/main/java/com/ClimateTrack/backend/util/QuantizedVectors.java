@@ -0,0 +1,159 @@
+package com.ClimateTrack.backend.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Int8 scalar-quantized copy of normalized embedding rows, with the full-precision rows memory-mapped
+ * from a scratch file.
+ * <p>
+ * Each row is stored as one signed byte per dimension plus a per-row offset and scale
+ * ({@code value ~ offset + scale * (code + 128)}), which is about a quarter of the memory of a float row.
+ * The float rows are only read to re-score the best approximate candidates, so they live in a temporary
+ * file: the OS pages in the rows a search touches and can drop them again, and none of them count
+ * against the heap or the direct-memory limit. The file is deleted once it is no longer mapped.
+ * Rows are appended by a single writer; {@link #rows()} returns a view that stays valid for all rows
+ * appended before it was taken.
+ */
+public final class QuantizedVectors {
+
+    /**
+     * Read-only view of the stored rows.
+     */
+    public record Rows(byte[] codes, float[] scales, float[] offsets, FloatBuffer exact, int dimension) {
+
+        /**
+         * Bytes held in memory: the codes, scales and offsets. The mapped float rows are not included.
+         */
+        public long residentBytes() {
+            return codes.length + (long) (scales.length + offsets.length) * Float.BYTES;
+        }
+
+        /**
+         * Bytes of the memory-mapped full-precision rows.
+         */
+        public long mappedBytes() {
+            return (long) exact.capacity() * Float.BYTES;
+        }
+
+        /**
+         * Approximate dot product of {@code query} with row {@code row}, computed from the int8 codes.
+         * {@code querySum} must be the sum of the query's components.
+         */
+        public float approximateDot(float[] query, float querySum, int row) {
+            float sum = VectorMath.dotInt8(query, codes, row * dimension, dimension);
+            return scales[row] * sum + (offsets[row] + 128f * scales[row]) * querySum;
+        }
+
+        /**
+         * Exact dot product of {@code query} with the full-precision row.
+         */
+        public float exactDot(float[] query, int row) {
+            int offset = row * dimension;
+            float sum = 0f;
+            for (int i = 0; i < dimension; i++) {
+                sum += query[i] * exact.get(offset + i);
+            }
+            return sum;
+        }
+
+        public void copyRow(int row, float[] target, int targetOffset) {
+            exact.get(row * dimension, target, targetOffset, dimension);
+        }
+    }
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int dimension;
+    private final FileChannel file;
+    private byte[] codes;
+    private float[] scales;
+    private float[] offsets;
+    private FloatBuffer exact;
+
+    public QuantizedVectors(int dimension, int initialCapacity) {
+        this.dimension = dimension;
+        this.codes = new byte[initialCapacity * dimension];
+        this.scales = new float[initialCapacity];
+        this.offsets = new float[initialCapacity];
+        this.file = openScratchFile();
+        // Views hold only the mappings, which stay valid after the channel is closed
+        FileChannel channel = file;
+        CLEANER.register(this, () -> {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        });
+        this.exact = mapExact(initialCapacity);
+    }
+
+    public Rows rows() {
+        return new Rows(codes, scales, offsets, exact, dimension);
+    }
+
+    /**
+     * Stores {@code vector} as row {@code row}, growing the storage if needed.
+     */
+    public void set(int row, float[] vector) {
+        ensureCapacity(row + 1);
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float v : vector) {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        float scale = max > min ? (max - min) / 255f : 0f;
+        int offset = row * dimension;
+        for (int i = 0; i < dimension; i++) {
+            int code = scale == 0f ? 0 : Math.round((vector[i] - min) / scale);
+            codes[offset + i] = (byte) (Math.min(255, Math.max(0, code)) - 128);
+        }
+        scales[row] = scale;
+        offsets[row] = min;
+        exact.put(offset, vector, 0, dimension);
+    }
+
+    private void ensureCapacity(int rows) {
+        int capacity = scales.length;
+        if (rows <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(rows, capacity * 2);
+        codes = Arrays.copyOf(codes, newCapacity * dimension);
+        scales = Arrays.copyOf(scales, newCapacity);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        // A larger mapping of the same file already holds the rows written so far, and views taken
+        // earlier keep seeing them through their own mapping
+        exact = mapExact(newCapacity);
+    }
+
+    private static FileChannel openScratchFile() {
+        try {
+            Path path = Files.createTempFile("quantized-rows", ".f32");
+            return FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create the file for full-precision rows", e);
+        }
+    }
+
+    private FloatBuffer mapExact(int rows) {
+        try {
+            return file.map(FileChannel.MapMode.READ_WRITE, 0, (long) Math.max(1, rows * dimension) * Float.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map the full-precision rows", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ClimateTrack.backend.util;
+
+/**
+ * Plain-Java kernel, used when the Vector API is unavailable.
+ */
+public final class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dotInt8(float[] query, byte[] codes, int offset, int length) {
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += query[i] * codes[offset + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,149 @@
+package com.ClimateTrack.backend.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chatbot answers cached by the meaning of the question. A cached answer is reused when the new
+ * question's embedding has cosine similarity of at least {@code threshold} with the cached question's
+ * and the context retrieved for it has the same fingerprint, so a change in that context (a new alert
+ * nearby, a re-indexed manual) never serves the old answer. Entries expire {@code ttlMillis} after they
+ * are stored; beyond {@code maxEntries} the least recently used are evicted.
+ * <p>
+ * Candidates are grouped by fingerprint, so a lookup only compares against the few questions that were
+ * answered from the same context.
+ */
+public class SemanticResponseCache {
+
+    public record Stats(long hits, long misses, long expirations, long evictions, int entries, int maxEntries,
+                        float threshold, long ttlMillis) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : hits / (double) lookups;
+        }
+    }
+
+    private static final class Entry {
+
+        final ContentHash fingerprint;
+        final float[] question;
+        final String answer;
+        final long expiresAt;
+
+        Entry(ContentHash fingerprint, float[] question, String answer, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.question = question;
+            this.answer = answer;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final float threshold;
+    private final long ttlMillis;
+    private final int maxEntries;
+    // Entries in access order (identity keys); values are unused.
+    private final LinkedHashMap<Entry, Boolean> lru = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<ContentHash, List<Entry>> byFingerprint = new HashMap<>();
+    private long hits;
+    private long misses;
+    private long expirations;
+    private long evictions;
+
+    public SemanticResponseCache(float threshold, long ttlMillis, int maxEntries) {
+        this.threshold = threshold;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * The cached answer to the most similar question above the threshold with the same context
+     * fingerprint, or null.
+     */
+    public synchronized String get(float[] questionEmbedding, ContentHash fingerprint) {
+        float[] question = normalized(questionEmbedding);
+        Entry best = null;
+        float bestSimilarity = threshold;
+        List<Entry> candidates = byFingerprint.get(fingerprint);
+        if (candidates != null) {
+            long now = System.currentTimeMillis();
+            for (Iterator<Entry> it = candidates.iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                if (entry.expiresAt <= now) {
+                    it.remove();
+                    lru.remove(entry);
+                    expirations++;
+                    continue;
+                }
+                float similarity = similarity(entry.question, question);
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (candidates.isEmpty()) {
+                byFingerprint.remove(fingerprint);
+            }
+        }
+        if (best == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        lru.get(best);
+        return best.answer;
+    }
+
+    /**
+     * Stores an answer. An existing entry for a question above the threshold in the same context is
+     * replaced rather than kept alongside.
+     */
+    public synchronized void put(float[] questionEmbedding, ContentHash fingerprint, String answer) {
+        float[] question = normalized(questionEmbedding);
+        List<Entry> candidates = byFingerprint.computeIfAbsent(fingerprint, k -> new ArrayList<>(2));
+        candidates.removeIf(entry -> {
+            boolean replaced = similarity(entry.question, question) >= threshold;
+            if (replaced) {
+                lru.remove(entry);
+            }
+            return replaced;
+        });
+        Entry entry = new Entry(fingerprint, question, answer, System.currentTimeMillis() + ttlMillis);
+        candidates.add(entry);
+        lru.put(entry, Boolean.TRUE);
+        Iterator<Entry> eldest = lru.keySet().iterator();
+        while (lru.size() > maxEntries && eldest.hasNext()) {
+            Entry evicted = eldest.next();
+            eldest.remove();
+            List<Entry> group = byFingerprint.get(evicted.fingerprint);
+            group.remove(evicted);
+            if (group.isEmpty()) {
+                byFingerprint.remove(evicted.fingerprint);
+            }
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        lru.clear();
+        byFingerprint.clear();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, expirations, evictions, lru.size(), maxEntries, threshold, ttlMillis);
+    }
+
+    private static float[] normalized(float[] vector) {
+        float[] copy = new float[vector.length];
+        VectorMath.normalizeInto(vector, copy, 0);
+        return copy;
+    }
+
+    private static float similarity(float[] a, float[] b) {
+        return a.length == b.length ? VectorMath.dot(a, 0, b, 0, a.length) : -1f;
+    }
+}
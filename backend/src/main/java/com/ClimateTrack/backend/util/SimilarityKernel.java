@@ -0,0 +1,20 @@
+package com.ClimateTrack.backend.util;
+
+/**
+ * Inner-product kernels used by the vector store. Rows are L2-normalized on insert, so the dot
+ * product is the cosine similarity. Implementations must be stateless and thread-safe.
+ */
+public interface SimilarityKernel {
+
+    String name();
+
+    /**
+     * Dot product of {@code length} floats of {@code a} and {@code b} starting at the given offsets.
+     */
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Sum of {@code query[i] * codes[offset + i]} over {@code length} dimensions, for int8-quantized rows.
+     */
+    float dotInt8(float[] query, byte[] codes, int offset, int length);
+}
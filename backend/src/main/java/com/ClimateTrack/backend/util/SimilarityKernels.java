@@ -0,0 +1,53 @@
+package com.ClimateTrack.backend.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Picks the similarity kernel once per JVM. The Vector API kernel is used when the
+ * {@code jdk.incubator.vector} module was added at startup ({@code --add-modules jdk.incubator.vector});
+ * otherwise, or when the system property {@code similarity.kernel=scalar} is set, the scalar kernel is used.
+ */
+public final class SimilarityKernels {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityKernels.class);
+
+    private static final SimilarityKernel SELECTED = select();
+
+    private SimilarityKernels() {
+    }
+
+    public static SimilarityKernel get() {
+        return SELECTED;
+    }
+
+    public static SimilarityKernel scalar() {
+        return new ScalarSimilarityKernel();
+    }
+
+    /**
+     * @return the Vector API kernel, or null if the module is not available in this JVM.
+     */
+    public static SimilarityKernel vectorApi() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            // Loaded reflectively so this class never links against the incubator module when it is absent.
+            return (SimilarityKernel) Class.forName("com.ClimateTrack.backend.util.VectorApiSimilarityKernel")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("Vector API present but its kernel could not be loaded: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static SimilarityKernel select() {
+        SimilarityKernel kernel = "scalar".equalsIgnoreCase(System.getProperty("similarity.kernel")) ? null : vectorApi();
+        if (kernel == null) {
+            kernel = scalar();
+        }
+        logger.info("Using '{}' similarity kernel.", kernel.name());
+        return kernel;
+    }
+}
@@ -0,0 +1,233 @@
+package com.ClimateTrack.backend.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/**
+ * Streaming chunker with a bounded window. Text is fed in pieces (e.g. one PDF page at a time) and
+ * chunks of at most {@code maxChars} characters are emitted as soon as the window fills, so the full
+ * corpus is never held in memory.
+ * <p>
+ * Whitespace is normalized in the same pass: runs containing a blank line become a paragraph break,
+ * any other run becomes one space. Consecutive short paragraphs are packed into one chunk. A full window
+ * is cut at the last paragraph break, else the last sentence end, else the last space in its second
+ * half; only a single unbroken run is cut mid-word. A chunk cut inside a paragraph carries its last
+ * {@code overlapChars} characters, starting on a sentence or word boundary, into the next chunk.
+ * Chunks shorter than {@code minChars} are dropped.
+ * <p>
+ * Pieces may carry a page number; each chunk then reports the pages its text was taken from.
+ */
+@Component
+public class TextChunker {
+
+    private final int maxChars;
+    private final int overlapChars;
+    private final int minChars;
+
+    public TextChunker(@Value("${chunking.max-chars:1500}") int maxChars,
+                       @Value("${chunking.overlap-chars:150}") int overlapChars,
+                       @Value("${chunking.min-chars:20}") int minChars) {
+        if (maxChars < 2) {
+            throw new IllegalArgumentException("maxChars must be at least 2");
+        }
+        this.maxChars = maxChars;
+        this.overlapChars = Math.max(0, Math.min(overlapChars, maxChars / 2));
+        this.minChars = Math.max(0, minChars);
+    }
+
+    /**
+     * A chunk with the first and last page its text came from; both are 0 for text fed without pages.
+     */
+    public record Chunk(String text, int firstPage, int lastPage) {}
+
+    /**
+     * Starts chunking one document; {@code sink} receives each chunk, trimmed, on the feeding thread.
+     */
+    public Session start(Consumer<String> sink) {
+        return new Session(chunk -> sink.accept(chunk.text()));
+    }
+
+    /**
+     * As {@link #start}, passing each chunk with the pages it spans.
+     */
+    public Session startPaged(Consumer<Chunk> sink) {
+        return new Session(sink);
+    }
+
+    public final class Session {
+
+        private final Consumer<Chunk> sink;
+        private final StringBuilder window = new StringBuilder(maxChars + 16);
+        // Window offsets where a new page starts, as {offset, page}, in order
+        private final ArrayDeque<int[]> pageStarts = new ArrayDeque<>();
+        private boolean pendingSpace;
+        private int pendingNewlines;
+        private int page;
+        private int windowPage;
+        private int lastPage;
+
+        private Session(Consumer<Chunk> sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Feeds the next piece of the document, from the same page as the previous piece.
+         */
+        public void accept(CharSequence text) {
+            accept(text, page);
+        }
+
+        /**
+         * Feeds the next piece of the document, taken from page {@code page}.
+         */
+        public void accept(CharSequence text, int page) {
+            this.page = page;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    pendingSpace = true;
+                    if (c == '\n') {
+                        pendingNewlines++;
+                    }
+                    continue;
+                }
+                if (pendingSpace && !window.isEmpty()) {
+                    if (pendingNewlines >= 2) {
+                        window.append("\n\n");
+                    } else {
+                        window.append(' ');
+                    }
+                }
+                pendingSpace = false;
+                pendingNewlines = 0;
+                if (window.isEmpty()) {
+                    windowPage = page;
+                } else if (page != lastPage) {
+                    pageStarts.addLast(new int[] {window.length(), page});
+                }
+                lastPage = page;
+                window.append(c);
+                if (window.length() >= maxChars) {
+                    cut();
+                }
+            }
+        }
+
+        /**
+         * Emits whatever remains of the document.
+         */
+        public void finish() {
+            emit(window.toString(), windowPage, lastPage);
+            window.setLength(0);
+            pageStarts.clear();
+            pendingSpace = false;
+            pendingNewlines = 0;
+        }
+
+        private void cut() {
+            int floor = maxChars / 2;
+            int end = lastParagraphBreak(floor);
+            boolean atParagraph = end > 0;
+            if (!atParagraph) {
+                end = lastSentenceEnd(floor);
+            }
+            if (end <= 0) {
+                end = lastSpace(floor);
+            }
+            if (end <= 0) {
+                end = window.length();
+            }
+            String chunk = window.substring(0, end);
+            emit(chunk, windowPage, pageAt(end - 1));
+
+            int keepFrom = end;
+            if (!atParagraph && overlapChars > 0) {
+                keepFrom = overlapStart(end);
+            }
+            // Drop the separator the cut landed on.
+            while (keepFrom < window.length() && Character.isWhitespace(window.charAt(keepFrom))) {
+                keepFrom++;
+            }
+            windowPage = pageAt(keepFrom);
+            window.delete(0, keepFrom);
+            while (!pageStarts.isEmpty() && pageStarts.peekFirst()[0] <= keepFrom) {
+                pageStarts.removeFirst();
+            }
+            for (int[] start : pageStarts) {
+                start[0] -= keepFrom;
+            }
+        }
+
+        /**
+         * Page of the window character at {@code offset}.
+         */
+        private int pageAt(int offset) {
+            int result = windowPage;
+            for (int[] start : pageStarts) {
+                if (start[0] > offset) {
+                    break;
+                }
+                result = start[1];
+            }
+            return result;
+        }
+
+        private int lastParagraphBreak(int floor) {
+            for (int i = window.length() - 2; i >= floor; i--) {
+                if (window.charAt(i) == '\n' && window.charAt(i + 1) == '\n') {
+                    return i;
+                }
+            }
+            return 0;
+        }
+
+        private int lastSentenceEnd(int floor) {
+            for (int i = window.length() - 2; i >= floor; i--) {
+                if (isSentenceEnd(window.charAt(i)) && window.charAt(i + 1) == ' ') {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        private int lastSpace(int floor) {
+            for (int i = window.length() - 1; i >= floor; i--) {
+                if (window.charAt(i) == ' ') {
+                    return i;
+                }
+            }
+            return 0;
+        }
+
+        // Start of the overlap carried over from a chunk ending at 'end': the first sentence start within
+        // the last 'overlapChars', else the first word start, else exactly 'overlapChars' back.
+        private int overlapStart(int end) {
+            int from = Math.max(1, end - overlapChars);
+            for (int i = from; i < end; i++) {
+                if (window.charAt(i - 1) == ' ' && i >= 2 && isSentenceEnd(window.charAt(i - 2))) {
+                    return i;
+                }
+            }
+            for (int i = from; i < end; i++) {
+                if (window.charAt(i - 1) == ' ') {
+                    return i;
+                }
+            }
+            return end - Math.min(overlapChars, end);
+        }
+
+        private void emit(String chunk, int firstPage, int lastPage) {
+            String trimmed = chunk.trim();
+            if (trimmed.length() >= minChars && !trimmed.isEmpty()) {
+                sink.accept(new Chunk(trimmed, firstPage, lastPage));
+            }
+        }
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '。';
+    }
+}
@@ -0,0 +1,76 @@
+package com.ClimateTrack.backend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Tokenizer for the lexical index. Latin letters and digits form lower-cased word tokens (minus a
+ * short English stop-word list); runs of Hangul are split into overlapping character bigrams, so
+ * "강남소방서" matches "강남구 소방서" without a morphological analyzer. Everything else separates tokens.
+ */
+public final class TextTokenizer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "do", "does", "for", "from", "how", "i",
+            "in", "is", "it", "me", "my", "of", "on", "or", "the", "this", "to", "what", "when", "where",
+            "which", "who", "with", "you");
+
+    private TextTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        StringBuilder hangul = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isHangul(c)) {
+                flushWord(word, tokens);
+                hangul.append(c);
+            } else if (Character.isLetterOrDigit(c)) {
+                flushHangul(hangul, tokens);
+                word.append(c);
+            } else {
+                flushWord(word, tokens);
+                flushHangul(hangul, tokens);
+            }
+        }
+        flushWord(word, tokens);
+        flushHangul(hangul, tokens);
+        return tokens;
+    }
+
+    static boolean isHangul(char c) {
+        return (c >= '가' && c <= '힣') || (c >= 'ㄱ' && c <= 'ㆎ');
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.isEmpty()) {
+            return;
+        }
+        String token = word.toString().toLowerCase(Locale.ROOT);
+        if (!STOP_WORDS.contains(token)) {
+            tokens.add(token);
+        }
+        word.setLength(0);
+    }
+
+    private static void flushHangul(StringBuilder run, List<String> tokens) {
+        if (run.isEmpty()) {
+            return;
+        }
+        if (run.length() == 1) {
+            tokens.add(run.toString());
+        } else {
+            for (int i = 0; i + 1 < run.length(); i++) {
+                tokens.add(run.substring(i, i + 2));
+            }
+        }
+        run.setLength(0);
+    }
+}
@@ -0,0 +1,45 @@
+package com.ClimateTrack.backend.util;
+
+/**
+ * Cheap estimate of how many tokens a text takes in a chat prompt, without loading the model's
+ * tokenizer. Runs of ASCII letters and digits count one token per four characters (rounded up), other
+ * ASCII characters one each except spaces, and every non-ASCII character (Hangul, CJK, emoji) one
+ * token, which is what BPE vocabularies trained mostly on English tend to spend on them. Each chat
+ * message also costs a few tokens for its role and delimiters.
+ */
+public final class TokenEstimator {
+
+    /** Tokens spent on the role and delimiters of one chat message. */
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    private TokenEstimator() {}
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int tokens = 0;
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 128 && Character.isLetterOrDigit(c)) {
+                run++;
+                continue;
+            }
+            tokens += (run + 3) / 4;
+            run = 0;
+            if (Character.isLowSurrogate(c) || c == ' ') {
+                continue;
+            }
+            tokens++;
+        }
+        return tokens + (run + 3) / 4;
+    }
+
+    /**
+     * Estimate for {@code text} sent as one chat message.
+     */
+    public static int estimateMessage(String text) {
+        return estimate(text) + MESSAGE_OVERHEAD;
+    }
+}
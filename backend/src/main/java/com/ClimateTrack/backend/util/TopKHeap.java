@@ -0,0 +1,121 @@
+package com.ClimateTrack.backend.util;
+
+/**
+ * Bounded min-heap of (id, score) pairs used to keep the K best candidates of a similarity scan.
+ * Backed by two primitive arrays, so offering a candidate never allocates.
+ */
+public final class TopKHeap {
+
+    private final int[] ids;
+    private final float[] scores;
+    private int size;
+
+    public TopKHeap(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Heap capacity must be positive.");
+        }
+        this.ids = new int[capacity];
+        this.scores = new float[capacity];
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == ids.length;
+    }
+
+    /**
+     * Lowest score currently kept, or negative infinity while the heap still has room.
+     */
+    public float minScore() {
+        return isFull() ? scores[0] : Float.NEGATIVE_INFINITY;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Offers a candidate. It is kept if the heap has room or it beats the current minimum.
+     * @return true if the candidate was kept.
+     */
+    public boolean offer(int id, float score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        ids[0] = id;
+        scores[0] = score;
+        siftDown(0, size);
+        return true;
+    }
+
+    /**
+     * Sorts the kept entries by descending score in place. After this call, {@link #id(int)} and
+     * {@link #score(int)} return results in rank order; the heap must be cleared before it is reused.
+     */
+    public void sortDescending() {
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    public int id(int index) {
+        return ids[index];
+    }
+
+    public float score(int index) {
+        return scores[index];
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int limit) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= limit) {
+                return;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < limit && scores[right] < scores[left]) {
+                smallest = right;
+            }
+            if (scores[index] <= scores[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,59 @@
+package com.ClimateTrack.backend.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernel on the JDK Vector API ({@code jdk.incubator.vector}). Only load this class through
+ * {@link SimilarityKernels}, which checks that the module is present first.
+ */
+public final class VectorApiSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    // Byte lanes matching the float lane count, so one byte load widens to exactly one float vector.
+    private static final VectorSpecies<Byte> BYTES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(FLOATS.length() * Byte.SIZE));
+
+    @Override
+    public String name() {
+        return "vector-api-" + FLOATS.vectorBitSize() + "bit";
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int upper = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            FloatVector va = FloatVector.fromArray(FLOATS, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(FLOATS, b, bOffset + i);
+            acc = va.fma(vb, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dotInt8(float[] query, byte[] codes, int offset, int length) {
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int upper = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            FloatVector q = FloatVector.fromArray(FLOATS, query, i);
+            FloatVector c = (FloatVector) ByteVector.fromArray(BYTES, codes, offset + i)
+                    .convertShape(VectorOperators.B2F, FLOATS, 0);
+            acc = q.fma(c, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += query[i] * codes[offset + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ClimateTrack.backend.util;
+
+/**
+ * Small helpers for working with embeddings stored row-by-row in a flat float matrix.
+ * Dot products run on the kernel chosen by {@link SimilarityKernels}.
+ */
+public final class VectorMath {
+
+    private static final SimilarityKernel KERNEL = SimilarityKernels.get();
+
+    private VectorMath() {
+    }
+
+    /**
+     * Dot product of {@code query} with the row of {@code matrix} starting at {@code offset}.
+     */
+    public static float dot(float[] query, float[] matrix, int offset, int dimension) {
+        return KERNEL.dot(query, 0, matrix, offset, dimension);
+    }
+
+    /**
+     * Dot product of two rows held at arbitrary offsets.
+     */
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+        return KERNEL.dot(a, aOffset, b, bOffset, dimension);
+    }
+
+    /**
+     * Dot product of {@code query} with the int8 codes of a quantized row starting at {@code offset}.
+     */
+    public static float dotInt8(float[] query, byte[] codes, int offset, int dimension) {
+        return KERNEL.dotInt8(query, codes, offset, dimension);
+    }
+
+    public static float norm(float[] vector) {
+        float sum = 0f;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    /**
+     * Writes the L2-normalized copy of {@code vector} into {@code target} at {@code offset}.
+     * A zero vector is written as zeros, so it scores 0 against everything.
+     */
+    public static void normalizeInto(float[] vector, float[] target, int offset) {
+        float norm = norm(vector);
+        float scale = norm == 0f ? 0f : 1f / norm;
+        for (int i = 0; i < vector.length; i++) {
+            target[offset + i] = vector[i] * scale;
+        }
+    }
+}
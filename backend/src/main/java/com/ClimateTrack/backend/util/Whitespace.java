@@ -0,0 +1,42 @@
+package com.ClimateTrack.backend.util;
+
+/**
+ * Single-pass whitespace normalization: leading and trailing whitespace removed, every inner run
+ * replaced by one space. Used instead of {@code replaceAll("\\s+", " ").trim()}, which compiles a
+ * pattern and allocates an intermediate string per call.
+ */
+public final class Whitespace {
+
+    private Whitespace() {
+    }
+
+    public static String collapse(CharSequence text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        appendCollapsed(sb, text);
+        return sb.toString();
+    }
+
+    /**
+     * Appends {@code text} to {@code target} with its whitespace collapsed.
+     */
+    public static void appendCollapsed(StringBuilder target, CharSequence text) {
+        if (text == null) {
+            return;
+        }
+        boolean pendingSpace = false;
+        boolean started = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = started;
+            } else {
+                if (pendingSpace) {
+                    target.append(' ');
+                    pendingSpace = false;
+                }
+                target.append(c);
+                started = true;
+            }
+        }
+    }
+}
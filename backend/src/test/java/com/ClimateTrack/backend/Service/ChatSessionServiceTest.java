@@ -0,0 +1,141 @@
+package com.ClimateTrack.backend.Service;
+
+import com.ClimateTrack.backend.Controller.ChatbotController.ChatMessage;
+import com.ClimateTrack.backend.util.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatSessionServiceTest {
+
+    private static final int BUDGET = 200;
+    private static final double COMPACT_TO = 0.5;
+
+    @Test
+    void compactionKeepsTheHistoryUnderBudget() {
+        ChatSessionService service = new ChatSessionService(BUDGET, COMPACT_TO, 30, 100);
+        ChatSessionService.Session session = service.open(null, "alice", null);
+
+        for (int turn = 0; turn < 40; turn++) {
+            service.recordTurn(session, "Where is the nearest shelter to station number " + turn + "?",
+                    "The nearest shelter to station " + turn + " is the community centre two blocks north.");
+            assertThat(turnTokens(session.history())).as("turn %d", turn).isLessThanOrEqualTo(BUDGET);
+        }
+
+        // Compacting to half the budget leaves room for several turns before the next compaction
+        ChatSessionService.SessionStats stats = service.getStats();
+        assertThat(stats.compactions()).isBetween(1L, 20L);
+        assertThat(stats.droppedTurns()).isPositive();
+        List<ChatMessage> history = session.history();
+        assertThat(history.get(history.size() - 1).content()).contains("station 39");
+        // The dropped questions are summarized in a note, newest kept when the note is full
+        assertThat(history.get(0).role()).isEqualTo("system");
+        assertThat(history.get(0).content()).contains("Earlier in this conversation the user asked");
+        assertThat(TokenEstimator.estimate(history.get(0).content())).isLessThanOrEqualTo(BUDGET / 2);
+        assertThat(history.get(0).content()).doesNotContain("station number 0?");
+    }
+
+    @Test
+    void concurrentTurnsStayPairedAndUnderBudget() throws Exception {
+        ChatSessionService service = new ChatSessionService(BUDGET, COMPACT_TO, 30, 100);
+        ChatSessionService.Session session = service.open(null, "alice", null);
+        int threads = 4;
+        int turnsPerThread = 50;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < turnsPerThread; i++) {
+                        service.recordTurn(session, "Question " + thread + "-" + i, "Answer " + thread + "-" + i);
+                        assertThat(turnTokens(session.history())).isLessThanOrEqualTo(BUDGET);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Each answer directly follows its own question
+        List<ChatMessage> turns = session.history().stream().filter(m -> !"system".equals(m.role())).toList();
+        for (int i = 1; i < turns.size(); i++) {
+            if ("assistant".equals(turns.get(i).role())) {
+                assertThat(turns.get(i - 1).role()).isEqualTo("user");
+                assertThat(turns.get(i).content().substring("Answer ".length()))
+                        .isEqualTo(turns.get(i - 1).content().substring("Question ".length()));
+            }
+        }
+        assertThat(turnTokens(session.history())).isLessThanOrEqualTo(BUDGET);
+    }
+
+    @Test
+    void seededHistoryIsCompactedWhenTheSessionIsOpened() {
+        ChatSessionService service = new ChatSessionService(BUDGET, COMPACT_TO, 30, 100);
+        List<ChatMessage> history = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            history.add(new ChatMessage("user", "Is the river near district " + i + " flooding right now?"));
+            history.add(new ChatMessage("assistant", "No flood warning has been issued for district " + i + "."));
+        }
+        history.add(new ChatMessage("system", "ignored"));
+
+        ChatSessionService.Session session = service.open(null, "alice", history);
+
+        assertThat(turnTokens(session.history())).isLessThanOrEqualTo((int) (BUDGET * COMPACT_TO));
+        assertThat(session.history()).noneMatch(message -> "ignored".equals(message.content()));
+    }
+
+    @Test
+    void sessionsAreReusedOnlyByTheirOwner() {
+        ChatSessionService service = new ChatSessionService(BUDGET, COMPACT_TO, 30, 100);
+        ChatSessionService.Session session = service.open(null, "alice", null);
+
+        assertThat(service.open(session.getId(), "alice", null)).isSameAs(session);
+        ChatSessionService.Session other = service.open(session.getId(), "bob", null);
+        assertThat(other).isNotSameAs(session);
+        assertThat(other.getId()).isNotEqualTo(session.getId());
+        assertThat(service.open("unknown", "alice", null).getId()).isNotEqualTo("unknown");
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedSessionWhenFull() throws Exception {
+        ChatSessionService service = new ChatSessionService(BUDGET, COMPACT_TO, 30, 2);
+        ChatSessionService.Session first = service.open(null, "alice", null);
+        Thread.sleep(5);
+        ChatSessionService.Session second = service.open(null, "bob", null);
+        Thread.sleep(5);
+        service.open(first.getId(), "alice", null);
+
+        service.open(null, "carol", null);
+
+        assertThat(service.getStats().activeSessions()).isEqualTo(2);
+        assertThat(service.getStats().expired()).isEqualTo(1);
+        assertThat(service.open(first.getId(), "alice", null)).isSameAs(first);
+        assertThat(service.open(second.getId(), "bob", null)).isNotSameAs(second);
+    }
+
+    private static int turnTokens(List<ChatMessage> history) {
+        int tokens = 0;
+        for (ChatMessage message : history) {
+            if (!"system".equals(message.role())) {
+                tokens += TokenEstimator.estimateMessage(message.content());
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,153 @@
+package com.ClimateTrack.backend.Service;
+
+import com.ClimateTrack.backend.config.LlmAdmissionProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmAdmissionServiceTest {
+
+    private static final String MODEL = "tinyllama";
+
+    @Test
+    void waitingUsersAreServedRoundRobin() throws Exception {
+        LlmAdmissionService admission = admission(1, 8, 2, 10_000);
+        LlmAdmissionService.Ticket holder = admission.enqueue(MODEL, "alice");
+
+        // Alice queued twice before the others arrived; she still gets only one turn per round
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> waiters = new ArrayList<>();
+        waiters.add(waiter(admission.enqueue(MODEL, "alice"), "alice-1", order));
+        waiters.add(waiter(admission.enqueue(MODEL, "alice"), "alice-2", order));
+        waiters.add(waiter(admission.enqueue(MODEL, "bob"), "bob", order));
+        waiters.add(waiter(admission.enqueue(MODEL, "carol"), "carol", order));
+        assertThat(admission.getStats().get(MODEL).queued()).isEqualTo(4);
+        assertThat(admission.getStats().get(MODEL).waitingUsers()).isEqualTo(3);
+
+        waiters.forEach(Thread::start);
+        holder.close();
+        for (Thread waiter : waiters) {
+            waiter.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        assertThat(order).containsExactly("alice-1", "bob", "carol", "alice-2");
+        LlmAdmissionService.ModelStats stats = admission.getStats().get(MODEL);
+        assertThat(stats.active()).isZero();
+        assertThat(stats.queued()).isZero();
+        assertThat(stats.admitted()).isEqualTo(5);
+    }
+
+    @Test
+    void rejectsAtOnceWhenTheUserShareOrTheQueueIsFull() {
+        LlmAdmissionService admission = admission(1, 3, 2, 10_000);
+        admission.enqueue(MODEL, "alice");
+        admission.enqueue(MODEL, "alice");
+        admission.enqueue(MODEL, "alice");
+
+        assertThatThrownBy(() -> admission.enqueue(MODEL, "alice"))
+                .isInstanceOfSatisfying(LlmAdmissionService.AdmissionRejectedException.class, e -> {
+                    assertThat(e.getReason()).isEqualTo(LlmAdmissionService.Rejection.USER_QUEUE_FULL);
+                    assertThat(e.getRetryAfterSeconds()).isBetween(1L, 60L);
+                });
+        admission.enqueue(MODEL, "bob");
+        assertThatThrownBy(() -> admission.enqueue(MODEL, "carol"))
+                .isInstanceOfSatisfying(LlmAdmissionService.AdmissionRejectedException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(LlmAdmissionService.Rejection.QUEUE_FULL));
+
+        LlmAdmissionService.ModelStats stats = admission.getStats().get(MODEL);
+        assertThat(stats.active()).isEqualTo(1);
+        assertThat(stats.queued()).isEqualTo(3);
+        assertThat(stats.rejectedUserQueueFull()).isEqualTo(1);
+        assertThat(stats.rejectedQueueFull()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsATicketThatWaitsPastTheDeadline() {
+        LlmAdmissionService admission = admission(1, 8, 2, 50);
+        LlmAdmissionService.Ticket holder = admission.enqueue(MODEL, "alice");
+        LlmAdmissionService.Ticket waiting = admission.enqueue(MODEL, "bob");
+
+        long start = System.nanoTime();
+        assertThatThrownBy(waiting::await)
+                .isInstanceOfSatisfying(LlmAdmissionService.AdmissionRejectedException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(LlmAdmissionService.Rejection.DEADLINE));
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(40));
+
+        // The rejected ticket left the queue, so the freed slot is not handed to it
+        LlmAdmissionService.ModelStats stats = admission.getStats().get(MODEL);
+        assertThat(stats.queued()).isZero();
+        assertThat(stats.rejectedDeadline()).isEqualTo(1);
+        holder.close();
+        waiting.close();
+        assertThat(admission.getStats().get(MODEL).active()).isZero();
+    }
+
+    @Test
+    void closingAWaitingTicketLeavesTheQueueOnce() throws Exception {
+        LlmAdmissionService admission = admission(1, 8, 2, 10_000);
+        LlmAdmissionService.Ticket holder = admission.enqueue(MODEL, "alice");
+        LlmAdmissionService.Ticket waiting = admission.enqueue(MODEL, "bob");
+
+        waiting.close();
+        waiting.close();
+        assertThat(admission.getStats().get(MODEL).queued()).isZero();
+        assertThatThrownBy(waiting::await).isInstanceOf(IllegalStateException.class);
+
+        holder.close();
+        holder.close();
+        assertThat(admission.getStats().get(MODEL).active()).isZero();
+        // The slot is free again, so the next ticket holds it at once
+        try (LlmAdmissionService.Ticket next = admission.enqueue(MODEL, "carol")) {
+            next.await();
+            assertThat(admission.getStats().get(MODEL).active()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void modelLimitsOverrideTheDefault() {
+        LlmAdmissionProperties properties = new LlmAdmissionProperties();
+        properties.setMaxConcurrent(1);
+        properties.getModelLimits().put("llama3:8b", 3);
+        LlmAdmissionService admission = new LlmAdmissionService(properties);
+        for (int i = 0; i < 3; i++) {
+            admission.enqueue("llama3:8b", "user-" + i);
+        }
+        admission.enqueue(MODEL, "user-0");
+
+        assertThat(admission.getStats().get(MODEL).limit()).isEqualTo(1);
+        LlmAdmissionService.ModelStats stats = admission.getStats().get("llama3:8b");
+        assertThat(stats.limit()).isEqualTo(3);
+        assertThat(stats.active()).isEqualTo(3);
+        assertThat(stats.queued()).isZero();
+    }
+
+    private static LlmAdmissionService admission(int maxConcurrent, int maxQueue, int maxQueuedPerUser,
+                                                 long maxWaitMs) {
+        LlmAdmissionProperties properties = new LlmAdmissionProperties();
+        properties.setMaxConcurrent(maxConcurrent);
+        properties.setMaxQueue(maxQueue);
+        properties.setMaxQueuedPerUser(maxQueuedPerUser);
+        properties.setMaxWaitMs(maxWaitMs);
+        return new LlmAdmissionService(properties);
+    }
+
+    /**
+     * Waits for {@code ticket}, records {@code name} once it holds the slot, and gives the slot back.
+     */
+    private static Thread waiter(LlmAdmissionService.Ticket ticket, String name, List<String> order) {
+        return new Thread(() -> {
+            try (ticket) {
+                ticket.await();
+                order.add(name);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+}
@@ -0,0 +1,123 @@
+package com.ClimateTrack.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterTheThresholdOfConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60_000);
+        fail(breaker, 2);
+        breaker.onSuccess();
+        fail(breaker, 2);
+        // A success in between resets the count
+        assertThat(breaker.stats().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        fail(breaker, 1);
+        assertThat(breaker.stats().state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.allowsCalls()).isFalse();
+        assertThat(breaker.retryAfterMillis()).isBetween(1L, 60_000L);
+
+        CircuitBreaker.Stats stats = breaker.stats();
+        assertThat(stats.opened()).isEqualTo(1);
+        assertThat(stats.rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void halfOpenLetsASingleTrialThroughAmongConcurrentCallers() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        fail(breaker, 1);
+        assertThat(breaker.allowsCalls()).isTrue();
+
+        int callers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        int allowed = 0;
+        try {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                Callable<Boolean> attempt = () -> {
+                    start.await();
+                    return breaker.tryAcquire();
+                };
+                attempts.add(pool.submit(attempt));
+            }
+            start.countDown();
+            for (Future<Boolean> attempt : attempts) {
+                if (attempt.get(10, TimeUnit.SECONDS)) {
+                    allowed++;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(allowed).isEqualTo(1);
+        assertThat(breaker.stats().state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.stats().rejected()).isEqualTo(callers - 1);
+        assertThat(breaker.allowsCalls()).isFalse();
+    }
+
+    @Test
+    void trialOutcomeClosesOrReopensTheCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 0);
+        fail(breaker, 2);
+
+        // A failed trial opens the circuit again at once, without waiting for the threshold
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onFailure();
+        assertThat(breaker.stats().state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.stats().opened()).isEqualTo(2);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onSuccess();
+        assertThat(breaker.stats().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.stats().consecutiveFailures()).isZero();
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void releasedTrialLetsTheNextCallerTry() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        fail(breaker, 1);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        // The trial never reached the service, so the circuit stays half-open for another one
+        breaker.release();
+        assertThat(breaker.stats().state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void staysOpenUntilTheOpenPeriodHasPassed() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 100);
+        fail(breaker, 1);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        Thread.sleep(150);
+        assertThat(breaker.retryAfterMillis()).isZero();
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.stats().state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+
+    private static void fail(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            breaker.onFailure();
+        }
+    }
+}
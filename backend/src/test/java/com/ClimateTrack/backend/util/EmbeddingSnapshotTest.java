@@ -0,0 +1,149 @@
+package com.ClimateTrack.backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddingSnapshotTest {
+
+    private static final String MODEL = "nomic-embed-text";
+    private static final int DIMENSION = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsEveryEmbeddingAndFindsItByHash() throws IOException {
+        Path path = directory.resolve("embeddings.bin");
+        Map<ContentHash, float[]> entries = entries(500, 1L);
+        EmbeddingSnapshot.write(path, MODEL, DIMENSION, entries);
+
+        try (EmbeddingSnapshot snapshot = EmbeddingSnapshot.open(path, MODEL)) {
+            assertThat(snapshot.size()).isEqualTo(500);
+            assertThat(snapshot.dimension()).isEqualTo(DIMENSION);
+            entries.forEach((hash, row) -> assertThat(snapshot.find(hash)).containsExactly(row));
+            assertThat(snapshot.find(ContentHash.of("not stored"))).isNull();
+
+            // Rows come back in hash order, which is what the binary search relies on
+            List<ContentHash> hashes = new ArrayList<>();
+            snapshot.forEach((hash, row) -> {
+                hashes.add(hash);
+                assertThat(row).containsExactly(entries.get(hash));
+            });
+            assertThat(hashes).hasSize(500).isSorted();
+        }
+    }
+
+    @Test
+    void startsWithTheMagicVersionAndModel() throws IOException {
+        Path path = directory.resolve("embeddings.bin");
+        EmbeddingSnapshot.write(path, MODEL, DIMENSION, entries(3, 2L));
+
+        try (InputStream file = Files.newInputStream(path); DataInputStream in = new DataInputStream(file)) {
+            assertThat(in.readInt()).isEqualTo(0x43545653);
+            assertThat(in.readInt()).isEqualTo(1);
+            assertThat(in.readUTF()).isEqualTo(MODEL);
+            assertThat(in.readInt()).isEqualTo(DIMENSION);
+            assertThat(in.readInt()).isEqualTo(3);
+        }
+        long header = 4 + 4 + 2 + MODEL.length() + 4 + 4;
+        assertThat(Files.size(path)).isEqualTo(header + 3L * (ContentHash.BYTES + DIMENSION * Float.BYTES));
+    }
+
+    @Test
+    void snapshotOfAnotherModelOrAMissingFileOpensEmpty() throws IOException {
+        Path path = directory.resolve("embeddings.bin");
+        EmbeddingSnapshot.write(path, MODEL, DIMENSION, entries(10, 3L));
+
+        try (EmbeddingSnapshot snapshot = EmbeddingSnapshot.open(path, "mxbai-embed-large")) {
+            assertThat(snapshot.size()).isZero();
+            assertThat(snapshot.find(entries(10, 3L).keySet().iterator().next())).isNull();
+        }
+        try (EmbeddingSnapshot snapshot = EmbeddingSnapshot.open(directory.resolve("missing.bin"), MODEL)) {
+            assertThat(snapshot.size()).isZero();
+        }
+    }
+
+    @Test
+    void rejectsCorruptTruncatedOrNewerFiles() throws IOException {
+        Path path = directory.resolve("embeddings.bin");
+        EmbeddingSnapshot.write(path, MODEL, DIMENSION, entries(10, 4L));
+        byte[] valid = Files.readAllBytes(path);
+
+        Path truncated = directory.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(valid, valid.length - 1));
+        assertThatThrownBy(() -> EmbeddingSnapshot.open(truncated, MODEL)).isInstanceOf(IOException.class);
+
+        Path foreign = directory.resolve("foreign.bin");
+        Files.write(foreign, "not a snapshot at all".getBytes());
+        assertThatThrownBy(() -> EmbeddingSnapshot.open(foreign, MODEL)).isInstanceOf(IOException.class);
+
+        Path newer = directory.resolve("newer.bin");
+        byte[] bumped = valid.clone();
+        ByteBuffer.wrap(bumped).putInt(4, 2);
+        Files.write(newer, bumped);
+        assertThatThrownBy(() -> EmbeddingSnapshot.open(newer, MODEL))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("version 2");
+    }
+
+    @Test
+    void replacesTheFileAtomicallyWithoutLeavingTemporaryFiles() throws IOException {
+        Path path = directory.resolve("embeddings.bin");
+        Map<ContentHash, float[]> first = entries(20, 5L);
+        Map<ContentHash, float[]> second = entries(30, 6L);
+        EmbeddingSnapshot.write(path, MODEL, DIMENSION, first);
+
+        try (EmbeddingSnapshot old = EmbeddingSnapshot.open(path, MODEL)) {
+            EmbeddingSnapshot.write(path, MODEL, DIMENSION, second);
+
+            // A reader that mapped the old file keeps reading it; a new reader sees the new one
+            ContentHash oldHash = first.keySet().iterator().next();
+            assertThat(old.find(oldHash)).containsExactly(first.get(oldHash));
+            try (EmbeddingSnapshot current = EmbeddingSnapshot.open(path, MODEL)) {
+                assertThat(current.size()).isEqualTo(30);
+                assertThat(current.find(oldHash)).isNull();
+            }
+        }
+
+        // A write that fails leaves the previous snapshot in place
+        Map<ContentHash, float[]> mismatched = Map.of(ContentHash.of("short"), new float[DIMENSION - 1]);
+        assertThatThrownBy(() -> EmbeddingSnapshot.write(path, MODEL, DIMENSION, mismatched))
+                .isInstanceOf(IOException.class);
+        try (EmbeddingSnapshot current = EmbeddingSnapshot.open(path, MODEL)) {
+            assertThat(current.size()).isEqualTo(30);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).containsExactly(path);
+        }
+    }
+
+    private static Map<ContentHash, float[]> entries(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Map<ContentHash, float[]> entries = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            float[] row = new float[DIMENSION];
+            for (int d = 0; d < DIMENSION; d++) {
+                row[d] = (float) random.nextGaussian();
+            }
+            entries.put(ContentHash.of("chunk " + seed + "-" + i), row);
+        }
+        return entries;
+    }
+}
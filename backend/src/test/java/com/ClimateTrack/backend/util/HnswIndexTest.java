@@ -0,0 +1,209 @@
+package com.ClimateTrack.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 16;
+    private static final int K = 10;
+
+    @Test
+    void recallAgainstExactSearchOnASeededRandomSet() {
+        int count = 2000;
+        float[] matrix = new float[count * DIMENSION];
+        SplittableRandom random = new SplittableRandom(42L);
+        HnswIndex graph = new HnswIndex(16, 200, 42L);
+        for (int id = 0; id < count; id++) {
+            System.arraycopy(randomUnitVector(random), 0, matrix, id * DIMENSION, DIMENSION);
+            graph.insert(id, matrix, DIMENSION);
+        }
+
+        assertThat(recall(graph, matrix, count, 64, null)).isGreaterThanOrEqualTo(0.95);
+        // A wider beam never finds fewer true neighbours on this set
+        assertThat(recall(graph, matrix, count, 256, null))
+                .isGreaterThanOrEqualTo(recall(graph, matrix, count, 16, null));
+    }
+
+    @Test
+    void excludedRowsAreNeverReturned() {
+        int count = 1000;
+        float[] matrix = new float[count * DIMENSION];
+        SplittableRandom random = new SplittableRandom(3L);
+        HnswIndex graph = new HnswIndex(16, 100, 42L);
+        for (int id = 0; id < count; id++) {
+            System.arraycopy(randomUnitVector(random), 0, matrix, id * DIMENSION, DIMENSION);
+            graph.insert(id, matrix, DIMENSION);
+        }
+        BitSet excluded = new BitSet();
+        for (int id = 0; id < count; id += 2) {
+            excluded.set(id);
+        }
+
+        TopKHeap result = new TopKHeap(K);
+        for (int q = 0; q < 50; q++) {
+            graph.search(randomUnitVector(random), matrix, DIMENSION, 64, count, excluded, result);
+            assertThat(result.size()).isEqualTo(K);
+            for (int i = 0; i < result.size(); i++) {
+                assertThat(result.id(i) % 2).isEqualTo(1);
+            }
+        }
+        assertThat(recall(graph, matrix, count, 64, excluded)).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void readersOfAnOlderViewStillEnterTheGraphAfterItGrows() {
+        int count = 1000;
+        float[] matrix = new float[count * DIMENSION];
+        SplittableRandom random = new SplittableRandom(11L);
+        HnswIndex graph = new HnswIndex(8, 64, 42L);
+        for (int id = 0; id < count; id++) {
+            System.arraycopy(randomUnitVector(random), 0, matrix, id * DIMENSION, DIMENSION);
+            graph.insert(id, matrix, DIMENSION);
+        }
+
+        // The graph's entry point moves to later rows as it grows; a reader that can only see the
+        // first rows still enters the graph through one of them
+        TopKHeap result = new TopKHeap(K);
+        for (int visible = 1; visible <= count; visible++) {
+            graph.search(randomUnitVector(random), matrix, DIMENSION, 64, visible, result);
+            assertThat(result.size()).as("visible %d", visible).isPositive();
+            for (int i = 0; i < result.size(); i++) {
+                assertThat(result.id(i)).isLessThan(visible);
+            }
+        }
+        // and finds most of its neighbours once the view is not tiny
+        assertThat(recall(graph, matrix, count / 2, 64, null)).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void concurrentInsertsAcrossCapacityBoundariesLinkEveryRow() throws Exception {
+        // Starts small so the workers cross several capacity doublings while inserting
+        GrowingMatrix rows = new GrowingMatrix(8);
+        HnswIndex graph = new HnswIndex(8, 64, 42L);
+        int threads = 4;
+        int perThread = 250;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                SplittableRandom random = new SplittableRandom(t);
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        int id = rows.append(randomUnitVector(random));
+                        graph.insert(id, rows::current, DIMENSION);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int count = threads * perThread;
+        assertThat(graph.size()).isEqualTo(count);
+        float[] matrix = rows.current();
+        TopKHeap result = new TopKHeap(1);
+        int found = 0;
+        for (int id = 0; id < count; id++) {
+            float[] query = Arrays.copyOfRange(matrix, id * DIMENSION, (id + 1) * DIMENSION);
+            graph.search(query, matrix, DIMENSION, 64, count, result);
+            if (result.size() == 1 && result.id(0) == id) {
+                found++;
+            }
+        }
+        // Every row is reachable: searching for a row's own vector finds it
+        assertThat(found).isGreaterThanOrEqualTo(count * 99 / 100);
+        // and a graph linked concurrently is about as good as one built by a single thread
+        assertThat(recall(graph, matrix, count, 64, null)).isGreaterThanOrEqualTo(0.9);
+    }
+
+    /**
+     * Share of the exact top-K neighbours of 100 seeded random queries that the graph finds with
+     * {@code ef}, skipping {@code excluded} rows in both searches.
+     */
+    private static double recall(HnswIndex graph, float[] matrix, int count, int ef, BitSet excluded) {
+        SplittableRandom random = new SplittableRandom(99L);
+        TopKHeap exact = new TopKHeap(K);
+        TopKHeap approximate = new TopKHeap(K);
+        long found = 0;
+        long total = 0;
+        for (int q = 0; q < 100; q++) {
+            float[] query = randomUnitVector(random);
+            exact.clear();
+            for (int id = 0; id < count; id++) {
+                if (excluded == null || !excluded.get(id)) {
+                    exact.offer(id, VectorMath.dot(query, matrix, id * DIMENSION, DIMENSION));
+                }
+            }
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < exact.size(); i++) {
+                expected.add(exact.id(i));
+            }
+            graph.search(query, matrix, DIMENSION, ef, count, excluded, approximate);
+            for (int i = 0; i < approximate.size(); i++) {
+                if (expected.contains(approximate.id(i))) {
+                    found++;
+                }
+            }
+            total += expected.size();
+        }
+        return found / (double) total;
+    }
+
+    static float[] randomUnitVector(SplittableRandom random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        float[] normalized = new float[DIMENSION];
+        VectorMath.normalizeInto(vector, normalized, 0);
+        return normalized;
+    }
+
+    /**
+     * Grows by copying, like the vector store's builder: appends are serialized, and an array handed out
+     * earlier holds only the rows appended before it was replaced.
+     */
+    private static final class GrowingMatrix {
+
+        private float[] matrix;
+        private int size;
+
+        GrowingMatrix(int initialRows) {
+            this.matrix = new float[initialRows * DIMENSION];
+        }
+
+        synchronized int append(float[] row) {
+            if ((size + 1) * DIMENSION > matrix.length) {
+                matrix = Arrays.copyOf(matrix, matrix.length * 2);
+            }
+            System.arraycopy(row, 0, matrix, size * DIMENSION, DIMENSION);
+            return size++;
+        }
+
+        synchronized float[] current() {
+            return matrix;
+        }
+    }
+}
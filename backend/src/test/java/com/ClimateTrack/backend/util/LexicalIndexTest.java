@@ -0,0 +1,117 @@
+package com.ClimateTrack.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class LexicalIndexTest {
+
+    private static final List<String> DOCUMENTS = List.of(
+            "Flood safety: move to higher ground and avoid walking through flood water.",
+            "Earthquake safety: drop, cover and hold on until the shaking stops.",
+            "Typhoon preparation: secure windows and keep an emergency kit ready.",
+            "Gangnam fire station is located on Nambu road; phone 02 555 0119.",
+            "Emergency kit: water, food, a flashlight, batteries and a first aid kit.");
+
+    @Test
+    void ranksDocumentsByBm25() {
+        LexicalIndex index = index(DOCUMENTS);
+
+        LexicalIndex.Result result = index.search("emergency kit", 5, index.size());
+
+        // Both documents contain both terms; the one that repeats "kit" ranks first
+        assertThat(result.hits().size()).isEqualTo(2);
+        assertThat(result.hits().id(0)).isEqualTo(4);
+        assertThat(result.hits().id(1)).isEqualTo(2);
+        assertThat(result.hits().score(0)).isGreaterThan(result.hits().score(1));
+    }
+
+    @Test
+    void reportsHowMuchOfTheQueryTheBestHitCovers() {
+        LexicalIndex index = index(DOCUMENTS);
+
+        LexicalIndex.Result full = index.search("Gangnam fire station phone", 5, index.size());
+        assertThat(full.queryTerms()).isEqualTo(4);
+        assertThat(full.hits().id(0)).isEqualTo(3);
+        assertThat(full.topCoverage()).isEqualTo(1f, within(1e-6f));
+
+        // An unknown term counts against coverage
+        LexicalIndex.Result partial = index.search("Gangnam fire station fax", 5, index.size());
+        assertThat(partial.hits().id(0)).isEqualTo(3);
+        assertThat(partial.topCoverage()).isBetween(0.1f, 0.99f);
+    }
+
+    @Test
+    void ignoresStopWordsCaseAndPunctuation() {
+        LexicalIndex index = index(DOCUMENTS);
+
+        LexicalIndex.Result result = index.search("WHAT is THE earthquake?!", 5, index.size());
+
+        assertThat(result.queryTerms()).isEqualTo(1);
+        assertThat(result.hits().size()).isEqualTo(1);
+        assertThat(result.hits().id(0)).isEqualTo(1);
+    }
+
+    @Test
+    void matchesHangulByCharacterBigrams() {
+        LexicalIndex index = index(List.of("서울 강남구 소방서 전화번호", "부산 해운대 경찰서"));
+
+        LexicalIndex.Result result = index.search("강남소방서", 5, index.size());
+
+        assertThat(result.hits().size()).isEqualTo(1);
+        assertThat(result.hits().id(0)).isEqualTo(0);
+    }
+
+    @Test
+    void searchesOnlyVisibleAndLiveDocuments() {
+        LexicalIndex index = index(DOCUMENTS);
+
+        // A reader holding an older generation sees only the first rows
+        assertThat(index.search("kit", 5, 2).hits().size()).isZero();
+        assertThat(index.search("kit", 5, 3).hits().size()).isEqualTo(1);
+
+        BitSet deleted = new BitSet();
+        deleted.set(4);
+        LexicalIndex.Result result = index.search("kit", 5, index.size(), deleted);
+        assertThat(result.hits().size()).isEqualTo(1);
+        assertThat(result.hits().id(0)).isEqualTo(2);
+    }
+
+    @Test
+    void returnsNothingForAnEmptyQueryOrIndex() {
+        assertThat(new LexicalIndex().search("flood", 5, 0).hits().size()).isZero();
+        assertThat(index(DOCUMENTS).search("the of and", 5, DOCUMENTS.size()).hits().size()).isZero();
+    }
+
+    @Test
+    void requiresDocumentsInIdOrder() {
+        LexicalIndex index = new LexicalIndex();
+        index.add(0, "first");
+
+        assertThatThrownBy(() -> index.add(2, "third")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        LexicalIndex index = new LexicalIndex();
+        for (int id = 0; id < 3000; id++) {
+            index.add(id, "shelter number " + id);
+        }
+
+        LexicalIndex.Result result = index.search("shelter 2999", 3, index.size());
+        assertThat(result.hits().id(0)).isEqualTo(2999);
+    }
+
+    private static LexicalIndex index(List<String> documents) {
+        LexicalIndex index = new LexicalIndex();
+        for (int id = 0; id < documents.size(); id++) {
+            index.add(id, documents.get(id));
+        }
+        return index;
+    }
+}
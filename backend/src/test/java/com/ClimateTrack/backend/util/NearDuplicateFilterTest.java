@@ -0,0 +1,106 @@
+package com.ClimateTrack.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NearDuplicateFilterTest {
+
+    // vectorstore.dedup.max-distance
+    private static final int MAX_DISTANCE = 3;
+
+    private static final String BASE = "The institution named Gangnam fire station is located at 12 Nambu "
+            + "road in Seoul and the phone number is 02 555 0119 for emergencies";
+
+    private static final String[] WORDS = {"police", "office", "north", "busan", "river", "center", "unit",
+            "district", "hall", "bridge", "market", "school", "tower", "park", "harbor", "west"};
+
+    @Test
+    void bandedLookupAgreesWithTheHammingDistanceAtTheThreshold() {
+        long base = fingerprint(BASE);
+        // How many variants landed at each distance; both sides of the threshold must be exercised
+        TreeMap<Integer, Integer> distances = new TreeMap<>();
+        for (String variant : variants()) {
+            int distance = Long.bitCount(base ^ fingerprint(variant));
+            distances.merge(distance, 1, Integer::sum);
+
+            NearDuplicateFilter filter = new NearDuplicateFilter(MAX_DISTANCE);
+            assertThat(filter.isDuplicate(BASE)).isFalse();
+            assertThat(filter.isDuplicate(variant))
+                    .as("distance %d: %s", distance, variant)
+                    .isEqualTo(distance <= MAX_DISTANCE);
+        }
+        assertThat(distances).containsKeys(MAX_DISTANCE, MAX_DISTANCE + 1);
+    }
+
+    @Test
+    void simHashDistanceGrowsWithTheEdit() {
+        long base = fingerprint(BASE);
+        assertThat(fingerprint(BASE)).isEqualTo(base);
+        // Whitespace and case do not change the tokens
+        assertThat(fingerprint("  " + BASE.toUpperCase().replace(" ", "\n "))).isEqualTo(base);
+
+        int oneWord = Long.bitCount(base ^ fingerprint(BASE.replace("Gangnam", "Mapo")));
+        int unrelated = Long.bitCount(base ^ fingerprint(
+                "Heavy rain warnings were issued across the southern coast as the typhoon approached Jeju"));
+        assertThat(oneWord).isLessThan(unrelated);
+        assertThat(unrelated).isGreaterThan(MAX_DISTANCE);
+    }
+
+    @Test
+    void shortChunksOnlyCollapseOnAnExactMatch() {
+        NearDuplicateFilter filter = new NearDuplicateFilter(MAX_DISTANCE);
+        assertThat(filter.isDuplicate("Gangnam station")).isFalse();
+        assertThat(filter.isDuplicate("Gangnam station")).isTrue();
+
+        int distance = Long.bitCount(fingerprint("Mapo station") ^ fingerprint("Mapo stations"));
+        assertThat(filter.isDuplicate("Mapo station")).isFalse();
+        assertThat(filter.isDuplicate("Mapo stations")).as("distance %d", distance).isFalse();
+    }
+
+    @Test
+    void forgottenChunksAreAcceptedAgain() {
+        NearDuplicateFilter filter = new NearDuplicateFilter(MAX_DISTANCE);
+        assertThat(filter.isDuplicate(BASE)).isFalse();
+        assertThat(filter.isDuplicate(BASE)).isTrue();
+
+        filter.forget(BASE);
+        assertThat(filter.isDuplicate(BASE)).isFalse();
+    }
+
+    @Test
+    void rejectsMaxDistanceOutsideZeroToThirtyOne() {
+        assertThatThrownBy(() -> new NearDuplicateFilter(32)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new NearDuplicateFilter(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static long fingerprint(String text) {
+        return NearDuplicateFilter.simHash(TextTokenizer.tokenize(text));
+    }
+
+    /**
+     * BASE with one word replaced, one word appended, or two words replaced.
+     */
+    private static List<String> variants() {
+        String[] tokens = BASE.split(" ");
+        List<String> variants = new ArrayList<>();
+        for (int i = 0; i < tokens.length; i++) {
+            for (String word : WORDS) {
+                String[] edited = tokens.clone();
+                edited[i] = word;
+                variants.add(String.join(" ", edited));
+                edited[(i + 7) % tokens.length] = word + "s";
+                variants.add(String.join(" ", edited));
+            }
+        }
+        for (String word : WORDS) {
+            variants.add(BASE + " " + word);
+        }
+        return variants;
+    }
+}
@@ -0,0 +1,159 @@
+package com.ClimateTrack.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantizedVectorsTest {
+
+    private static final int DIMENSION = 64;
+    private static final int K = 10;
+
+    @Test
+    void codesDecodeToWithinHalfAStepOfTheOriginal() {
+        SplittableRandom random = new SplittableRandom(1L);
+        QuantizedVectors vectors = new QuantizedVectors(DIMENSION, 4);
+        float[][] originals = new float[20][];
+        for (int row = 0; row < originals.length; row++) {
+            originals[row] = unitVector(random);
+            vectors.set(row, originals[row]);
+        }
+
+        QuantizedVectors.Rows rows = vectors.rows();
+        for (int row = 0; row < originals.length; row++) {
+            float scale = rows.scales()[row];
+            assertThat(scale).isPositive();
+            for (int i = 0; i < DIMENSION; i++) {
+                float decoded = rows.offsets()[row] + scale * (rows.codes()[row * DIMENSION + i] + 128);
+                assertThat(decoded).isCloseTo(originals[row][i], within(scale / 2 + 1e-6f));
+            }
+        }
+    }
+
+    @Test
+    void aConstantRowIsStoredExactly() {
+        QuantizedVectors vectors = new QuantizedVectors(4, 1);
+        vectors.set(0, new float[]{0.5f, 0.5f, 0.5f, 0.5f});
+
+        QuantizedVectors.Rows rows = vectors.rows();
+        float[] query = {1f, 2f, 3f, 4f};
+        assertThat(rows.scales()[0]).isZero();
+        assertThat(rows.approximateDot(query, 10f, 0)).isEqualTo(5f);
+        assertThat(rows.exactDot(query, 0)).isEqualTo(5f);
+    }
+
+    @Test
+    void approximateDotIsCloseAndExactDotMatchesTheFloatRow() {
+        SplittableRandom random = new SplittableRandom(2L);
+        QuantizedVectors vectors = new QuantizedVectors(DIMENSION, 8);
+        float[][] originals = new float[50][];
+        for (int row = 0; row < originals.length; row++) {
+            originals[row] = unitVector(random);
+            vectors.set(row, originals[row]);
+        }
+
+        QuantizedVectors.Rows rows = vectors.rows();
+        float[] query = unitVector(random);
+        float querySum = 0f;
+        float queryAbsSum = 0f;
+        for (float v : query) {
+            querySum += v;
+            queryAbsSum += Math.abs(v);
+        }
+        float[] copy = new float[DIMENSION];
+        for (int row = 0; row < originals.length; row++) {
+            float exact = VectorMath.dot(query, 0, originals[row], 0, DIMENSION);
+            // Each component is off by at most half a step
+            float bound = queryAbsSum * rows.scales()[row] / 2 + 1e-4f;
+            assertThat(rows.approximateDot(query, querySum, row)).isCloseTo(exact, within(bound));
+            assertThat(rows.exactDot(query, row)).isCloseTo(exact, within(1e-5f));
+            rows.copyRow(row, copy, 0);
+            assertThat(copy).containsExactly(originals[row]);
+        }
+    }
+
+    @Test
+    void reRankingTheApproximateCandidatesRecoversTheExactTopK() {
+        int count = 2000;
+        int rerankFactor = 4;
+        SplittableRandom random = new SplittableRandom(3L);
+        QuantizedVectors vectors = new QuantizedVectors(DIMENSION, 16);
+        float[] matrix = new float[count * DIMENSION];
+        for (int row = 0; row < count; row++) {
+            float[] vector = unitVector(random);
+            System.arraycopy(vector, 0, matrix, row * DIMENSION, DIMENSION);
+            vectors.set(row, vector);
+        }
+        QuantizedVectors.Rows rows = vectors.rows();
+
+        long found = 0;
+        for (int q = 0; q < 100; q++) {
+            float[] query = unitVector(random);
+            float querySum = 0f;
+            for (float v : query) {
+                querySum += v;
+            }
+            TopKHeap exact = new TopKHeap(K);
+            TopKHeap candidates = new TopKHeap(K * rerankFactor);
+            for (int row = 0; row < count; row++) {
+                exact.offer(row, VectorMath.dot(query, matrix, row * DIMENSION, DIMENSION));
+                candidates.offer(row, rows.approximateDot(query, querySum, row));
+            }
+            TopKHeap reranked = new TopKHeap(K);
+            for (int i = 0; i < candidates.size(); i++) {
+                reranked.offer(candidates.id(i), rows.exactDot(query, candidates.id(i)));
+            }
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < exact.size(); i++) {
+                expected.add(exact.id(i));
+            }
+            for (int i = 0; i < reranked.size(); i++) {
+                if (expected.contains(reranked.id(i))) {
+                    found++;
+                }
+            }
+        }
+        assertThat(found / (100.0 * K)).isGreaterThanOrEqualTo(0.98);
+    }
+
+    @Test
+    void viewsTakenBeforeGrowthKeepTheirRows() {
+        SplittableRandom random = new SplittableRandom(4L);
+        QuantizedVectors vectors = new QuantizedVectors(DIMENSION, 2);
+        float[] first = unitVector(random);
+        vectors.set(0, first);
+        QuantizedVectors.Rows before = vectors.rows();
+
+        float[] last = null;
+        for (int row = 1; row < 100; row++) {
+            last = unitVector(random);
+            vectors.set(row, last);
+        }
+        QuantizedVectors.Rows after = vectors.rows();
+
+        float[] copy = new float[DIMENSION];
+        before.copyRow(0, copy, 0);
+        assertThat(copy).containsExactly(first);
+        after.copyRow(0, copy, 0);
+        assertThat(copy).containsExactly(first);
+        after.copyRow(99, copy, 0);
+        assertThat(copy).containsExactly(last);
+        assertThat(after.mappedBytes()).isGreaterThanOrEqualTo(100L * DIMENSION * Float.BYTES);
+        assertThat(after.residentBytes()).isLessThan(after.mappedBytes() / 2);
+    }
+
+    private static float[] unitVector(SplittableRandom random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        float[] normalized = new float[DIMENSION];
+        VectorMath.normalizeInto(vector, normalized, 0);
+        return normalized;
+    }
+}
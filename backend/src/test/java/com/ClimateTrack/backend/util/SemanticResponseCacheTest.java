@@ -0,0 +1,72 @@
+package com.ClimateTrack.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticResponseCacheTest {
+
+    private static final ContentHash CONTEXT = ContentHash.of("tinyllama", "Seoul", "flood manual");
+
+    @Test
+    void servesASimilarQuestionAskedInTheSameContext() {
+        SemanticResponseCache cache = new SemanticResponseCache(0.95f, 60_000, 10);
+        cache.put(new float[]{1f, 0f, 0f}, CONTEXT, "Move to higher ground.");
+
+        // Scale does not matter, only the direction
+        assertThat(cache.get(new float[]{2f, 0.1f, 0f}, CONTEXT)).isEqualTo("Move to higher ground.");
+        assertThat(cache.get(new float[]{1f, 1f, 0f}, CONTEXT)).isNull();
+        // The same question with different retrieved context is a miss
+        assertThat(cache.get(new float[]{1f, 0f, 0f}, ContentHash.of("tinyllama", "Seoul", "new alert"))).isNull();
+
+        SemanticResponseCache.Stats stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(2);
+        assertThat(stats.hitRate()).isEqualTo(1 / 3.0);
+    }
+
+    @Test
+    void replacesTheAnswerToAnEquivalentQuestion() {
+        SemanticResponseCache cache = new SemanticResponseCache(0.95f, 60_000, 10);
+        cache.put(new float[]{1f, 0f, 0f}, CONTEXT, "old");
+        cache.put(new float[]{1f, 0.05f, 0f}, CONTEXT, "new");
+
+        assertThat(cache.stats().entries()).isEqualTo(1);
+        assertThat(cache.get(new float[]{1f, 0f, 0f}, CONTEXT)).isEqualTo("new");
+    }
+
+    @Test
+    void expiredEntriesAreDroppedOnLookup() throws Exception {
+        SemanticResponseCache cache = new SemanticResponseCache(0.95f, 30, 10);
+        cache.put(new float[]{1f, 0f, 0f}, CONTEXT, "Move to higher ground.");
+        assertThat(cache.get(new float[]{1f, 0f, 0f}, CONTEXT)).isNotNull();
+
+        Thread.sleep(60);
+
+        assertThat(cache.get(new float[]{1f, 0f, 0f}, CONTEXT)).isNull();
+        SemanticResponseCache.Stats stats = cache.stats();
+        assertThat(stats.expirations()).isEqualTo(1);
+        assertThat(stats.entries()).isZero();
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedBeyondMaxEntries() {
+        SemanticResponseCache cache = new SemanticResponseCache(0.95f, 60_000, 2);
+        float[] flood = {1f, 0f, 0f};
+        float[] quake = {0f, 1f, 0f};
+        float[] typhoon = {0f, 0f, 1f};
+        cache.put(flood, CONTEXT, "flood");
+        cache.put(quake, CONTEXT, "quake");
+        // Reading the first entry makes the second the least recently used
+        assertThat(cache.get(flood, CONTEXT)).isEqualTo("flood");
+
+        cache.put(typhoon, CONTEXT, "typhoon");
+
+        assertThat(cache.get(quake, CONTEXT)).isNull();
+        assertThat(cache.get(flood, CONTEXT)).isEqualTo("flood");
+        assertThat(cache.get(typhoon, CONTEXT)).isEqualTo("typhoon");
+        SemanticResponseCache.Stats stats = cache.stats();
+        assertThat(stats.evictions()).isEqualTo(1);
+        assertThat(stats.entries()).isEqualTo(2);
+    }
+}
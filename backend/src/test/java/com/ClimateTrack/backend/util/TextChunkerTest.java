@@ -0,0 +1,138 @@
+package com.ClimateTrack.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class TextChunkerTest {
+
+    private static final String SENTENCES = "Move away from windows and heavy furniture. Drop to your hands and "
+            + "knees before the shaking knocks you down. Cover your head and neck under a sturdy table. Hold on "
+            + "until the shaking stops and stay indoors. Check yourself and others for injuries afterwards. "
+            + "Expect aftershocks and be ready to drop, cover and hold on again.";
+
+    @Test
+    void cutsAtAParagraphBreakWithoutOverlap() {
+        List<String> chunks = chunk(new TextChunker(50, 10, 1),
+                "First paragraph has some words.\n\nSecond paragraph is here and it keeps going on.");
+
+        assertThat(chunks).containsExactly("First paragraph has some words.",
+                "Second paragraph is here and it keeps going on.");
+    }
+
+    @Test
+    void packsShortParagraphsIntoOneChunk() {
+        List<String> chunks = chunk(new TextChunker(200, 20, 1), "Stay calm.\n\n\nFind an exit.\n \nCall 119.");
+
+        assertThat(chunks).containsExactly("Stay calm.\n\nFind an exit.\n\nCall 119.");
+    }
+
+    @Test
+    void cutsInsideAParagraphAtASentenceEndAndCarriesTheOverlap() {
+        int maxChars = 120;
+        int overlapChars = 60;
+        List<String> chunks = chunk(new TextChunker(maxChars, overlapChars, 1), SENTENCES);
+
+        assertThat(chunks).hasSizeGreaterThan(2);
+        for (int i = 0; i < chunks.size(); i++) {
+            String chunk = chunks.get(i);
+            assertThat(chunk.length()).isLessThanOrEqualTo(maxChars);
+            if (i + 1 < chunks.size()) {
+                // A full window is cut after a sentence in its second half
+                assertThat(chunk).endsWith(".");
+                assertThat(chunk.length()).isGreaterThanOrEqualTo(maxChars / 2);
+                // and the next chunk starts with a whole sentence carried over from its end
+                String next = chunks.get(i + 1);
+                String carried = next.substring(0, next.indexOf('.') + 1);
+                assertThat(carried.length()).isLessThanOrEqualTo(overlapChars);
+                assertThat(chunk).endsWith(carried);
+            }
+        }
+        assertThat(chunks.get(0)).startsWith("Move away");
+        assertThat(chunks.get(chunks.size() - 1)).endsWith("hold on again.");
+    }
+
+    @Test
+    void cutsAnUnbrokenRunAtTheWindowSize() {
+        List<String> chunks = chunk(new TextChunker(100, 0, 1), "x".repeat(250));
+
+        assertThat(chunks).extracting(String::length).containsExactly(100, 100, 50);
+    }
+
+    @Test
+    void fallsBackToTheLastSpaceWhenNoSentenceEnds() {
+        String words = "alpha beta gamma delta epsilon zeta eta theta iota kappa lambda mu nu xi omicron";
+        List<String> chunks = chunk(new TextChunker(40, 0, 1), words);
+
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.length()).isLessThanOrEqualTo(40));
+        // No word is split, and nothing is lost or repeated without overlap
+        assertThat(String.join(" ", chunks)).isEqualTo(words);
+    }
+
+    @Test
+    void dropsChunksShorterThanTheMinimum() {
+        assertThat(chunk(new TextChunker(100, 10, 20), "Too short.")).isEmpty();
+        assertThat(chunk(new TextChunker(100, 10, 20), "Long enough to keep, barely.")).hasSize(1);
+    }
+
+    @Test
+    void chunksDoNotDependOnHowTheTextIsSplitIntoPieces() {
+        TextChunker chunker = new TextChunker(90, 30, 1);
+        String text = SENTENCES + "\n\n" + SENTENCES.toLowerCase();
+        List<String> whole = chunk(chunker, text);
+
+        SplittableRandom random = new SplittableRandom(5L);
+        List<String> pieces = new ArrayList<>();
+        TextChunker.Session session = chunker.start(pieces::add);
+        for (int start = 0; start < text.length(); ) {
+            int end = Math.min(text.length(), start + 1 + random.nextInt(40));
+            session.accept(text.substring(start, end));
+            start = end;
+        }
+        session.finish();
+
+        assertThat(pieces).isEqualTo(whole);
+    }
+
+    @Test
+    void reportsThePagesEachChunkSpans() {
+        List<TextChunker.Chunk> chunks = new ArrayList<>();
+        TextChunker.Session session = new TextChunker(60, 15, 1).startPaged(chunks::add);
+        session.accept("Page one has a sentence. And another one here that runs on.\n", 1);
+        session.accept("Second page starts here. It continues for a while longer than that.\n", 2);
+        session.accept("\n\nThird page paragraph.", 3);
+        session.finish();
+
+        assertThat(chunks).extracting(TextChunker.Chunk::firstPage, TextChunker.Chunk::lastPage)
+                .containsExactly(tuple(1, 1), tuple(1, 2), tuple(2, 2), tuple(3, 3));
+        // The overlap carried into the second chunk still starts on page 1
+        assertThat(chunks.get(1).text()).startsWith("that runs on. Second page");
+        assertThat(chunks.get(3).text()).isEqualTo("Third page paragraph.");
+    }
+
+    @Test
+    void textWithoutPagesReportsPageZero() {
+        List<TextChunker.Chunk> chunks = new ArrayList<>();
+        TextChunker.Session session = new TextChunker(100, 10, 1).startPaged(chunks::add);
+        session.accept(SENTENCES);
+        session.finish();
+
+        assertThat(chunks).isNotEmpty().allSatisfy(chunk -> {
+            assertThat(chunk.firstPage()).isZero();
+            assertThat(chunk.lastPage()).isZero();
+        });
+    }
+
+    private static List<String> chunk(TextChunker chunker, String text) {
+        List<String> chunks = new ArrayList<>();
+        TextChunker.Session session = chunker.start(chunks::add);
+        session.accept(text);
+        session.finish();
+        return chunks;
+    }
+}
@@ -0,0 +1,94 @@
+package com.ClimateTrack.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TopKHeapTest {
+
+    @Test
+    void keepsTheBestScoresInDescendingOrder() {
+        SplittableRandom random = new SplittableRandom(1L);
+        float[] scores = new float[500];
+        TopKHeap heap = new TopKHeap(10);
+        for (int id = 0; id < scores.length; id++) {
+            scores[id] = (float) random.nextDouble(-1, 1);
+            heap.offer(id, scores[id]);
+        }
+        heap.sortDescending();
+
+        List<Integer> expected = IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.comparingDouble(id -> -scores[id]))
+                .limit(10)
+                .toList();
+        assertThat(ids(heap)).containsExactlyElementsOf(expected);
+        for (int i = 1; i < heap.size(); i++) {
+            assertThat(heap.score(i)).isLessThanOrEqualTo(heap.score(i - 1));
+        }
+    }
+
+    @Test
+    void holdsFewerEntriesThanCapacityUntilFull() {
+        TopKHeap heap = new TopKHeap(3);
+        heap.offer(7, 0.5f);
+        heap.offer(8, 0.9f);
+
+        assertThat(heap.isFull()).isFalse();
+        assertThat(heap.minScore()).isEqualTo(Float.NEGATIVE_INFINITY);
+        heap.sortDescending();
+        assertThat(ids(heap)).containsExactly(8, 7);
+    }
+
+    @Test
+    void rejectsCandidatesThatOnlyTieTheMinimum() {
+        TopKHeap heap = new TopKHeap(2);
+        assertThat(heap.offer(1, 0.5f)).isTrue();
+        assertThat(heap.offer(2, 0.5f)).isTrue();
+
+        // A full heap keeps the candidates that arrived first among equal scores
+        assertThat(heap.minScore()).isEqualTo(0.5f);
+        assertThat(heap.offer(3, 0.5f)).isFalse();
+        assertThat(heap.offer(4, 0.4f)).isFalse();
+        assertThat(heap.offer(5, 0.6f)).isTrue();
+
+        heap.sortDescending();
+        assertThat(heap.id(0)).isEqualTo(5);
+        assertThat(heap.id(1)).isIn(1, 2);
+        assertThat(heap.score(1)).isEqualTo(0.5f);
+    }
+
+    @Test
+    void canBeReusedAfterClear() {
+        TopKHeap heap = new TopKHeap(2);
+        heap.offer(1, 0.9f);
+        heap.offer(2, 0.8f);
+        heap.sortDescending();
+        heap.clear();
+
+        heap.offer(3, 0.1f);
+        heap.offer(4, 0.2f);
+        heap.offer(5, 0.3f);
+        heap.sortDescending();
+        assertThat(ids(heap)).containsExactly(5, 4);
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThatThrownBy(() -> new TopKHeap(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<Integer> ids(TopKHeap heap) {
+        List<Integer> ids = new ArrayList<>(heap.size());
+        for (int i = 0; i < heap.size(); i++) {
+            ids.add(heap.id(i));
+        }
+        return ids;
+    }
+}